@@ -46,6 +46,7 @@ import edu.illinois.keshmesh.detector.bugs.FixInformation;
 import edu.illinois.keshmesh.detector.exception.Exceptions.WALAInitializationException;
 import edu.illinois.keshmesh.util.Logger;
 import edu.illinois.keshmesh.util.Modes;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
 
 /**
  * 
@@ -89,6 +90,9 @@ public abstract class AbstractTestCase {
 	static final String CONTAINER = "src";
 	static final String PACKAGE_NAME = "p";
 
+	// The expected bug instances of the test files were written for the precise analysis profile. So, the tests force it by default.
+	private static AnalysisProfile analysisProfile = AnalysisProfile.PRECISE;
+
 	private void setUpProject(String testID) throws Exception {
 		javaProject = TestSetupHelper.createAndInitializeProject(testID);
 		//Should be called after the projects are created
@@ -117,6 +121,21 @@ public abstract class AbstractTestCase {
 
 	protected abstract BugPattern getBugPattern();
 
+	/**
+	 * @return the analysis profile that the tests build the call graph with.
+	 */
+	public static AnalysisProfile getAnalysisProfile() {
+		return analysisProfile;
+	}
+
+	/**
+	 * Lets a suite run the tests with a cheaper analysis profile to check that
+	 * the profile finds the expected bug instances too (see {@link ModeSuite}).
+	 */
+	public static void setAnalysisProfile(AnalysisProfile analysisProfile) {
+		AbstractTestCase.analysisProfile = analysisProfile;
+	}
+
 	protected IntermediateResults getIntermediateResults() {
 		return getBugPattern().getBugPatternDetector().getIntermediateResults();
 	}
@@ -212,6 +231,7 @@ public abstract class AbstractTestCase {
 
 	private void findBugs() throws WALAInitializationException {
 		Modes.setInTestMode(true);
+		Modes.setForcedAnalysisProfile(getAnalysisProfile());
 		BugPatterns.enableBugPatterns(getBugPattern());
 		bugInstances = Main.initAndPerformAnalysis(javaProject);
 		Logger.log(bugInstances.toString());
@@ -0,0 +1,40 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests;
+
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+
+/**
+ * Runs the tests of a {@link ModeSuite} with the given analysis profile
+ * instead of the precise profile that the expected bug instances were written
+ * for. A bug pattern should only require a cheaper profile (see
+ * {@link edu.illinois.keshmesh.detector.bugs.BugPattern#getRequiredAnalysisProfile()})
+ * if all of its tests pass with that profile.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public abstract class AnalysisProfileMode implements ModeSuite.Mode {
+
+	private final AnalysisProfile analysisProfile;
+
+	private AnalysisProfile previousAnalysisProfile;
+
+	protected AnalysisProfileMode(AnalysisProfile analysisProfile) {
+		this.analysisProfile = analysisProfile;
+	}
+
+	@Override
+	public void enter() {
+		previousAnalysisProfile = AbstractTestCase.getAnalysisProfile();
+		AbstractTestCase.setAnalysisProfile(analysisProfile);
+	}
+
+	@Override
+	public void exit() {
+		AbstractTestCase.setAnalysisProfile(previousAnalysisProfile);
+	}
+
+}
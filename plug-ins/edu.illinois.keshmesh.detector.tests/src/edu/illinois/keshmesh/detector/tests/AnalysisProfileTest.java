@@ -0,0 +1,116 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.illinois.keshmesh.detector.BugPatternDetector;
+import edu.illinois.keshmesh.detector.bugs.BugPattern;
+import edu.illinois.keshmesh.detector.bugs.BugPatterns;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+
+/**
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class AnalysisProfileTest {
+
+	private static class ProfiledBugPattern extends BugPattern {
+
+		private final AnalysisProfile requiredAnalysisProfile;
+
+		ProfiledBugPattern(AnalysisProfile requiredAnalysisProfile) {
+			super(requiredAnalysisProfile.name(), "Requires the " + requiredAnalysisProfile + " profile");
+			this.requiredAnalysisProfile = requiredAnalysisProfile;
+		}
+
+		@Override
+		public BugPatternDetector createBugPatternDetector() {
+			return null;
+		}
+
+		@Override
+		public boolean hasFixer() {
+			return false;
+		}
+
+		@Override
+		public AnalysisProfile getRequiredAnalysisProfile() {
+			return requiredAnalysisProfile;
+		}
+
+	}
+
+	private static final BugPattern FAST_PATTERN = new ProfiledBugPattern(AnalysisProfile.FAST);
+
+	private static final BugPattern BALANCED_PATTERN = new ProfiledBugPattern(AnalysisProfile.BALANCED);
+
+	private static final BugPattern PRECISE_PATTERN = new ProfiledBugPattern(AnalysisProfile.PRECISE);
+
+	@Test
+	public void shouldSelectTheRequiredProfileOfASinglePattern() {
+		Assert.assertEquals(AnalysisProfile.FAST, AnalysisProfile.select(Arrays.asList(FAST_PATTERN), AnalysisProfile.PRECISE));
+		Assert.assertEquals(AnalysisProfile.BALANCED, AnalysisProfile.select(Arrays.asList(BALANCED_PATTERN), AnalysisProfile.PRECISE));
+		Assert.assertEquals(AnalysisProfile.PRECISE, AnalysisProfile.select(Arrays.asList(PRECISE_PATTERN), AnalysisProfile.PRECISE));
+	}
+
+	/**
+	 * The expected bug instances of the tests were written for the precise
+	 * profile. No bug pattern should require a cheaper profile before its
+	 * tests pass with that profile (see {@link AnalysisProfileMode}).
+	 */
+	@Test
+	public void shouldSelectThePreciseProfileForTheBugPatterns() {
+		for (BugPattern bugPattern : BugPatterns.getAllBugPatterns()) {
+			Assert.assertEquals(bugPattern.getName(), AnalysisProfile.PRECISE, AnalysisProfile.select(Arrays.asList(bugPattern), AnalysisProfile.PRECISE));
+		}
+	}
+
+	@Test
+	public void shouldSelectTheMostPreciseRequiredProfile() {
+		Assert.assertEquals(AnalysisProfile.FAST, AnalysisProfile.select(Arrays.asList(FAST_PATTERN, FAST_PATTERN), AnalysisProfile.PRECISE));
+		Assert.assertEquals(AnalysisProfile.BALANCED, AnalysisProfile.select(Arrays.asList(FAST_PATTERN, BALANCED_PATTERN), AnalysisProfile.PRECISE));
+		Assert.assertEquals(AnalysisProfile.PRECISE, AnalysisProfile.select(Arrays.asList(FAST_PATTERN, PRECISE_PATTERN, BALANCED_PATTERN), AnalysisProfile.PRECISE));
+	}
+
+	@Test
+	public void shouldNotExceedTheBudget() {
+		Assert.assertEquals(AnalysisProfile.FAST, AnalysisProfile.select(BugPatterns.getAllBugPatterns(), AnalysisProfile.FAST));
+		Assert.assertEquals(AnalysisProfile.BALANCED, AnalysisProfile.select(Arrays.asList(PRECISE_PATTERN), AnalysisProfile.BALANCED));
+		Assert.assertEquals(AnalysisProfile.FAST, AnalysisProfile.select(Arrays.asList(BALANCED_PATTERN), AnalysisProfile.FAST));
+	}
+
+	@Test
+	public void shouldSelectTheFastProfileForNoPatterns() {
+		Assert.assertEquals(AnalysisProfile.FAST, AnalysisProfile.select(Collections.<BugPattern> emptyList(), AnalysisProfile.PRECISE));
+	}
+
+	@Test
+	public void shouldFindProfilesByCaseInsensitiveNames() {
+		Assert.assertEquals(AnalysisProfile.FAST, AnalysisProfile.fromName("fast"));
+		Assert.assertEquals(AnalysisProfile.BALANCED, AnalysisProfile.fromName("Balanced"));
+		Assert.assertEquals(AnalysisProfile.PRECISE, AnalysisProfile.fromName("PRECISE"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnknownProfileNames() {
+		AnalysisProfile.fromName("exhaustive");
+	}
+
+	@Test
+	public void shouldNameProfilesInLowerCase() {
+		for (AnalysisProfile analysisProfile : AnalysisProfile.values()) {
+			Assert.assertEquals(analysisProfile, AnalysisProfile.fromName(analysisProfile.toString()));
+			Assert.assertEquals(analysisProfile.name().toLowerCase(), analysisProfile.toString());
+		}
+	}
+
+}
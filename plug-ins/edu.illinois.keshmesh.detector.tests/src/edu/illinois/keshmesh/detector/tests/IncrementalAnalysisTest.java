@@ -0,0 +1,189 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.illinois.keshmesh.detector.Main;
+import edu.illinois.keshmesh.detector.bugs.BugInstance;
+import edu.illinois.keshmesh.detector.bugs.BugInstances;
+import edu.illinois.keshmesh.detector.bugs.BugPatterns;
+import edu.illinois.keshmesh.detector.cache.AnalysisResultsCache;
+import edu.illinois.keshmesh.util.Modes;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+
+/**
+ * Checks that an incremental analysis of a changed project finds the same bug
+ * instances as a full analysis of the project.
+ * 
+ * The tests start from test 15 of VNA00J, in which the anonymous classes of A
+ * call a method of B with unprotected accesses, C is an independent thread
+ * with an unprotected access and Z accesses a field of X, which is not thread
+ * safe. The first analysis is a full analysis
+ * that gets cached. Then, the tests change the project and analyze it again
+ * both incrementally and fully.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+@SuppressWarnings("restriction")
+public class IncrementalAnalysisTest {
+
+	private static final String FIXTURE = TestSetupHelper.join("test-files", "VNA00J", "15");
+
+	private static final String[] INPUT_FILE_NAMES = new String[] { "A.java", "B.java", "C.java", "X.java", "Z.java" };
+
+	private IJavaProject javaProject;
+
+	private IPackageFragment packageP;
+
+	private final Map<String, ICompilationUnit> compilationUnits = new HashMap<String, ICompilationUnit>();
+
+	private File cacheDirectory;
+
+	private boolean wasInIncrementalMode;
+
+	@Before
+	public void setup() throws Exception {
+		javaProject = TestSetupHelper.createAndInitializeProject("Incremental-VNA00J-15");
+		IPackageFragmentRoot fragmentRoot = JavaProjectHelper.addSourceContainer(javaProject, AbstractTestCase.CONTAINER);
+		packageP = fragmentRoot.createPackageFragment(AbstractTestCase.PACKAGE_NAME, true, null);
+		for (String inputFileName : INPUT_FILE_NAMES) {
+			compilationUnits.put(inputFileName, TestSetupHelper.createCU(packageP, inputFileName, getFileContents("in", inputFileName)));
+		}
+		cacheDirectory = File.createTempFile("keshmesh-cache", "");
+		Assert.assertTrue(cacheDirectory.delete());
+
+		wasInIncrementalMode = Modes.isInIncrementalMode();
+		Modes.setInTestMode(true);
+		Modes.setInIncrementalMode(true);
+		Modes.setForcedAnalysisProfile(AnalysisProfile.PRECISE);
+		BugPatterns.enableBugPatterns(BugPatterns.VNA00J);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Modes.setInIncrementalMode(wasInIncrementalMode);
+		File[] cacheEntries = cacheDirectory.listFiles();
+		if (cacheEntries != null) {
+			for (File cacheEntry : cacheEntries) {
+				cacheEntry.delete();
+			}
+		}
+		cacheDirectory.delete();
+		JavaProjectHelper.performDummySearch();
+		JavaProjectHelper.delete(javaProject);
+	}
+
+	private static String getFileContents(String folderName, String inputFileName) throws Exception {
+		File inputFile = Activator.getDefault().getFileInPlugin(new Path(TestSetupHelper.join(FIXTURE, folderName, inputFileName)));
+		return TestSetupHelper.format(TestSetupHelper.getFileContent(inputFile.getAbsolutePath()));
+	}
+
+	private void build() throws CoreException {
+		javaProject.getProject().build(IncrementalProjectBuilder.FULL_BUILD, null);
+	}
+
+	private BugInstances analyzeAndCache() throws Exception {
+		build();
+		return Main.initAndPerformAnalysis(javaProject, new AnalysisResultsCache(cacheDirectory));
+	}
+
+	private BugInstances analyzeFully() throws Exception {
+		return Main.initAndPerformAnalysis(javaProject, null);
+	}
+
+	private static boolean hasBugInstanceInClass(BugInstances bugInstances, String className) {
+		for (BugInstance bugInstance : bugInstances) {
+			if (className.equals(bugInstance.getBugPosition().getFullyQualifiedClassName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void assertSameBugInstances(BugInstances expectedBugInstances, BugInstances actualBugInstances) {
+		Assert.assertEquals(expectedBugInstances.toString(), expectedBugInstances.size(), actualBugInstances.size());
+		for (BugInstance expectedBugInstance : expectedBugInstances) {
+			Assert.assertNotNull("Missing " + expectedBugInstance, actualBugInstances.portableFind(expectedBugInstance));
+		}
+	}
+
+	private void analyzeInitialProject() throws Exception {
+		BugInstances initialBugInstances = analyzeAndCache();
+		Assert.assertTrue(hasBugInstanceInClass(initialBugInstances, "p.A"));
+		Assert.assertTrue(hasBugInstanceInClass(initialBugInstances, "p.B"));
+		Assert.assertTrue(hasBugInstanceInClass(initialBugInstances, "p.C"));
+		Assert.assertFalse(hasBugInstanceInClass(initialBugInstances, "p.Z"));
+	}
+
+	private void changeCompilationUnit(String inputFileName) throws Exception {
+		ICompilationUnit compilationUnit = compilationUnits.get(inputFileName);
+		compilationUnit.getBuffer().setContents(getFileContents("changed", inputFileName));
+		compilationUnit.save(null, true);
+	}
+
+	/**
+	 * Protecting the accesses in B removes the reports in B and in its callers
+	 * in A, although A itself has not changed. The report in C gets carried
+	 * over.
+	 */
+	@Test
+	public void shouldUpdateTheReportsInTheCallersOfAChangedClass() throws Exception {
+		analyzeInitialProject();
+		changeCompilationUnit("B.java");
+
+		BugInstances incrementalBugInstances = analyzeAndCache();
+		BugInstances fullBugInstances = analyzeFully();
+		assertSameBugInstances(fullBugInstances, incrementalBugInstances);
+		Assert.assertFalse(hasBugInstanceInClass(incrementalBugInstances, "p.A"));
+		Assert.assertFalse(hasBugInstanceInClass(incrementalBugInstances, "p.B"));
+		Assert.assertTrue(hasBugInstanceInClass(incrementalBugInstances, "p.C"));
+	}
+
+	@Test
+	public void shouldDropTheReportsInARemovedClass() throws Exception {
+		analyzeInitialProject();
+		compilationUnits.get("C.java").delete(true, null);
+
+		BugInstances incrementalBugInstances = analyzeAndCache();
+		BugInstances fullBugInstances = analyzeFully();
+		assertSameBugInstances(fullBugInstances, incrementalBugInstances);
+		Assert.assertTrue(hasBugInstanceInClass(incrementalBugInstances, "p.A"));
+		Assert.assertFalse(hasBugInstanceInClass(incrementalBugInstances, "p.C"));
+	}
+
+	/**
+	 * Making X thread safe makes the access to the field of X in Z unsafe,
+	 * although Z does not call any method of X.
+	 */
+	@Test
+	public void shouldReanalyzeAllClassesWhenTheThreadSafeClassesChange() throws Exception {
+		analyzeInitialProject();
+		changeCompilationUnit("X.java");
+
+		BugInstances incrementalBugInstances = analyzeAndCache();
+		BugInstances fullBugInstances = analyzeFully();
+		assertSameBugInstances(fullBugInstances, incrementalBugInstances);
+		Assert.assertTrue(hasBugInstanceInClass(incrementalBugInstances, "p.Z"));
+	}
+
+}
@@ -0,0 +1,128 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IMethod;
+
+import edu.illinois.keshmesh.detector.Main;
+import edu.illinois.keshmesh.util.Modes;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+import edu.illinois.keshmesh.walaconfig.EclipseProjectAnalysisEngine;
+import edu.illinois.keshmesh.walaconfig.KObjectSensitiveContextSelector;
+
+/**
+ * Builds the call graph of a small program with a limit on the number of
+ * contexts per method and checks which methods
+ * {@link KObjectSensitiveContextSelector} demotes.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+@SuppressWarnings("restriction")
+public class KObjectSensitiveContextSelectorTest {
+
+	private static final int MAX_CONTEXTS_PER_METHOD = 2;
+
+	private IJavaProject javaProject;
+
+	private int previousMaxContextsPerMethod;
+
+	private AnalysisProfile previousForcedAnalysisProfile;
+
+	@Before
+	public void setup() throws Exception {
+		previousMaxContextsPerMethod = Modes.getMaxContextsPerMethod();
+		previousForcedAnalysisProfile = Modes.getForcedAnalysisProfile();
+		javaProject = TestSetupHelper.createAndInitializeProject("KObjectSensitiveContextSelector");
+		IPackageFragmentRoot fragmentRoot = JavaProjectHelper.addSourceContainer(javaProject, AbstractTestCase.CONTAINER);
+		IPackageFragment packageP = fragmentRoot.createPackageFragment(AbstractTestCase.PACKAGE_NAME, true, null);
+		File inputFile = Activator.getDefault().getFileInPlugin(new Path(TestSetupHelper.join("test-files", "KObjectSensitiveContextSelector", "in", "A.java")));
+		TestSetupHelper.createCU(packageP, "A.java", TestSetupHelper.format(TestSetupHelper.getFileContent(inputFile.getAbsolutePath())));
+		javaProject.getProject().build(IncrementalProjectBuilder.FULL_BUILD, null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Modes.setMaxContextsPerMethod(previousMaxContextsPerMethod);
+		Modes.setForcedAnalysisProfile(previousForcedAnalysisProfile);
+		JavaProjectHelper.performDummySearch();
+		JavaProjectHelper.delete(javaProject);
+	}
+
+	private EclipseProjectAnalysisEngine buildCallGraph(int maxContextsPerMethod) throws Exception {
+		Modes.setForcedAnalysisProfile(AnalysisProfile.PRECISE);
+		Modes.setMaxContextsPerMethod(maxContextsPerMethod);
+		EclipseProjectAnalysisEngine engine = new EclipseProjectAnalysisEngine(javaProject);
+		engine.setExclusionsFile(Main.getExclusionsFileName());
+		engine.buildDefaultCallGraph();
+		return engine;
+	}
+
+	private static Map<String, Integer> getDemotedMethodSignatures(EclipseProjectAnalysisEngine engine) {
+		Map<String, Integer> demotedMethodSignatures = new HashMap<String, Integer>();
+		for (Map.Entry<IMethod, Integer> demotedMethod : engine.getDemotedMethods().entrySet()) {
+			demotedMethodSignatures.put(demotedMethod.getKey().getSignature(), demotedMethod.getValue());
+		}
+		return demotedMethodSignatures;
+	}
+
+	private static Set<String> getMethodSignaturesOfImmutableReceivers(EclipseProjectAnalysisEngine engine) {
+		Set<String> methodSignatures = new HashSet<String>();
+		for (IMethod method : engine.getMethodsOfImmutableReceivers()) {
+			methodSignatures.add(method.getSignature());
+		}
+		return methodSignatures;
+	}
+
+	/**
+	 * The third receiver of a method exceeds the limit of two contexts. So,
+	 * the method gets demoted from K=2 to K=1. The third context is the only
+	 * context of the method at K=1, which does not exceed the limit again.
+	 */
+	@Test
+	public void shouldDemoteTheMethodsWithTooManyContexts() throws Exception {
+		Map<String, Integer> expectedDemotedMethodSignatures = new HashMap<String, Integer>();
+		expectedDemotedMethodSignatures.put("p.Counter.<init>()V", 1);
+		expectedDemotedMethodSignatures.put("p.Counter.increment()V", 1);
+		Assert.assertEquals(expectedDemotedMethodSignatures, getDemotedMethodSignatures(buildCallGraph(MAX_CONTEXTS_PER_METHOD)));
+	}
+
+	@Test
+	public void shouldUseTypeContextsForImmutableReceivers() throws Exception {
+		Set<String> methodSignaturesOfImmutableReceivers = getMethodSignaturesOfImmutableReceivers(buildCallGraph(MAX_CONTEXTS_PER_METHOD));
+		Assert.assertTrue(methodSignaturesOfImmutableReceivers.toString(), methodSignaturesOfImmutableReceivers.contains("p.Point.getX()I"));
+		Assert.assertFalse(methodSignaturesOfImmutableReceivers.toString(), methodSignaturesOfImmutableReceivers.contains("p.Counter.get()I"));
+	}
+
+	/**
+	 * Both fallbacks only apply if the number of contexts per method is
+	 * limited.
+	 */
+	@Test
+	public void shouldNotAdaptTheContextsWithoutALimit() throws Exception {
+		EclipseProjectAnalysisEngine engine = buildCallGraph(KObjectSensitiveContextSelector.UNLIMITED_CONTEXTS);
+		Assert.assertTrue(engine.getDemotedMethods().isEmpty());
+		Assert.assertTrue(engine.getMethodsOfImmutableReceivers().isEmpty());
+	}
+
+}
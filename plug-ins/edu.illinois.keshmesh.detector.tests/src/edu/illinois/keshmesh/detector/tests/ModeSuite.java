@@ -0,0 +1,117 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.Suite;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+
+/**
+ * Runs the existing fixture tests of some bug patterns again with some modes
+ * of Keshmesh changed (see {@link edu.illinois.keshmesh.util.Modes}). For
+ * example:
+ * 
+ * <pre>
+ * &#064;RunWith(ModeSuite.class)
+ * &#064;ModeSuite.FixturesOf(VNA00JTests.class)
+ * public class VNA00JFieldGranularModeTests implements ModeSuite.Mode {
+ *     ...
+ * }
+ * </pre>
+ * 
+ * The suite runs the concrete test classes nested in the classes given by
+ * {@link FixturesOf}. It creates an instance of the annotated class, which
+ * has to implement {@link Mode}, to enter the mode before the first test and
+ * to restore the previous mode after the last test.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class ModeSuite extends Suite {
+
+	public interface Mode {
+
+		void enter();
+
+		void exit();
+
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	public @interface FixturesOf {
+
+		/**
+		 * The classes that nest the test classes of the fixtures, e.g.
+		 * VNA00JTests.
+		 */
+		Class<?>[] value();
+
+	}
+
+	private final Mode mode;
+
+	public ModeSuite(Class<?> klass, RunnerBuilder builder) throws InitializationError {
+		super(builder, klass, getTestClasses(klass));
+		if (!Mode.class.isAssignableFrom(klass)) {
+			throw new InitializationError(klass.getName() + " does not implement " + Mode.class.getName() + ".");
+		}
+		try {
+			mode = (Mode) klass.newInstance();
+		} catch (InstantiationException e) {
+			throw new InitializationError(e);
+		} catch (IllegalAccessException e) {
+			throw new InitializationError(e);
+		}
+	}
+
+	private static Class<?>[] getTestClasses(Class<?> klass) throws InitializationError {
+		FixturesOf fixturesOf = klass.getAnnotation(FixturesOf.class);
+		if (fixturesOf == null) {
+			throw new InitializationError(klass.getName() + " is not annotated with " + FixturesOf.class.getName() + ".");
+		}
+		List<Class<?>> testClasses = new ArrayList<Class<?>>();
+		for (Class<?> fixturesClass : fixturesOf.value()) {
+			Class<?>[] nestedClasses = fixturesClass.getClasses();
+			// Class#getClasses() does not specify an order. So, we sort the test classes to run them in the same order every time.
+			Arrays.sort(nestedClasses, new Comparator<Class<?>>() {
+
+				@Override
+				public int compare(Class<?> class1, Class<?> class2) {
+					return class1.getName().compareTo(class2.getName());
+				}
+
+			});
+			for (Class<?> nestedClass : nestedClasses) {
+				if (AbstractTestCase.class.isAssignableFrom(nestedClass) && !Modifier.isAbstract(nestedClass.getModifiers())) {
+					testClasses.add(nestedClass);
+				}
+			}
+		}
+		return testClasses.toArray(new Class<?>[testClasses.size()]);
+	}
+
+	@Override
+	public void run(RunNotifier notifier) {
+		mode.enter();
+		try {
+			super.run(notifier);
+		} finally {
+			mode.exit();
+		}
+	}
+
+}
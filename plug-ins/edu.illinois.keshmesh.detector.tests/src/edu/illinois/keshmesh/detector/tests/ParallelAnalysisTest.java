@@ -0,0 +1,119 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.illinois.keshmesh.detector.Main;
+import edu.illinois.keshmesh.detector.bugs.BugInstance;
+import edu.illinois.keshmesh.detector.bugs.BugInstances;
+import edu.illinois.keshmesh.detector.bugs.BugPattern;
+import edu.illinois.keshmesh.detector.bugs.BugPatterns;
+import edu.illinois.keshmesh.util.Modes;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+
+/**
+ * Checks that running the detectors of all bug patterns in parallel mode
+ * finds the same bug instances as running them one after another, and that
+ * repeated parallel runs agree with each other.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+@SuppressWarnings("restriction")
+public class ParallelAnalysisTest {
+
+	private static final int NUMBER_OF_PARALLEL_RUNS = 3;
+
+	private IJavaProject javaProject;
+
+	private boolean wasInParallelMode;
+
+	private List<BugPattern> previouslyEnabledBugPatterns;
+
+	@Before
+	public void setup() throws Exception {
+		wasInParallelMode = Modes.isInParallelMode();
+		previouslyEnabledBugPatterns = BugPatterns.getEnabledBugPatterns();
+		Modes.setInTestMode(true);
+		Modes.setForcedAnalysisProfile(AnalysisProfile.PRECISE);
+		BugPatterns.enableAllBugPatterns();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Modes.setInParallelMode(wasInParallelMode);
+		BugPatterns.disableAllBugPatterns();
+		BugPatterns.enableBugPatterns(previouslyEnabledBugPatterns.toArray(new BugPattern[previouslyEnabledBugPatterns.size()]));
+		if (javaProject != null) {
+			JavaProjectHelper.performDummySearch();
+			JavaProjectHelper.delete(javaProject);
+		}
+	}
+
+	private void setUpProject(String bugPatternName, String testNumber, String... inputFileNames) throws Exception {
+		javaProject = TestSetupHelper.createAndInitializeProject("Parallel-" + bugPatternName + "-" + testNumber);
+		IPackageFragmentRoot fragmentRoot = JavaProjectHelper.addSourceContainer(javaProject, AbstractTestCase.CONTAINER);
+		IPackageFragment packageP = fragmentRoot.createPackageFragment(AbstractTestCase.PACKAGE_NAME, true, null);
+		for (String inputFileName : inputFileNames) {
+			File inputFile = Activator.getDefault().getFileInPlugin(new Path(TestSetupHelper.join("test-files", bugPatternName, testNumber, "in", inputFileName)));
+			TestSetupHelper.createCU(packageP, inputFileName, TestSetupHelper.format(TestSetupHelper.getFileContent(inputFile.getAbsolutePath())));
+		}
+		javaProject.getProject().build(IncrementalProjectBuilder.FULL_BUILD, null);
+	}
+
+	private BugInstances analyze(boolean inParallelMode) throws Exception {
+		Modes.setInParallelMode(inParallelMode);
+		return Main.initAndPerformAnalysis(javaProject, null);
+	}
+
+	private static void assertSameBugInstances(BugInstances expectedBugInstances, BugInstances actualBugInstances) {
+		Assert.assertEquals(expectedBugInstances.toString(), expectedBugInstances.size(), actualBugInstances.size());
+		for (BugInstance expectedBugInstance : expectedBugInstances) {
+			boolean found = false;
+			for (BugInstance actualBugInstance : actualBugInstances) {
+				if (expectedBugInstance.equals(actualBugInstance)) {
+					found = true;
+					break;
+				}
+			}
+			Assert.assertTrue("Missing " + expectedBugInstance, found);
+		}
+	}
+
+	private void assertSameResultsInParallelMode() throws Exception {
+		BugInstances serialBugInstances = analyze(false);
+		Assert.assertTrue(serialBugInstances.size() > 0);
+		for (int i = 0; i < NUMBER_OF_PARALLEL_RUNS; i++) {
+			assertSameBugInstances(serialBugInstances, analyze(true));
+		}
+	}
+
+	@Test
+	public void shouldFindTheSameBugInstancesInASingleClass() throws Exception {
+		setUpProject("LCK06J", "01", "A.java");
+		assertSameResultsInParallelMode();
+	}
+
+	@Test
+	public void shouldFindTheSameBugInstancesInMultipleClasses() throws Exception {
+		setUpProject("VNA00J", "15", "A.java", "B.java", "C.java", "X.java", "Z.java");
+		assertSameResultsInParallelMode();
+	}
+
+}
@@ -0,0 +1,244 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.ibm.wala.dataflow.graph.AbstractMeetOperator;
+import com.ibm.wala.dataflow.graph.BitVectorFramework;
+import com.ibm.wala.dataflow.graph.BitVectorIdentity;
+import com.ibm.wala.dataflow.graph.BitVectorKillAll;
+import com.ibm.wala.dataflow.graph.BitVectorSolver;
+import com.ibm.wala.dataflow.graph.BitVectorUnion;
+import com.ibm.wala.dataflow.graph.BitVectorUnionVector;
+import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.fixpoint.BitVectorVariable;
+import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+
+import edu.illinois.keshmesh.detector.util.SCCBitVectorSolver;
+import edu.illinois.keshmesh.detector.util.StronglyConnectedComponents;
+
+/**
+ * Checks {@link SCCBitVectorSolver} against WALA's generic BitVectorSolver on
+ * small graphs with cycles. The detector tests of LCK06J and VNA00J check the
+ * two solvers against each other on the call graphs of their test files.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class SCCBitVectorSolverTest {
+
+	private static final int NUMBER_OF_THREADS = 4;
+
+	/**
+	 * Every node generates the bit of its own number. The edges whose source
+	 * and destination numbers are both divisible by three kill all bits, and
+	 * the other edges pass the bits on.
+	 */
+	private static class TransferFunctions implements ITransferFunctionProvider<Integer, BitVectorVariable> {
+
+		@Override
+		public AbstractMeetOperator<BitVectorVariable> getMeetOperator() {
+			return BitVectorUnion.instance();
+		}
+
+		@Override
+		public boolean hasEdgeTransferFunctions() {
+			return true;
+		}
+
+		@Override
+		public UnaryOperator<BitVectorVariable> getEdgeTransferFunction(Integer src, Integer dst) {
+			if (src % 3 == 0 && dst % 3 == 0) {
+				return BitVectorKillAll.instance();
+			}
+			return BitVectorIdentity.instance();
+		}
+
+		@Override
+		public boolean hasNodeTransferFunctions() {
+			return true;
+		}
+
+		@Override
+		public UnaryOperator<BitVectorVariable> getNodeTransferFunction(Integer node) {
+			return new BitVectorUnionVector(makeSeed(node));
+		}
+
+	}
+
+	private static BitVector makeSeed(Integer node) {
+		BitVector seed = new BitVector();
+		seed.set(node);
+		return seed;
+	}
+
+	private static BitVectorVariable makeSeedVariable(Integer node) {
+		BitVectorVariable nodeBitVectorVariable = new BitVectorVariable();
+		nodeBitVectorVariable.addAll(makeSeed(node));
+		return nodeBitVectorVariable;
+	}
+
+	private static SCCBitVectorSolver<Integer> solveBySCCs(NumberedGraph<Integer> graph, int numberOfThreads) {
+		SCCBitVectorSolver<Integer> solver = new SCCBitVectorSolver<Integer>(graph, new TransferFunctions()) {
+			@Override
+			protected BitVectorVariable makeNodeVariable(Integer node, boolean IN) {
+				return makeSeedVariable(node);
+			}
+		};
+		solver.solve(numberOfThreads);
+		return solver;
+	}
+
+	private static BitVectorSolver<Integer> solveByWorkList(NumberedGraph<Integer> graph) throws CancelException {
+		OrdinalSetMapping<Integer> latticeValues = MutableMapping.make();
+		BitVectorFramework<Integer, Integer> bitVectorFramework = new BitVectorFramework<Integer, Integer>(graph, new TransferFunctions(), latticeValues);
+		BitVectorSolver<Integer> solver = new BitVectorSolver<Integer>(bitVectorFramework) {
+			@Override
+			protected BitVectorVariable makeNodeVariable(Integer node, boolean IN) {
+				return makeSeedVariable(node);
+			}
+		};
+		solver.solve(null);
+		return solver;
+	}
+
+	private static NumberedGraph<Integer> makeGraph(int numberOfNodes, int[][] edges) {
+		NumberedGraph<Integer> graph = SlowSparseNumberedGraph.make();
+		for (int node = 0; node < numberOfNodes; node++) {
+			graph.addNode(node);
+		}
+		for (int[] edge : edges) {
+			graph.addEdge(edge[0], edge[1]);
+		}
+		return graph;
+	}
+
+	/**
+	 * 0 -> 1 -> 2 -> 3 -> 1, 3 -> 4 -> 5 -> 4, 2 -> 6 and 7 is isolated.
+	 */
+	private static NumberedGraph<Integer> makeCyclicGraph() {
+		return makeGraph(8, new int[][] { { 0, 1 }, { 1, 2 }, { 2, 3 }, { 3, 1 }, { 3, 4 }, { 4, 5 }, { 5, 4 }, { 2, 6 } });
+	}
+
+	private static NumberedGraph<Integer> makeRandomGraph(long seed) {
+		int numberOfNodes = 300;
+		Random random = new Random(seed);
+		int[][] edges = new int[2 * numberOfNodes][];
+		for (int i = 0; i < edges.length; i++) {
+			edges[i] = new int[] { random.nextInt(numberOfNodes), random.nextInt(numberOfNodes) };
+		}
+		return makeGraph(numberOfNodes, edges);
+	}
+
+	private static Set<Integer> toSet(BitVectorVariable bitVectorVariable) {
+		Set<Integer> set = new HashSet<Integer>();
+		IntSet value = bitVectorVariable.getValue();
+		if (value != null) {
+			IntIterator intIterator = value.intIterator();
+			while (intIterator.hasNext()) {
+				set.add(intIterator.next());
+			}
+		}
+		return set;
+	}
+
+	private static void assertSameSolutions(NumberedGraph<Integer> graph, SCCBitVectorSolver<Integer> expectedSolver, SCCBitVectorSolver<Integer> actualSolver) {
+		for (Integer node : graph) {
+			Assert.assertEquals("In of " + node, toSet(expectedSolver.getIn(node)), toSet(actualSolver.getIn(node)));
+			Assert.assertEquals("Out of " + node, toSet(expectedSolver.getOut(node)), toSet(actualSolver.getOut(node)));
+		}
+	}
+
+	private static void assertSameSolutions(NumberedGraph<Integer> graph, BitVectorSolver<Integer> expectedSolver, SCCBitVectorSolver<Integer> actualSolver) {
+		for (Integer node : graph) {
+			Assert.assertEquals("In of " + node, toSet(expectedSolver.getIn(node)), toSet(actualSolver.getIn(node)));
+			Assert.assertEquals("Out of " + node, toSet(expectedSolver.getOut(node)), toSet(actualSolver.getOut(node)));
+		}
+	}
+
+	@Test
+	public void shouldGroupTheNodesOfEachCycle() {
+		NumberedGraph<Integer> graph = makeCyclicGraph();
+		StronglyConnectedComponents<Integer> components = new StronglyConnectedComponents<Integer>(graph);
+		Assert.assertEquals(5, components.getNumberOfComponents());
+		Assert.assertEquals(components.getComponent(1), components.getComponent(2));
+		Assert.assertEquals(components.getComponent(1), components.getComponent(3));
+		Assert.assertEquals(components.getComponent(4), components.getComponent(5));
+		Assert.assertFalse(components.getComponent(1) == components.getComponent(4));
+		Assert.assertEquals(3, components.getMemberNumbers(components.getComponent(1)).length);
+		Assert.assertEquals(1, components.getMemberNumbers(components.getComponent(7)).length);
+	}
+
+	@Test
+	public void shouldNumberTheComponentsInReverseTopologicalOrder() {
+		NumberedGraph<Integer> graph = makeRandomGraph(0);
+		StronglyConnectedComponents<Integer> components = new StronglyConnectedComponents<Integer>(graph);
+		for (Integer node : graph) {
+			Iterator<? extends Integer> successors = graph.getSuccNodes(node);
+			while (successors.hasNext()) {
+				Integer successor = successors.next();
+				Assert.assertTrue(node + " -> " + successor, components.getComponent(successor) <= components.getComponent(node));
+			}
+		}
+	}
+
+	@Test
+	public void shouldPropagateAroundCycles() {
+		NumberedGraph<Integer> graph = makeCyclicGraph();
+		SCCBitVectorSolver<Integer> solver = solveBySCCs(graph, 1);
+		Set<Integer> expectedOutOfCycle = new HashSet<Integer>();
+		for (int node = 0; node <= 3; node++) {
+			expectedOutOfCycle.add(node);
+		}
+		Assert.assertEquals(expectedOutOfCycle, toSet(solver.getOut(1)));
+		Assert.assertEquals(expectedOutOfCycle, toSet(solver.getOut(3)));
+		expectedOutOfCycle.add(6);
+		Assert.assertEquals(expectedOutOfCycle, toSet(solver.getOut(6)));
+		Assert.assertEquals(makeSingletonSet(7), toSet(solver.getOut(7)));
+	}
+
+	@Test
+	public void shouldReachTheSameSolutionAsTheWorkListSolver() throws CancelException {
+		NumberedGraph<Integer> graph = makeCyclicGraph();
+		assertSameSolutions(graph, solveByWorkList(graph), solveBySCCs(graph, 1));
+		for (long seed = 0; seed < 5; seed++) {
+			NumberedGraph<Integer> randomGraph = makeRandomGraph(seed);
+			assertSameSolutions(randomGraph, solveByWorkList(randomGraph), solveBySCCs(randomGraph, 1));
+		}
+	}
+
+	@Test
+	public void shouldReachTheSameSolutionInParallel() {
+		NumberedGraph<Integer> graph = makeCyclicGraph();
+		assertSameSolutions(graph, solveBySCCs(graph, 1), solveBySCCs(graph, NUMBER_OF_THREADS));
+		for (long seed = 0; seed < 5; seed++) {
+			NumberedGraph<Integer> randomGraph = makeRandomGraph(seed);
+			assertSameSolutions(randomGraph, solveBySCCs(randomGraph, 1), solveBySCCs(randomGraph, NUMBER_OF_THREADS));
+		}
+	}
+
+	private static Set<Integer> makeSingletonSet(int element) {
+		Set<Integer> set = new HashSet<Integer>();
+		set.add(element);
+		return set;
+	}
+
+}
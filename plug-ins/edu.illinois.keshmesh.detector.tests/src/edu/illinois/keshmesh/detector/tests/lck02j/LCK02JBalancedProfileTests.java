@@ -0,0 +1,29 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests.lck02j;
+
+import org.junit.runner.RunWith;
+
+import edu.illinois.keshmesh.detector.tests.AnalysisProfileMode;
+import edu.illinois.keshmesh.detector.tests.ModeSuite;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+
+/**
+ * Runs the tests of {@link LCK02JTests} with the balanced profile. The detector
+ * needs the receiver of every call to getClass() to tell the class objects
+ * apart. So, LCK02J could require the balanced profile once these tests pass.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+@RunWith(ModeSuite.class)
+@ModeSuite.FixturesOf(LCK02JTests.class)
+public class LCK02JBalancedProfileTests extends AnalysisProfileMode {
+
+	public LCK02JBalancedProfileTests() {
+		super(AnalysisProfile.BALANCED);
+	}
+
+}
@@ -0,0 +1,29 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests.lck03j;
+
+import org.junit.runner.RunWith;
+
+import edu.illinois.keshmesh.detector.tests.AnalysisProfileMode;
+import edu.illinois.keshmesh.detector.tests.ModeSuite;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+
+/**
+ * Runs the tests of {@link LCK03JTests} with the fast profile. The detector only
+ * looks at the concrete types of the locks. So, LCK03J could require the fast
+ * profile once these tests pass.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+@RunWith(ModeSuite.class)
+@ModeSuite.FixturesOf(LCK03JTests.class)
+public class LCK03JFastProfileTests extends AnalysisProfileMode {
+
+	public LCK03JFastProfileTests() {
+		super(AnalysisProfile.FAST);
+	}
+
+}
@@ -0,0 +1,38 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests.lck06j;
+
+import org.junit.runner.RunWith;
+
+import edu.illinois.keshmesh.detector.tests.ModeSuite;
+import edu.illinois.keshmesh.util.Modes;
+
+/**
+ * Runs the tests of {@link LCK06JTests} in summary mode, in which the
+ * detector propagates the static fields that the methods modify instead of
+ * the instructions that modify them. The detector should report the same
+ * fields in both modes.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+@RunWith(ModeSuite.class)
+@ModeSuite.FixturesOf(LCK06JTests.class)
+public class LCK06JSummaryModeTests implements ModeSuite.Mode {
+
+	private boolean wasInSummaryMode;
+
+	@Override
+	public void enter() {
+		wasInSummaryMode = Modes.isInSummaryMode();
+		Modes.setInSummaryMode(true);
+	}
+
+	@Override
+	public void exit() {
+		Modes.setInSummaryMode(wasInSummaryMode);
+	}
+
+}
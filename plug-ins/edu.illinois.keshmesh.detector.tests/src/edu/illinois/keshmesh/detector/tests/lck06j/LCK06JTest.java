@@ -50,6 +50,17 @@ abstract public class LCK06JTest extends AbstractTestCase {
 		assertEquals(getExpectedStaticFields(), actualIntermediateResults.getStaticFields());
 	}
 
+	/**
+	 * The detector does not solve the data flow problem if the test file has
+	 * no unsafe synchronized blocks or methods.
+	 */
+	@Test
+	public void solversShouldReachTheSameSolution() {
+		LCK06JIntermediateResults actualIntermediateResults = (LCK06JIntermediateResults) getIntermediateResults();
+		assumeNotNull(actualIntermediateResults.getNodesWithDifferentSolutions());
+		assertEquals("[]", actualIntermediateResults.getNodesWithDifferentSolutions());
+	}
+
 	@Override
 	protected BugInstanceCreator getBugInstanceCreator() {
 		return new LCK06JBugInstanceCreator();
@@ -0,0 +1,38 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.tests.vna00j;
+
+import org.junit.runner.RunWith;
+
+import edu.illinois.keshmesh.detector.tests.ModeSuite;
+import edu.illinois.keshmesh.util.Modes;
+
+/**
+ * Runs the tests of {@link VNA00JTests} in field granular mode, in which the
+ * detector propagates fields instead of instructions and recovers the
+ * reported instructions afterwards. The detector should report the same
+ * instructions in both modes.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+@RunWith(ModeSuite.class)
+@ModeSuite.FixturesOf(VNA00JTests.class)
+public class VNA00JFieldGranularModeTests implements ModeSuite.Mode {
+
+	private boolean wasInFieldGranularMode;
+
+	@Override
+	public void enter() {
+		wasInFieldGranularMode = Modes.isInFieldGranularMode();
+		Modes.setInFieldGranularMode(true);
+	}
+
+	@Override
+	public void exit() {
+		Modes.setInFieldGranularMode(wasInFieldGranularMode);
+	}
+
+}
@@ -60,6 +60,12 @@ abstract public class VNA00JTest extends AbstractTestCase {
 		assertEquals(getExpectedUnprotectedInstructionsThatMayAccessUnsafelySharedFields(), actualIntermediateResults.getUnprotectedInstructionsThatMayAccessUnsafelySharedFields());
 	}
 
+	@Test
+	public void solversShouldReachTheSameSolution() {
+		VNA00JIntermediateResults actualIntermediateResults = (VNA00JIntermediateResults) getIntermediateResults();
+		assertEquals("[]", actualIntermediateResults.getNodesWithDifferentSolutions());
+	}
+
 	@Override
 	protected BugInstanceCreator getBugInstanceCreator() {
 		return new VNA00JBugInstanceCreator();
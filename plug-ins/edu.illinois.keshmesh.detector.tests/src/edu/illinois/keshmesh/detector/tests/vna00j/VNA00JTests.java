@@ -216,4 +216,13 @@ public class VNA00JTests {
 
 	}
 
+	public static class VNA00JTest15 extends VNA00JTest {
+
+		@Before
+		public void setup() throws Exception {
+			setupProjectAndAnalyze("15", "A.java", "B.java", "C.java", "X.java", "Z.java");
+		}
+
+	}
+
 }
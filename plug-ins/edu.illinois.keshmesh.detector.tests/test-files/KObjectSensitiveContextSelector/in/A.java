@@ -0,0 +1,65 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package p;
+
+import edu.illinois.keshmesh.annotations.EntryPoint;
+
+/**
+ * 
+ * The constructor and the increment method of Counter get called on three
+ * receivers, while the get method of Counter gets called on a single
+ * receiver. Point is an immutable value type.
+ * 
+ */
+public class A {
+
+	@EntryPoint
+	public static void main(String args[]) {
+		Counter c1 = new Counter();
+		Counter c2 = new Counter();
+		Counter c3 = new Counter();
+		c1.increment();
+		c2.increment();
+		c3.increment();
+		c1.get();
+		Point p = new Point(1, 2);
+		p.getX();
+	}
+
+}
+
+class Counter {
+
+	private int count;
+
+	void increment() {
+		count++;
+	}
+
+	int get() {
+		return count;
+	}
+
+}
+
+class Point {
+
+	private final int x;
+
+	private final int y;
+
+	Point(int x, int y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	int getX() {
+		return x;
+	}
+
+	int getY() {
+		return y;
+	}
+
+}
@@ -0,0 +1,16 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package p;
+
+public class B {
+
+	private int counter = 0;
+
+	void m() {
+		synchronized (new Object()) {
+			counter++;
+		}
+	}
+
+}
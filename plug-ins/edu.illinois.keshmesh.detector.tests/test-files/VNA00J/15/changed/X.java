@@ -0,0 +1,13 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package p;
+
+public class X implements Runnable {
+
+	int value;
+
+	public void run() {
+	}
+
+}
@@ -0,0 +1,41 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package p;
+
+import edu.illinois.keshmesh.annotations.EntryPoint;
+
+/**
+ * 
+ * This test is the same as test 04 except that the method with the unprotected
+ * accesses is in a different class than its callers. The incremental analysis
+ * test changes class B and removes class C, and checks that the reports in the
+ * anonymous classes of A get updated. It also makes class X thread safe, which
+ * makes the access to the field of X in class Z unsafe.
+ * 
+ */
+public class A {
+
+	@EntryPoint
+	public static void main(String args[]) {
+		final B b = new B();
+		Thread t1 = new Thread() {
+
+			@Override
+			public void run() {
+				/* [VNA00J,01 */b.m();/* ] */
+			}
+		};
+		Thread t2 = new Thread() {
+
+			@Override
+			public void run() {
+				/* [VNA00J,02 */b.m();/* ] */
+			}
+		};
+		t1.start();
+		t2.start();
+		Z.touch(new X());
+	}
+
+}
@@ -0,0 +1,23 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package p;
+
+public class B {
+
+	private int counter = 0;
+
+	void m() {
+		/* [VNA00J,03 */counter++;/* ] */
+		/* [VNA00J,04 */increment();/* ] */
+		synchronized (new Object()) {
+			counter++;
+			increment();
+		}
+	}
+
+	void increment() {
+		/* [VNA00J,05 */counter++;/* ] */
+	}
+
+}
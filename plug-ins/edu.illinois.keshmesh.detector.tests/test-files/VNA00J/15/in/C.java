@@ -0,0 +1,20 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package p;
+
+import edu.illinois.keshmesh.annotations.EntryPoint;
+
+public class C extends Thread {
+
+	private static int counter = 0;
+
+	@EntryPoint
+	@Override
+	public void run() {
+		/* [VNA00J,06 */if (counter == 0) { /* ] */
+			System.out.println("counter is 0.");
+		}
+	}
+
+}
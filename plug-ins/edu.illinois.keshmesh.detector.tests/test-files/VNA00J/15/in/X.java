@@ -0,0 +1,10 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package p;
+
+public class X {
+
+	int value;
+
+}
@@ -0,0 +1,18 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package p;
+
+/**
+ * 
+ * Z accesses a field of X but does not call any method of X. So, Z is not
+ * affected by changes to X in terms of the call graph.
+ * 
+ */
+public class Z {
+
+	static void touch(X x) {
+		x.value++;
+	}
+
+}
@@ -3,11 +3,26 @@
  */
 package edu.illinois.keshmesh.detector;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
 import com.ibm.wala.analysis.pointers.BasicHeapGraph;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.GraphInverter;
+
+import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+import edu.illinois.keshmesh.detector.util.CodePositionResolver;
 
 /**
  * 
@@ -17,18 +32,287 @@ import com.ibm.wala.ipa.cha.IClassHierarchy;
  */
 public class BasicAnalysisData {
 
+	/**
+	 * The artifacts that BasicAnalysisData builds on demand. Each detector
+	 * declares the artifacts that it needs (see
+	 * {@link BugPatternDetector#getRequiredArtifacts()}). So, an analysis only
+	 * pays for the artifacts of the enabled detectors.
+	 */
+	public enum Artifact {
+		HEAP_GRAPH, REVERSE_CALL_GRAPH, LOCK_SITES, STATIC_FIELD_INDEX, TYPE_PREDICATES
+	}
+
+	/*
+	 * The lazily built artifacts, which are shared by the restricted views of
+	 * the same analysis data (see restrictTo(ChangeImpact)). The accesses to
+	 * them are synchronized on this object.
+	 */
+	private static class Artifacts {
+
+		/*
+		 * Strong references to the structures that WALA caches softly. See
+		 * prepareForConcurrentAccess().
+		 */
+		private Collection<Object> retainedStructures = null;
+
+		private BasicHeapGraph basicHeapGraph = null;
+
+		private NumberedGraph<CGNode> reverseCallGraph = null;
+
+		private LockSites lockSites = null;
+
+		private StaticFieldIndex staticFieldIndex = null;
+
+		private ClassNumbering classNumbering = null;
+
+		private TypePredicates typePredicates = null;
+
+		/*
+		 * Indexed by the numbers of the CGNodes. The accesses to this array
+		 * are synchronized on the array rather than on this object. So,
+		 * looking up the instructions of a CGNode does not wait for an
+		 * artifact that is being built.
+		 */
+		private final NodeInstructions[] nodeInstructions;
+
+		Artifacts(CallGraph callGraph) {
+			nodeInstructions = new NodeInstructions[callGraph.getMaxNumber() + 1];
+		}
+
+	}
+
 	public final IClassHierarchy classHierarchy;
 	public final CallGraph callGraph;
 	public final PointerAnalysis pointerAnalysis;
 	public final HeapModel heapModel;
-	public final BasicHeapGraph basicHeapGraph;
+	public final CodePositionResolver codePositionResolver;
+	public final ChangeImpact changeImpact;
+	public final PointsToSets pointsToSets;
+
+	private final Artifacts artifacts;
 
-	public BasicAnalysisData(IClassHierarchy classHierarchy, CallGraph callGraph, PointerAnalysis pointerAnalysis, HeapModel heapModel, BasicHeapGraph basicHeapGraph) {
+	public BasicAnalysisData(IClassHierarchy classHierarchy, CallGraph callGraph, PointerAnalysis pointerAnalysis, HeapModel heapModel, CodePositionResolver codePositionResolver) {
+		this(classHierarchy, callGraph, pointerAnalysis, heapModel, codePositionResolver, ChangeImpact.EVERYTHING);
+	}
+
+	public BasicAnalysisData(IClassHierarchy classHierarchy, CallGraph callGraph, PointerAnalysis pointerAnalysis, HeapModel heapModel, CodePositionResolver codePositionResolver, ChangeImpact changeImpact) {
+		this(classHierarchy, callGraph, pointerAnalysis, heapModel, codePositionResolver, changeImpact, new PointsToSets(pointerAnalysis), new Artifacts(callGraph));
+	}
+
+	private BasicAnalysisData(IClassHierarchy classHierarchy, CallGraph callGraph, PointerAnalysis pointerAnalysis, HeapModel heapModel, CodePositionResolver codePositionResolver, ChangeImpact changeImpact,
+			PointsToSets pointsToSets, Artifacts artifacts) {
 		this.classHierarchy = classHierarchy;
 		this.callGraph = callGraph;
 		this.pointerAnalysis = pointerAnalysis;
 		this.heapModel = heapModel;
-		this.basicHeapGraph = basicHeapGraph;
+		this.codePositionResolver = codePositionResolver;
+		this.changeImpact = changeImpact;
+		this.pointsToSets = pointsToSets;
+		this.artifacts = artifacts;
+	}
+
+	/**
+	 * @return the same analysis data for an incremental analysis that only
+	 *         reanalyzes the classes impacted by the given change.
+	 */
+	public BasicAnalysisData restrictTo(ChangeImpact changeImpact) {
+		return new BasicAnalysisData(classHierarchy, callGraph, pointerAnalysis, heapModel, codePositionResolver, changeImpact, pointsToSets, artifacts);
+	}
+
+	/**
+	 * @return the instructions of the given CGNode indexed by their kinds,
+	 *         which get indexed on first use and are shared by all detectors.
+	 */
+	public NodeInstructions getNodeInstructions(CGNode cgNode) {
+		int cgNodeNumber = callGraph.getNumber(cgNode);
+		NodeInstructions[] nodeInstructionsArray = artifacts.nodeInstructions;
+		synchronized (nodeInstructionsArray) {
+			NodeInstructions nodeInstructions = nodeInstructionsArray[cgNodeNumber];
+			if (nodeInstructions != null) {
+				return nodeInstructions;
+			}
+		}
+		// Index the instructions outside the lock so that detectors running in parallel do not wait for each other.
+		NodeInstructions nodeInstructions = NodeInstructions.create(cgNode);
+		synchronized (nodeInstructionsArray) {
+			if (nodeInstructionsArray[cgNodeNumber] == null) {
+				nodeInstructionsArray[cgNodeNumber] = nodeInstructions;
+			}
+			return nodeInstructionsArray[cgNodeNumber];
+		}
+	}
+
+	/**
+	 * @return the heap graph of the pointer analysis, which gets built on
+	 *         first use and is shared by all detectors.
+	 */
+	public BasicHeapGraph getBasicHeapGraph() {
+		synchronized (artifacts) {
+			if (artifacts.basicHeapGraph == null) {
+				artifacts.basicHeapGraph = new BasicHeapGraph(pointerAnalysis, callGraph);
+				if (artifacts.retainedStructures != null) {
+					initializeSuccessors(artifacts.basicHeapGraph);
+				}
+			}
+			return artifacts.basicHeapGraph;
+		}
+	}
+
+	/**
+	 * @return the call graph with its edges reversed, which the
+	 *         interprocedural data flow problems propagate the facts of the
+	 *         callees to their callers along. It gets built on first use and is
+	 *         shared by all detectors.
+	 */
+	public NumberedGraph<CGNode> getReverseCallGraph() {
+		synchronized (artifacts) {
+			if (artifacts.reverseCallGraph == null) {
+				artifacts.reverseCallGraph = GraphInverter.invert(callGraph);
+			}
+			return artifacts.reverseCallGraph;
+		}
+	}
+
+	/**
+	 * @return the table of the lock sites of the program, which gets built on
+	 *         first use and is shared by all detectors.
+	 */
+	public LockSites getLockSites() {
+		synchronized (artifacts) {
+			if (artifacts.lockSites == null) {
+				artifacts.lockSites = new LockSites(this);
+			}
+			return artifacts.lockSites;
+		}
+	}
+
+	/**
+	 * @return the index of the static fields of the classes outside the JDK,
+	 *         which gets built on first use and is shared by all detectors.
+	 */
+	public StaticFieldIndex getStaticFieldIndex() {
+		synchronized (artifacts) {
+			if (artifacts.staticFieldIndex == null) {
+				Set<IField> staticFields = new HashSet<IField>();
+				for (IClass klass : classHierarchy) {
+					if (!AnalysisUtils.isJDKClass(klass)) {
+						staticFields.addAll(klass.getAllStaticFields());
+					}
+				}
+				artifacts.staticFieldIndex = new StaticFieldIndex(this, staticFields);
+			}
+			return artifacts.staticFieldIndex;
+		}
+	}
+
+	/**
+	 * @return the numbering of the classes of the class hierarchy, which gets
+	 *         built on first use and is shared by all detectors.
+	 */
+	public ClassNumbering getClassNumbering() {
+		synchronized (artifacts) {
+			if (artifacts.classNumbering == null) {
+				artifacts.classNumbering = new ClassNumbering(classHierarchy);
+			}
+			return artifacts.classNumbering;
+		}
+	}
+
+	/**
+	 * @return the classification of the classes and the instances that the
+	 *         lock related detectors look up, which gets built on first use
+	 *         and is shared by all detectors.
+	 */
+	public TypePredicates getTypePredicates() {
+		synchronized (artifacts) {
+			if (artifacts.typePredicates == null) {
+				artifacts.typePredicates = new TypePredicates(this);
+			}
+			return artifacts.typePredicates;
+		}
+	}
+
+	/**
+	 * Builds the given artifacts now instead of on their first use.
+	 */
+	public void build(Collection<Artifact> requiredArtifacts) {
+		for (Artifact artifact : requiredArtifacts) {
+			switch (artifact) {
+			case HEAP_GRAPH:
+				getBasicHeapGraph();
+				break;
+			case REVERSE_CALL_GRAPH:
+				getReverseCallGraph();
+				break;
+			case LOCK_SITES:
+				getLockSites();
+				break;
+			case STATIC_FIELD_INDEX:
+				getStaticFieldIndex();
+				break;
+			case TYPE_PREDICATES:
+				getTypePredicates();
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Makes this object safe to be shared by detectors that run concurrently.
+	 * 
+	 * The detectors only read the analysis data. But, some of the structures
+	 * that they read are built lazily by WALA:
+	 * 
+	 * (1) CGNode.getIR() and CGNode.getDU() build the IR and DefUse of a node
+	 * on first use and put them into the SSACache of the call graph, which
+	 * holds them through soft references and is not meant to be updated by
+	 * several threads. This method builds the IR and DefUse of every node up
+	 * front and keeps strong references to them. So, the cache never evicts
+	 * them and only serves lookups while the detectors run.
+	 * 
+	 * (2) BasicHeapGraph computes the predecessors of its nodes eagerly. But,
+	 * it computes the successors of a node from the points-to sets every time
+	 * it gets queried and does not cache them. So, concurrent queries for
+	 * successors only read the pointer analysis. Still, the successors of every
+	 * node get walked once, when both this method and getBasicHeapGraph() have
+	 * been called, so that any state that the pointer analysis initializes on
+	 * first use gets initialized on a single thread.
+	 * 
+	 * The remaining structures that the detectors use (the class hierarchy,
+	 * the call graph and the points-to sets) are not modified after the call
+	 * graph is built. The cache of {@link PointsToSets} supports concurrent
+	 * access.
+	 */
+	public void prepareForConcurrentAccess() {
+		synchronized (artifacts) {
+			if (artifacts.retainedStructures != null) {
+				return;
+			}
+			Collection<Object> structures = new ArrayList<Object>();
+			Iterator<CGNode> cgNodesIterator = callGraph.iterator();
+			while (cgNodesIterator.hasNext()) {
+				CGNode cgNode = cgNodesIterator.next();
+				IR ir = cgNode.getIR();
+				if (ir != null) {
+					structures.add(ir);
+					structures.add(cgNode.getDU());
+				}
+			}
+			if (artifacts.basicHeapGraph != null) {
+				initializeSuccessors(artifacts.basicHeapGraph);
+			}
+			artifacts.retainedStructures = structures;
+		}
+	}
+
+	private static void initializeSuccessors(BasicHeapGraph basicHeapGraph) {
+		Iterator<Object> heapGraphNodesIterator = basicHeapGraph.iterator();
+		while (heapGraphNodesIterator.hasNext()) {
+			Iterator<Object> succNodesIterator = basicHeapGraph.getSuccNodes(heapGraphNodesIterator.next());
+			while (succNodesIterator.hasNext()) {
+				succNodesIterator.next();
+			}
+		}
 	}
 
 }
@@ -3,17 +3,32 @@
  */
 package edu.illinois.keshmesh.detector;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-
-import org.eclipse.jdt.core.IJavaProject;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
+import com.ibm.wala.dataflow.graph.BitVectorFramework;
+import com.ibm.wala.dataflow.graph.BitVectorSolver;
+import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
 
+import edu.illinois.keshmesh.detector.BasicAnalysisData.Artifact;
+import edu.illinois.keshmesh.detector.bugs.BugInstance;
 import edu.illinois.keshmesh.detector.bugs.BugInstances;
+import edu.illinois.keshmesh.detector.bugs.CodePosition;
+import edu.illinois.keshmesh.detector.util.SCCBitVectorSolver;
+import edu.illinois.keshmesh.util.Modes;
 
 /**
  * 
@@ -23,8 +38,6 @@ import edu.illinois.keshmesh.detector.bugs.BugInstances;
  */
 public abstract class BugPatternDetector {
 
-	protected IJavaProject javaProject = null;
-
 	protected BasicAnalysisData basicAnalysisData = null;
 
 	/**
@@ -34,7 +47,7 @@ public abstract class BugPatternDetector {
 	 * @param basicAnalysisData
 	 * @return
 	 */
-	public abstract BugInstances performAnalysis(IJavaProject javaProject, BasicAnalysisData basicAnalysisData);
+	public abstract BugInstances performAnalysis(BasicAnalysisData basicAnalysisData);
 
 	/**
 	 * Tests can perform more rigorous checks if the detectors collect more fine
@@ -45,17 +58,138 @@ public abstract class BugPatternDetector {
 	 */
 	public abstract IntermediateResults getIntermediateResults();
 
+	/**
+	 * The artifacts of {@link BasicAnalysisData} get built on their first use.
+	 * But, before the detectors run concurrently, the artifacts that they
+	 * declare get built up front on a single thread.
+	 * 
+	 * @return the artifacts of {@link BasicAnalysisData} that this detector
+	 *         uses.
+	 */
+	public Set<Artifact> getRequiredArtifacts() {
+		return EnumSet.noneOf(Artifact.class);
+	}
+
+	/**
+	 * In an incremental analysis, a detector only reports the bugs of the
+	 * classes that it reanalyzes and the bugs that an earlier analysis has
+	 * reported in other classes get carried over (see {@link ChangeImpact}).
+	 * 
+	 * By default, a detector reanalyzes the changed classes. Detectors whose
+	 * reports in a method depend on the callees of the method should reanalyze
+	 * the affected classes instead.
+	 * 
+	 * @param enclosingClassName
+	 *            the fully qualified name of an enclosing class as in
+	 *            {@link CodePosition#getFullyQualifiedClassName()}.
+	 */
+	protected boolean isReanalyzed(String enclosingClassName) {
+		return basicAnalysisData.changeImpact.isChangedClass(enclosingClassName);
+	}
+
+	protected boolean isReanalyzed(CGNode cgNode) {
+		return basicAnalysisData.changeImpact.isEverything() || isReanalyzed(ChangeImpact.getEnclosingClassName(cgNode));
+	}
+
+	/**
+	 * @return true if the given bug instance of an earlier analysis is still
+	 *         valid after the analysis performed by this detector.
+	 */
+	public boolean shouldCarryOver(BugInstance previousBugInstance) {
+		return !isReanalyzed(previousBugInstance.getBugPosition().getFullyQualifiedClassName());
+	}
+
+	/**
+	 * The state gets cached along with the bug instances. The next incremental
+	 * analysis passes it back to the detector (see
+	 * {@link ChangeImpact#getPreviousDetectorState(edu.illinois.keshmesh.detector.bugs.BugPattern)}).
+	 * 
+	 * @return the global facts of the last analysis of this detector that an
+	 *         incremental analysis has to compare to decide what to
+	 *         reanalyze, or null if the results of the detector do not depend
+	 *         on such facts.
+	 */
+	public Serializable getIncrementalState() {
+		return null;
+	}
+
 	protected PointerKey getPointerForValueNumber(CGNode cgNode, int valueNumber) {
 		return basicAnalysisData.heapModel.getPointerKeyForLocal(cgNode, valueNumber);
 	}
 
+	protected CodePosition getPosition(InstructionInfo instructionInfo) {
+		return basicAnalysisData.codePositionResolver.getPosition(instructionInfo);
+	}
+
+	/**
+	 * @return the numbers of the instances that the given pointer may point to
+	 *         (see {@link PointsToSets}).
+	 */
+	protected IntSet getPointedInstanceNumbers(PointerKey pointer) {
+		return basicAnalysisData.pointsToSets.getPointedInstanceNumbers(pointer);
+	}
+
 	protected Collection<InstanceKey> getPointedInstances(PointerKey pointer) {
-		Collection<InstanceKey> pointedInstances = new HashSet<InstanceKey>();
-		Iterator<InstanceKey> pointedInstancesIterator = basicAnalysisData.pointerAnalysis.getPointsToSet(pointer).iterator();
-		while (pointedInstancesIterator.hasNext()) {
-			pointedInstances.add(pointedInstancesIterator.next());
+		IntSet pointedInstanceNumbers = getPointedInstanceNumbers(pointer);
+		Collection<InstanceKey> pointedInstances = new ArrayList<InstanceKey>(pointedInstanceNumbers.size());
+		IntIterator pointedInstanceNumbersIterator = pointedInstanceNumbers.intIterator();
+		while (pointedInstanceNumbersIterator.hasNext()) {
+			pointedInstances.add(basicAnalysisData.pointsToSets.getInstance(pointedInstanceNumbersIterator.next()));
 		}
 		return pointedInstances;
 	}
 
+	/**
+	 * In parallel mode, the interprocedural data flow problems of the
+	 * detectors get solved on all available processors (see
+	 * {@link SCCBitVectorSolver}).
+	 */
+	protected static int getNumberOfSolverThreads() {
+		return Modes.isInParallelMode() ? Runtime.getRuntime().availableProcessors() : 1;
+	}
+
+	/**
+	 * Solves the given data flow problem again with WALA's generic
+	 * BitVectorSolver, which the detectors used before
+	 * {@link SCCBitVectorSolver}. The tests use it to check that both solvers
+	 * reach the same fixed point.
+	 * 
+	 * @return the nodes whose in or out values differ between the given
+	 *         solver and the generic solver.
+	 */
+	protected static <L> Collection<CGNode> getNodesWithDifferentSolutions(NumberedGraph<CGNode> graph, ITransferFunctionProvider<CGNode, BitVectorVariable> transferFunctions,
+			OrdinalSetMapping<L> latticeValues, final Map<CGNode, CGNodeInfo> cgNodeInfoMap, SCCBitVectorSolver<CGNode> sccBitVectorSolver) {
+		BitVectorFramework<CGNode, L> bitVectorFramework = new BitVectorFramework<CGNode, L>(graph, transferFunctions, latticeValues);
+		BitVectorSolver<CGNode> bitVectorSolver = new BitVectorSolver<CGNode>(bitVectorFramework) {
+			@Override
+			protected BitVectorVariable makeNodeVariable(CGNode cgNode, boolean IN) {
+				BitVectorVariable nodeBitVectorVariable = new BitVectorVariable();
+				nodeBitVectorVariable.addAll(cgNodeInfoMap.get(cgNode).getBitVector());
+				return nodeBitVectorVariable;
+			}
+		};
+		try {
+			bitVectorSolver.solve(null);
+		} catch (CancelException ex) {
+			throw new RuntimeException("Bitvector solver was stopped", ex);
+		}
+		Collection<CGNode> nodesWithDifferentSolutions = new ArrayList<CGNode>();
+		for (CGNode cgNode : graph) {
+			if (!haveSameValues(bitVectorSolver.getIn(cgNode), sccBitVectorSolver.getIn(cgNode)) || !haveSameValues(bitVectorSolver.getOut(cgNode), sccBitVectorSolver.getOut(cgNode))) {
+				nodesWithDifferentSolutions.add(cgNode);
+			}
+		}
+		return nodesWithDifferentSolutions;
+	}
+
+	// The value of an empty BitVectorVariable may be either null or an empty set.
+	private static boolean haveSameValues(BitVectorVariable bitVectorVariable1, BitVectorVariable bitVectorVariable2) {
+		IntSet value1 = bitVectorVariable1.getValue();
+		IntSet value2 = bitVectorVariable2.getValue();
+		if (value1 == null || value1.isEmpty()) {
+			return value2 == null || value2.isEmpty();
+		}
+		return value2 != null && value1.sameValue(value2);
+	}
+
 }
@@ -0,0 +1,158 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * A table of the call sites of the call graph that satisfy a given condition,
+ * e.g. the call sites that propagate the results of a callee to its caller.
+ * 
+ * The condition gets evaluated once for every invoke instruction of every
+ * CGNode, in a pre-pass that may run on several threads. After that, the
+ * transfer functions of the interprocedural data flow problems and the
+ * reporting phases of the detectors look up the flag of a call site instead
+ * of evaluating the condition every time they visit the call site.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class CallSiteFlags {
+
+	private static final BitVector NO_FLAGS = new BitVector();
+
+	private final BasicAnalysisData basicAnalysisData;
+
+	private final CallGraph callGraph;
+
+	// Indexed by the numbers of the CGNodes. Each bit vector is indexed by the instruction indexes of the invoke instructions of the CGNode.
+	private final BitVector[] flags;
+
+	/**
+	 * @param callSiteFilter
+	 *            the condition of the call sites, which gets called only on
+	 *            invoke instructions.
+	 * @param numberOfThreads
+	 *            the number of threads that evaluate the condition. The
+	 *            condition must be safe to evaluate concurrently if there is
+	 *            more than one thread.
+	 */
+	public CallSiteFlags(BasicAnalysisData basicAnalysisData, final InstructionFilter callSiteFilter, int numberOfThreads) {
+		this.basicAnalysisData = basicAnalysisData;
+		this.callGraph = basicAnalysisData.callGraph;
+		this.flags = new BitVector[callGraph.getMaxNumber() + 1];
+		final List<CGNode> cgNodes = new ArrayList<CGNode>(callGraph.getNumberOfNodes());
+		Iterator<CGNode> cgNodesIterator = callGraph.iterator();
+		while (cgNodesIterator.hasNext()) {
+			cgNodes.add(cgNodesIterator.next());
+		}
+		if (numberOfThreads <= 1 || cgNodes.size() <= 1) {
+			computeFlags(cgNodes, callSiteFilter);
+			return;
+		}
+		basicAnalysisData.prepareForConcurrentAccess();
+		ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			int chunkSize = (cgNodes.size() + numberOfThreads - 1) / numberOfThreads;
+			for (int fromIndex = 0; fromIndex < cgNodes.size(); fromIndex += chunkSize) {
+				final List<CGNode> chunk = cgNodes.subList(fromIndex, Math.min(fromIndex + chunkSize, cgNodes.size()));
+				futures.add(executorService.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						computeFlags(chunk, callSiteFilter);
+						return null;
+					}
+
+				}));
+			}
+			for (Future<Void> future : futures) {
+				waitFor(future);
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static void waitFor(Future<Void> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Computing the flags of the call sites was interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private void computeFlags(List<CGNode> cgNodes, InstructionFilter callSiteFilter) {
+		for (CGNode cgNode : cgNodes) {
+			BitVector flagsOfNode = NO_FLAGS;
+			for (InstructionInfo invokeInstruction : basicAnalysisData.getNodeInstructions(cgNode).getInstructionInfos(NodeInstructions.Kind.INVOKE)) {
+				if (callSiteFilter.accept(invokeInstruction)) {
+					if (flagsOfNode == NO_FLAGS) {
+						flagsOfNode = new BitVector();
+					}
+					flagsOfNode.set(invokeInstruction.getInstructionIndex());
+				}
+			}
+			flags[callGraph.getNumber(cgNode)] = flagsOfNode;
+		}
+	}
+
+	/**
+	 * @return true if the given invoke instruction satisfies the condition of
+	 *         this table.
+	 */
+	public boolean isSet(InstructionInfo invokeInstruction) {
+		return isSet(invokeInstruction.getCGNode(), invokeInstruction.getInstructionIndex());
+	}
+
+	public boolean isSet(CGNode caller, int invokeInstructionIndex) {
+		BitVector flagsOfNode = flags[callGraph.getNumber(caller)];
+		return flagsOfNode != null && invokeInstructionIndex >= 0 && flagsOfNode.get(invokeInstructionIndex);
+	}
+
+	/**
+	 * @return the indexes of the invoke instructions of the caller that may
+	 *         call the callee.
+	 */
+	public IntSet getCallInstructionIndexes(CGNode caller, CGNode callee) {
+		IR callerIR = caller.getIR();
+		if (callerIR == null) {
+			return EmptyIntSet.instance;
+		}
+		MutableSparseIntSet callInstructionIndexes = MutableSparseIntSet.makeEmpty();
+		Iterator<CallSiteReference> callSitesIterator = callGraph.getPossibleSites(caller, callee);
+		while (callSitesIterator.hasNext()) {
+			callInstructionIndexes.addAll(callerIR.getCallInstructionIndices(callSitesIterator.next()));
+		}
+		return callInstructionIndexes;
+	}
+
+}
@@ -0,0 +1,193 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.types.TypeName;
+
+import edu.illinois.keshmesh.detector.bugs.BugPattern;
+import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+
+/**
+ * Describes the parts of the call graph that an incremental analysis has to
+ * analyze again after some classes have changed.
+ * 
+ * The detectors report bugs per enclosing class, i.e. the class that
+ * {@link edu.illinois.keshmesh.detector.bugs.CodePosition} refers to. So, an
+ * incremental analysis reanalyzes whole enclosing classes:
+ * 
+ * (1) The changed classes are the enclosing classes of the classes that have
+ * been added, removed or modified. The detectors whose reports in a method
+ * depend only on the method itself reanalyze the changed classes.
+ * 
+ * (2) The affected classes are the changed classes and the enclosing classes
+ * of the transitive callers of their methods. The detectors that propagate
+ * facts from callees to callers reanalyze the affected classes. To compute
+ * the facts of the methods of the affected classes, they need the local facts
+ * of these methods and of their transitive callees, i.e. the influencing
+ * nodes.
+ * 
+ * The fake root method calls all entry points. So, the transitive callers of
+ * a method do not include the callers of the fake root method.
+ * 
+ * The results of a detector may also depend on global facts that a change can
+ * alter without affecting the callers of the changed classes. A detector can
+ * record such facts (see {@link BugPatternDetector#getIncrementalState()}),
+ * compare them with the facts of the earlier analysis (see
+ * {@link #getPreviousDetectorState(BugPattern)}) and reanalyze everything if
+ * they differ.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class ChangeImpact {
+
+	/**
+	 * The impact of a full analysis, in which every class counts as changed.
+	 */
+	public static final ChangeImpact EVERYTHING = new ChangeImpact();
+
+	private final Set<String> changedClassNames;
+
+	private final Set<String> affectedClassNames;
+
+	private final Set<CGNode> influencingNodes;
+
+	private final Map<String, Serializable> previousDetectorStates;
+
+	private ChangeImpact() {
+		this.changedClassNames = null;
+		this.affectedClassNames = null;
+		this.influencingNodes = null;
+		this.previousDetectorStates = null;
+	}
+
+	/**
+	 * @param changedClassFileNames
+	 *            the names of the classes that have been added, removed or
+	 *            modified, in the format of class files, e.g. "a/b/C$1".
+	 * @param previousDetectorStates
+	 *            the states of the detectors after the earlier analysis,
+	 *            indexed by the names of their bug patterns.
+	 */
+	public ChangeImpact(CallGraph callGraph, Collection<String> changedClassFileNames, Map<String, Serializable> previousDetectorStates) {
+		this.previousDetectorStates = previousDetectorStates;
+		changedClassNames = new HashSet<String>();
+		for (String changedClassFileName : changedClassFileNames) {
+			changedClassNames.add(getEnclosingClassName(TypeName.string2TypeName("L" + changedClassFileName)));
+		}
+
+		Set<CGNode> affectedNodes = new HashSet<CGNode>();
+		LinkedList<CGNode> worklist = new LinkedList<CGNode>();
+		Iterator<CGNode> cgNodesIterator = callGraph.iterator();
+		while (cgNodesIterator.hasNext()) {
+			CGNode cgNode = cgNodesIterator.next();
+			if (changedClassNames.contains(getEnclosingClassName(cgNode))) {
+				affectedNodes.add(cgNode);
+				worklist.add(cgNode);
+			}
+		}
+		while (!worklist.isEmpty()) {
+			Iterator<CGNode> predNodesIterator = callGraph.getPredNodes(worklist.removeFirst());
+			while (predNodesIterator.hasNext()) {
+				CGNode predNode = predNodesIterator.next();
+				if (!(predNode.getMethod() instanceof SyntheticMethod) && affectedNodes.add(predNode)) {
+					worklist.add(predNode);
+				}
+			}
+		}
+		affectedClassNames = new HashSet<String>(changedClassNames);
+		for (CGNode affectedNode : affectedNodes) {
+			affectedClassNames.add(getEnclosingClassName(affectedNode));
+		}
+
+		influencingNodes = new HashSet<CGNode>();
+		cgNodesIterator = callGraph.iterator();
+		while (cgNodesIterator.hasNext()) {
+			CGNode cgNode = cgNodesIterator.next();
+			if (affectedClassNames.contains(getEnclosingClassName(cgNode))) {
+				influencingNodes.add(cgNode);
+				worklist.add(cgNode);
+			}
+		}
+		while (!worklist.isEmpty()) {
+			Iterator<CGNode> succNodesIterator = callGraph.getSuccNodes(worklist.removeFirst());
+			while (succNodesIterator.hasNext()) {
+				CGNode succNode = succNodesIterator.next();
+				if (influencingNodes.add(succNode)) {
+					worklist.add(succNode);
+				}
+			}
+		}
+	}
+
+	public boolean isEverything() {
+		return changedClassNames == null;
+	}
+
+	/**
+	 * @param enclosingClassName
+	 *            the fully qualified name of an enclosing class as returned by
+	 *            {@link AnalysisUtils#getEnclosingNonanonymousClassName(TypeName)}
+	 *            .
+	 */
+	public boolean isChangedClass(String enclosingClassName) {
+		return isEverything() || changedClassNames.contains(enclosingClassName);
+	}
+
+	public boolean isAffectedClass(String enclosingClassName) {
+		return isEverything() || affectedClassNames.contains(enclosingClassName);
+	}
+
+	/**
+	 * @return true if the facts of the affected classes may depend on the
+	 *         local facts of the given node.
+	 */
+	public boolean isInfluencing(CGNode cgNode) {
+		return isEverything() || influencingNodes.contains(cgNode);
+	}
+
+	/**
+	 * @return the state of the detector of the given bug pattern after the
+	 *         earlier analysis, or null if it is unknown.
+	 */
+	public Serializable getPreviousDetectorState(BugPattern bugPattern) {
+		if (previousDetectorStates == null) {
+			return null;
+		}
+		return previousDetectorStates.get(bugPattern.getName());
+	}
+
+	public static String getEnclosingClassName(CGNode cgNode) {
+		return getEnclosingClassName(cgNode.getMethod().getDeclaringClass().getName());
+	}
+
+	private static String getEnclosingClassName(TypeName typeName) {
+		// AnalysisUtils#getEnclosingNonanonymousClassName(TypeName) only supports the types of packages.
+		if (typeName.getPackage() == null) {
+			return typeName.toString();
+		}
+		return AnalysisUtils.getEnclosingNonanonymousClassName(typeName);
+	}
+
+	@Override
+	public String toString() {
+		if (isEverything()) {
+			return "ChangeImpact [everything]";
+		}
+		return "ChangeImpact [changedClasses=" + changedClassNames + ", affectedClasses=" + affectedClassNames + ", influencingNodes=" + influencingNodes.size() + "]";
+	}
+
+}
@@ -0,0 +1,85 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+
+/**
+ * Assigns dense numbers to the classes of the class hierarchy. So, the
+ * detectors can precompute the classification of the classes into bit
+ * vectors that are indexed by these numbers and look up the classification of
+ * a class with a single bit test.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class ClassNumbering {
+
+	private final OrdinalSetMapping<IClass> classes = MutableMapping.make();
+
+	public ClassNumbering(IClassHierarchy classHierarchy) {
+		for (IClass klass : classHierarchy) {
+			classes.add(klass);
+		}
+	}
+
+	/**
+	 * @return the number of the given class, or -1 if the class was not in
+	 *         the class hierarchy when the numbering got built, e.g. an array
+	 *         class that WALA creates on demand.
+	 */
+	public int getNumber(IClass klass) {
+		return classes.getMappedIndex(klass);
+	}
+
+	public IClass getClass(int number) {
+		return classes.getMappedObject(number);
+	}
+
+	public int getNumberOfClasses() {
+		return classes.getSize();
+	}
+
+	/**
+	 * @return true if the bit of the given class is set in the given bit
+	 *         vector, which is indexed by the numbers of the classes.
+	 */
+	public boolean contains(BitVector classesBitVector, IClass klass) {
+		int number = getNumber(klass);
+		return number >= 0 && classesBitVector.get(number);
+	}
+
+	/**
+	 * Sets the bit of the given class in the given bit vector.
+	 */
+	public void add(BitVector classesBitVector, IClass klass) {
+		int number = getNumber(klass);
+		if (number >= 0) {
+			classesBitVector.set(number);
+		}
+	}
+
+	/**
+	 * @return the classes whose bits are set in the given bit vector.
+	 */
+	public Collection<IClass> getClasses(BitVector classesBitVector) {
+		Collection<IClass> result = new ArrayList<IClass>();
+		IntIterator numbersIterator = new BitVectorIntSet(classesBitVector).intIterator();
+		while (numbersIterator.hasNext()) {
+			result.add(getClass(numbersIterator.next()));
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,254 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+
+import edu.illinois.keshmesh.detector.bugs.BugInstance;
+import edu.illinois.keshmesh.detector.bugs.BugInstances;
+import edu.illinois.keshmesh.detector.bugs.BugPattern;
+import edu.illinois.keshmesh.detector.bugs.BugPatterns;
+import edu.illinois.keshmesh.detector.bugs.CodePosition;
+import edu.illinois.keshmesh.detector.cache.AnalysisResultsCache;
+import edu.illinois.keshmesh.detector.cache.ScopeFingerprint;
+import edu.illinois.keshmesh.detector.exception.Exceptions.WALAInitializationException;
+import edu.illinois.keshmesh.detector.util.CodePositionResolver;
+import edu.illinois.keshmesh.detector.util.SourceRootsCodePositionResolver;
+import edu.illinois.keshmesh.util.Modes;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+import edu.illinois.keshmesh.walaconfig.ClasspathAnalysisEngine;
+import edu.illinois.keshmesh.walaconfig.KeshmeshAnalysisEngine;
+
+/**
+ * Runs Keshmesh from the command line on plain jars and class directories,
+ * without an Eclipse workspace. For example:
+ * 
+ * java edu.illinois.keshmesh.detector.HeadlessMain -classpath build/classes
+ * -libraries lib/a.jar:lib/b.jar -sourcepath src -patterns LCK01J,VNA00J
+ * -output keshmesh.txt
+ * 
+ * The output file has one line per bug instance. Each line consists of the
+ * name of the bug pattern, the path of the source file, the line number, the
+ * enclosing class and the fix information, separated by tabs. If the source
+ * file of a bug instance is not on the -sourcepath, its path is written as
+ * "-".
+ * 
+ * The -profile option sets the most expensive analysis profile that the call
+ * graph may get built with (see {@link AnalysisProfile}). The profile that
+ * gets used is logged and written to the first line of the output file, e.g.
+ * "#analysisProfile=fast". If the context selector lowered the sensitivity of
+ * some methods while the call graph was built (see
+ * KESHMESH_MAX_CONTEXTS_PER_METHOD in {@link Modes}), the following lines list
+ * them, e.g. "#demotedMethod=p.A.m()V\t1" for a method demoted to K=1 or
+ * "#immutableReceiverMethod=p.Point.getX()I" for a method called on an
+ * immutable value type. There are no such lines if the results come from the
+ * cache.
+ * 
+ * If the -cache option or the KESHMESH_CACHE_DIRECTORY environment variable
+ * is given, the analyzer reuses the results of an earlier run whose inputs
+ * have not changed (see {@link AnalysisResultsCache}). If the
+ * KESHMESH_INCREMENTAL_MODE environment variable is also set, it only
+ * reanalyzes the classes impacted by the changes since the earlier run.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class HeadlessMain {
+
+	private static final String USAGE = "Usage: HeadlessMain -classpath <entries> [-libraries <entries>] [-jdk <entries>] [-sourcepath <directories>] [-encoding <encoding>] [-patterns <names>] [-profile fast|balanced|precise] [-exclusions <file>] [-cache <directory>] -output <file>"; //$NON-NLS-1$
+
+	private static final String SEPARATOR = "\t"; //$NON-NLS-1$
+
+	private static final String MISSING_SOURCE_PATH = "-"; //$NON-NLS-1$
+
+	public static void main(String[] args) {
+		try {
+			System.exit(run(args));
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+	}
+
+	public static int run(String[] args) {
+		Map<String, String> options = parseOptions(args);
+		List<File> applicationEntries = toFiles(getRequiredOption(options, "-classpath"));
+		List<File> libraryEntries = toFiles(options.get("-libraries"));
+		List<File> jdkEntries = options.containsKey("-jdk") ? toFiles(options.get("-jdk")) : getDefaultJDKEntries();
+		List<File> sourceRoots = toFiles(options.get("-sourcepath"));
+		String encoding = options.containsKey("-encoding") ? options.get("-encoding") : System.getProperty("file.encoding");
+		File exclusionsFile = options.containsKey("-exclusions") ? new File(options.get("-exclusions")) : null;
+		File outputFile = new File(getRequiredOption(options, "-output"));
+		AnalysisResultsCache analysisResultsCache = options.containsKey("-cache") ? new AnalysisResultsCache(new File(options.get("-cache"))) : AnalysisResultsCache.fromEnvironment();
+		enableBugPatterns(options.get("-patterns"));
+		if (options.containsKey("-profile")) {
+			Modes.setAnalysisProfileBudget(AnalysisProfile.fromName(options.get("-profile")));
+		}
+
+		final ClasspathAnalysisEngine engine = new ClasspathAnalysisEngine(jdkEntries, libraryEntries, applicationEntries, exclusionsFile);
+		final CodePositionResolver codePositionResolver = new SourceRootsCodePositionResolver(sourceRoots, encoding);
+		Main.BasicAnalysisDataBuilder basicAnalysisDataBuilder = new Main.BasicAnalysisDataBuilder() {
+
+			@Override
+			public BasicAnalysisData build() throws WALAInitializationException {
+				try {
+					CallGraph callGraph = engine.buildDefaultCallGraph();
+					return Main.createBasicAnalysisData(engine.getClassHierarchy(), callGraph, engine.getPointerAnalysis(), codePositionResolver);
+				} catch (Exception e) {
+					throw new WALAInitializationException(e);
+				}
+			}
+
+		};
+		BugInstances bugInstances;
+		try {
+			if (analysisResultsCache == null) {
+				bugInstances = Main.performAnalysis(basicAnalysisDataBuilder.build());
+			} else {
+				ScopeFingerprint fingerprint = ScopeFingerprint.compute(engine, BugPatterns.getEnabledBugPatterns());
+				bugInstances = Main.performAnalysis(analysisResultsCache, fingerprint, codePositionResolver, basicAnalysisDataBuilder);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return 1;
+		}
+		try {
+			writeBugInstances(bugInstances, engine, outputFile, encoding);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 1;
+		}
+		return 0;
+	}
+
+	private static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new HashMap<String, String>();
+		for (int i = 0; i < args.length; i += 2) {
+			if (!args[i].startsWith("-") || i + 1 >= args.length) {
+				throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+			}
+			options.put(args[i], args[i + 1]);
+		}
+		return options;
+	}
+
+	private static String getRequiredOption(Map<String, String> options, String name) {
+		String value = options.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing option: " + name);
+		}
+		return value;
+	}
+
+	private static List<File> toFiles(String path) {
+		List<File> files = new ArrayList<File>();
+		if (path != null) {
+			for (String entry : path.split(File.pathSeparator)) {
+				if (entry.length() > 0) {
+					files.add(new File(entry));
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @return the jars of the JDK that runs this analyzer.
+	 */
+	private static List<File> getDefaultJDKEntries() {
+		List<File> jdkEntries = new ArrayList<File>();
+		for (File entry : toFiles(System.getProperty("sun.boot.class.path"))) {
+			if (entry.isFile()) {
+				jdkEntries.add(entry);
+			}
+		}
+		return jdkEntries;
+	}
+
+	private static void enableBugPatterns(String bugPatternNames) {
+		if (bugPatternNames == null) {
+			BugPatterns.enableAllBugPatterns();
+			return;
+		}
+		for (String bugPatternName : bugPatternNames.split(",")) {
+			BugPattern bugPattern = findBugPattern(bugPatternName.trim());
+			if (bugPattern == null) {
+				throw new IllegalArgumentException("Unknown bug pattern: " + bugPatternName);
+			}
+			BugPatterns.enableBugPatterns(bugPattern);
+		}
+	}
+
+	private static BugPattern findBugPattern(String bugPatternName) {
+		for (BugPattern bugPattern : BugPatterns.getAllBugPatterns()) {
+			if (bugPattern.getName().equals(bugPatternName)) {
+				return bugPattern;
+			}
+		}
+		return null;
+	}
+
+	private static void writeBugInstances(BugInstances bugInstances, ClasspathAnalysisEngine engine, File outputFile, String encoding) throws IOException {
+		// BugInstances does not support toArray(). So, we cannot pass it to the constructor of ArrayList.
+		List<BugInstance> sortedBugInstances = new ArrayList<BugInstance>();
+		for (BugInstance bugInstance : bugInstances) {
+			sortedBugInstances.add(bugInstance);
+		}
+		Collections.sort(sortedBugInstances, new Comparator<BugInstance>() {
+
+			@Override
+			public int compare(BugInstance bugInstance1, BugInstance bugInstance2) {
+				return toLine(bugInstance1).compareTo(toLine(bugInstance2));
+			}
+
+		});
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputFile), encoding));
+		try {
+			writer.println("#analysisProfile=" + KeshmeshAnalysisEngine.getAnalysisProfile()); //$NON-NLS-1$
+			for (String demotionLine : getDemotionLines(engine)) {
+				writer.println(demotionLine);
+			}
+			for (BugInstance bugInstance : sortedBugInstances) {
+				writer.println(toLine(bugInstance));
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static List<String> getDemotionLines(ClasspathAnalysisEngine engine) {
+		List<String> demotionLines = new ArrayList<String>();
+		for (Map.Entry<IMethod, Integer> demotedMethod : engine.getDemotedMethods().entrySet()) {
+			demotionLines.add("#demotedMethod=" + demotedMethod.getKey().getSignature() + SEPARATOR + demotedMethod.getValue()); //$NON-NLS-1$
+		}
+		for (IMethod method : engine.getMethodsOfImmutableReceivers()) {
+			demotionLines.add("#immutableReceiverMethod=" + method.getSignature()); //$NON-NLS-1$
+		}
+		Collections.sort(demotionLines);
+		return demotionLines;
+	}
+
+	private static String toLine(BugInstance bugInstance) {
+		CodePosition position = bugInstance.getBugPosition();
+		String sourcePath = position.getSourcePath() == null ? MISSING_SOURCE_PATH : position.getSourcePath().toOSString();
+		return bugInstance.getBugPattern().getName() + SEPARATOR + sourcePath + SEPARATOR + position.getFirstLine() + SEPARATOR
+				+ position.getFullyQualifiedClassName() + SEPARATOR + bugInstance.getFixInformation();
+	}
+
+}
@@ -3,23 +3,18 @@
  */
 package edu.illinois.keshmesh.detector;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-
-import org.eclipse.jdt.core.IJavaProject;
-
-import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.CGNode;
-import com.ibm.wala.ssa.ISSABasicBlock;
-import com.ibm.wala.ssa.SSACFG;
 import com.ibm.wala.ssa.SSAInstruction;
 
-import edu.illinois.keshmesh.detector.bugs.CodePosition;
 import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+import edu.illinois.keshmesh.detector.util.MonitorRegions;
 
 /**
+ * An instruction of a CGNode.
+ * 
+ * The InstructionInfos of a CGNode are flyweights that {@link NodeInstructions}
+ * creates once and shares. Two InstructionInfos are equal if they refer to the
+ * same instruction index of the same CGNode.
  * 
  * @author Mohsen Vakilian
  * @author Stas Negara
@@ -27,21 +22,14 @@ import edu.illinois.keshmesh.detector.util.AnalysisUtils;
  */
 public class InstructionInfo {
 
-	private final IJavaProject javaProject;
 	private final CGNode cgNode;
 	private final SSAInstruction ssaInstruction;
 	private final int instructionIndex;
 
-	public InstructionInfo(IJavaProject javaProject, CGNode cgNode, int instructionIndex) {
-		this.javaProject = javaProject;
+	InstructionInfo(CGNode cgNode, int instructionIndex, SSAInstruction ssaInstruction) {
 		this.cgNode = cgNode;
 		this.instructionIndex = instructionIndex;
-		this.ssaInstruction = cgNode.getIR().getInstructions()[instructionIndex];
-	}
-
-	public CodePosition getPosition() {
-		IMethod method = cgNode.getMethod();
-		return AnalysisUtils.getPosition(javaProject, method, instructionIndex);
+		this.ssaInstruction = ssaInstruction;
 	}
 
 	public CGNode getCGNode() {
@@ -63,79 +51,24 @@ public class InstructionInfo {
 		if (cgNode != that.cgNode) {
 			return false;
 		}
-		return that.getInsideInstructionIndexes().contains(instructionIndex);
+		return MonitorRegions.of(cgNode.getIR()).isInside(instructionIndex, that.instructionIndex);
 	}
 
-	private Collection<InstructionInfo> getMatchingMonitorExits() {
-		if (!(AnalysisUtils.isMonitorEnter(ssaInstruction))) {
-			throw new RuntimeException("Should not look matching monitor exits of an instruction that is not a monitor enter: " + this);
-		}
-		Collection<InstructionInfo> matchingMonitorExits = new HashSet<InstructionInfo>();
-		final int monitorEnterLockValueNumber = ssaInstruction.getUse(0);
-		final int monitorEnterLineNumber = getPosition().getFirstLine();
-		AnalysisUtils.collect(javaProject, matchingMonitorExits, cgNode, new InstructionFilter() {
-			@Override
-			public boolean accept(InstructionInfo instructionInfo) {
-				if (AnalysisUtils.isMonitorExit(instructionInfo.getInstruction())) {
-					if (instructionInfo.getInstruction().getUse(0) == monitorEnterLockValueNumber && instructionInfo.getPosition().getFirstLine() == monitorEnterLineNumber) {
-						return true;
-					}
-				}
-				return false;
-			}
-		});
-		return matchingMonitorExits;
-	}
-
-	private Collection<Integer> getInsideInstructionIndexes() {
-		Collection<Integer> matchingMonitorExitIndexes = getIndexes(getMatchingMonitorExits());
-		SSACFG controlFlowGraph = cgNode.getIR().getControlFlowGraph();
-		Collection<Integer> visitedInstructionIndexes = new HashSet<Integer>();
-		LinkedList<ISSABasicBlock> workList = new LinkedList<ISSABasicBlock>();
-		workList.add(controlFlowGraph.getBlockForInstruction(instructionIndex));
-		while (!workList.isEmpty()) {
-			ISSABasicBlock basicBlock = workList.poll();
-			Iterator<ISSABasicBlock> succNodesIterator = controlFlowGraph.getSuccNodes(basicBlock);
-			while (succNodesIterator.hasNext()) {
-				ISSABasicBlock succBasicBlock = succNodesIterator.next();
-				boolean visitedNewInstructions = visitBasicBlockInstructions(succBasicBlock, matchingMonitorExitIndexes, visitedInstructionIndexes);
-				if (visitedNewInstructions && !containsMonitorExit(succBasicBlock, matchingMonitorExitIndexes)) {
-					workList.add(succBasicBlock);
-				}
-			}
-		}
-		return visitedInstructionIndexes;
-	}
-
-	private boolean visitBasicBlockInstructions(ISSABasicBlock basicBlock, Collection<Integer> matchingMonitorExitIndexes, Collection<Integer> visitedInstructionIndexes) {
-		boolean visitedNewInstructions = false;
-		for (int instructionIndex = basicBlock.getFirstInstructionIndex(); instructionIndex <= basicBlock.getLastInstructionIndex(); instructionIndex++) {
-			if (matchingMonitorExitIndexes.contains(instructionIndex)) {
-				break;
-			}
-			if (!visitedInstructionIndexes.contains(instructionIndex)) {
-				visitedInstructionIndexes.add(instructionIndex);
-				visitedNewInstructions = true;
-			}
-		}
-		return visitedNewInstructions;
+	@Override
+	public int hashCode() {
+		return 31 * cgNode.getGraphNodeId() + instructionIndex;
 	}
 
-	private boolean containsMonitorExit(ISSABasicBlock basicBlock, Collection<Integer> matchingMonitorExitIndexes) {
-		for (int instructionIndex = basicBlock.getFirstInstructionIndex(); instructionIndex <= basicBlock.getLastInstructionIndex(); instructionIndex++) {
-			if (matchingMonitorExitIndexes.contains(instructionIndex)) {
-				return true;
-			}
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
 		}
-		return false;
-	}
-
-	private Collection<Integer> getIndexes(Collection<InstructionInfo> instructionInfos) {
-		Collection<Integer> instructionIndexes = new HashSet<Integer>();
-		for (InstructionInfo instructionInfo : instructionInfos) {
-			instructionIndexes.add(instructionInfo.instructionIndex);
+		if (!(obj instanceof InstructionInfo)) {
+			return false;
 		}
-		return instructionIndexes;
+		InstructionInfo that = (InstructionInfo) obj;
+		return cgNode == that.cgNode && instructionIndex == that.instructionIndex;
 	}
 
 	@Override
@@ -3,21 +3,19 @@
  */
 package edu.illinois.keshmesh.detector;
 
-import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import org.eclipse.jdt.core.IJavaProject;
-
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
-import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
-import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAMonitorInstruction;
+import com.ibm.wala.util.intset.IntIterator;
 
+import edu.illinois.keshmesh.detector.BasicAnalysisData.Artifact;
+import edu.illinois.keshmesh.detector.LockSites.LockSite;
 import edu.illinois.keshmesh.detector.bugs.BugInstance;
 import edu.illinois.keshmesh.detector.bugs.BugInstances;
 import edu.illinois.keshmesh.detector.bugs.BugPatterns;
@@ -35,66 +33,62 @@ import edu.illinois.keshmesh.util.Logger;
  */
 public class LCK01JBugDetector extends BugPatternDetector {
 
+	private static final Logger logger = Logger.getLogger(LCK01JBugDetector.class);
+
 	@Override
 	public IntermediateResults getIntermediateResults() {
 		return null;
 	}
 
 	@Override
-	public BugInstances performAnalysis(IJavaProject javaProject, BasicAnalysisData basicAnalysisData) {
-		this.javaProject = javaProject;
+	public Set<Artifact> getRequiredArtifacts() {
+		return EnumSet.of(Artifact.LOCK_SITES, Artifact.TYPE_PREDICATES);
+	}
+
+	@Override
+	public BugInstances performAnalysis(BasicAnalysisData basicAnalysisData) {
 		this.basicAnalysisData = basicAnalysisData;
-		Iterator<CGNode> cgNodesIter = this.basicAnalysisData.callGraph.iterator();
-		while (cgNodesIter.hasNext()) {
-			CGNode cgNode = cgNodesIter.next();
-			Logger.log("CGNode: " + cgNode.getIR());
+		if (logger.isTraceEnabled()) {
+			Iterator<CGNode> cgNodesIter = this.basicAnalysisData.callGraph.iterator();
+			while (cgNodesIter.hasNext()) {
+				CGNode cgNode = cgNodesIter.next();
+				logger.trace("CGNode: %s", cgNode.getIR());
+			}
 		}
 		BugInstances bugInstances = new BugInstances();
-		Collection<InstructionInfo> unsafeSynchronizedBlocks = new HashSet<InstructionInfo>();
 		Iterator<CGNode> cgNodesIterator = basicAnalysisData.callGraph.iterator();
 		while (cgNodesIterator.hasNext()) {
 			final CGNode cgNode = cgNodesIterator.next();
-			Logger.log("IR is:" + cgNode.getIR());
+			logger.trace("IR is:%s", cgNode.getIR());
 			IMethod method = cgNode.getMethod();
-			if (!isIgnoredClass(method.getDeclaringClass())) {
-				populateBugInstances(unsafeSynchronizedBlocks, cgNode, bugInstances);
+			if (!isIgnoredClass(method.getDeclaringClass()) && isReanalyzed(cgNode)) {
+				populateBugInstances(cgNode, bugInstances);
 			}
 		}
 		return bugInstances;
 	}
 
-	private void populateBugInstances(Collection<InstructionInfo> synchronizedBlocks, final CGNode cgNode, final BugInstances bugInstances) {
-		AnalysisUtils.collect(javaProject, synchronizedBlocks, cgNode, new InstructionFilter() {
-
-			@Override
-			public boolean accept(InstructionInfo instructionInfo) {
-				SSAInstruction instruction = instructionInfo.getInstruction();
-				if (AnalysisUtils.isMonitorEnter(instruction)) {
-					SSAMonitorInstruction monitorEnterInstruction = (SSAMonitorInstruction) instruction;
-					Set<String> reusableLockObjectTypes = getReusableLockObjectTypes(cgNode, monitorEnterInstruction);
-					if (!reusableLockObjectTypes.isEmpty()) {
-						CodePosition instructionPosition = instructionInfo.getPosition();
-						Logger.log("Detected an instance of LCK01-J in class " + instructionPosition.getFullyQualifiedClassName() + ", line number=" + instructionPosition.getFirstLine()
-								+ ", instructionIndex= " + instructionInfo.getInstructionIndex());
-						bugInstances.add(new BugInstance(BugPatterns.LCK01J, instructionPosition, new LCK01JFixInformation(reusableLockObjectTypes)));
-					}
-				}
-				return false;
+	private void populateBugInstances(CGNode cgNode, BugInstances bugInstances) {
+		for (LockSite synchronizedBlock : basicAnalysisData.getLockSites().getSynchronizedBlocks(cgNode)) {
+			Set<String> reusableLockObjectTypes = getReusableLockObjectTypes(synchronizedBlock);
+			if (!reusableLockObjectTypes.isEmpty()) {
+				InstructionInfo instructionInfo = synchronizedBlock.getMonitorEnter();
+				CodePosition instructionPosition = getPosition(instructionInfo);
+				logger.debug("Detected an instance of LCK01-J in class %s, line number=%d, instructionIndex= %d", instructionPosition.getFullyQualifiedClassName(), instructionPosition.getFirstLine(),
+						instructionInfo.getInstructionIndex());
+				bugInstances.add(new BugInstance(BugPatterns.LCK01J, instructionPosition, new LCK01JFixInformation(reusableLockObjectTypes)));
 			}
-		});
-	}
-
-	Set<String> getReusableLockObjectTypes(CGNode cgNode, SSAMonitorInstruction monitorInstruction) {
-		if (!monitorInstruction.isMonitorEnter()) {
-			throw new AssertionError("Expected a monitor enter instruction.");
 		}
+	}
 
-		PointerKey lockPointer = getPointerForValueNumber(cgNode, monitorInstruction.getRef());
-		Collection<InstanceKey> lockPointedInstances = getPointedInstances(lockPointer);
+	Set<String> getReusableLockObjectTypes(LockSite synchronizedBlock) {
 		Set<String> instancesTypes = new HashSet<String>();
-		for (InstanceKey instanceKey : lockPointedInstances) {
-			LCK01JReusableChecker instanceKeyReusableChecker = LCK01JReusableCheckerFactory.createReusableChecker(instanceKey);
-			if (instanceKeyReusableChecker.isReusable()) {
+		TypePredicates typePredicates = basicAnalysisData.getTypePredicates();
+		IntIterator lockInstanceNumbersIterator = synchronizedBlock.getLockInstanceNumbers().intIterator();
+		while (lockInstanceNumbersIterator.hasNext()) {
+			int lockInstanceNumber = lockInstanceNumbersIterator.next();
+			if (typePredicates.isReusable(lockInstanceNumber)) {
+				InstanceKey instanceKey = basicAnalysisData.pointsToSets.getInstance(lockInstanceNumber);
 				instancesTypes.add(AnalysisUtils.walaTypeNameToJavaName(instanceKey.getConcreteType().getName()));
 				break;
 			}
@@ -3,32 +3,34 @@
  */
 package edu.illinois.keshmesh.detector;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import org.eclipse.jdt.core.IJavaProject;
-
+import com.ibm.wala.analysis.typeInference.PointType;
 import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.propagation.AbstractTypeInNode;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.NormalAllocationInNode;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
-import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
-import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAMonitorInstruction;
 import com.ibm.wala.types.TypeName;
 import com.ibm.wala.util.intset.OrdinalSet;
 
+import edu.illinois.keshmesh.detector.BasicAnalysisData.Artifact;
+import edu.illinois.keshmesh.detector.LockSites.LockSite;
 import edu.illinois.keshmesh.detector.bugs.BugInstance;
 import edu.illinois.keshmesh.detector.bugs.BugInstances;
 import edu.illinois.keshmesh.detector.bugs.BugPatterns;
 import edu.illinois.keshmesh.detector.bugs.CodePosition;
 import edu.illinois.keshmesh.detector.bugs.LCK02JFixInformation;
 import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+import edu.illinois.keshmesh.detector.util.KnownTypes;
 import edu.illinois.keshmesh.util.Logger;
 import edu.illinois.keshmesh.walaconfig.ReceiverStringContext;
 
@@ -40,7 +42,7 @@ import edu.illinois.keshmesh.walaconfig.ReceiverStringContext;
  */
 public class LCK02JBugDetector extends BugPatternDetector {
 
-	private static final String JAVA_LANG_CLASS = "Ljava/lang/Class"; //$NON-NLS-1$
+	private static final Logger logger = Logger.getLogger(LCK02JBugDetector.class);
 
 	@Override
 	public IntermediateResults getIntermediateResults() {
@@ -48,51 +50,44 @@ public class LCK02JBugDetector extends BugPatternDetector {
 	}
 
 	@Override
-	public BugInstances performAnalysis(IJavaProject javaProject, BasicAnalysisData analysisData) {
+	public Set<Artifact> getRequiredArtifacts() {
+		return EnumSet.of(Artifact.LOCK_SITES);
+	}
+
+	@Override
+	public BugInstances performAnalysis(BasicAnalysisData analysisData) {
 		basicAnalysisData = analysisData;
 		final BugInstances bugInstances = new BugInstances();
 		Iterator<CGNode> cgNodesIterator = basicAnalysisData.callGraph.iterator();
 		while (cgNodesIterator.hasNext()) {
 			final CGNode cgNode = cgNodesIterator.next();
 			IMethod method = cgNode.getMethod();
-			Logger.log("CGNode:" + cgNode);
-			if (AnalysisUtils.isJDKClass(method.getDeclaringClass()))
+			logger.trace("CGNode:%s", cgNode);
+			if (AnalysisUtils.isJDKClass(method.getDeclaringClass()) || !isReanalyzed(cgNode))
 				continue;
-			IR ir = cgNode.getIR();
-			if (ir != null) {
-				Logger.log("IR:" + ir);
-				AnalysisUtils.collect(javaProject, new HashSet<InstructionInfo>(), cgNode, new InstructionFilter() {
-					@Override
-					public boolean accept(InstructionInfo instructionInfo) {
-						SSAInstruction instruction = instructionInfo.getInstruction();
-						if (AnalysisUtils.isMonitorEnter(instruction)) {
-							Set<String> synchronizedClassTypeNames = getSynchronizedClassTypeNames((SSAMonitorInstruction) instruction, cgNode);
-							if (!synchronizedClassTypeNames.isEmpty()) {
-								CodePosition instructionPosition = instructionInfo.getPosition();
-								Logger.log("Detected an instance of LCK02-J in class " + instructionPosition.getFullyQualifiedClassName() + ", line number=" + instructionPosition.getFirstLine()
-										+ ", instructionIndex= " + instructionInfo.getInstructionIndex());
-								bugInstances.add(new BugInstance(BugPatterns.LCK02J, instructionPosition, new LCK02JFixInformation(synchronizedClassTypeNames)));
-							}
-						}
-						return false;
-					}
-				});
+			logger.trace("IR:%s", cgNode.getIR());
+			for (LockSite synchronizedBlock : basicAnalysisData.getLockSites().getSynchronizedBlocks(cgNode)) {
+				Set<String> synchronizedClassTypeNames = getSynchronizedClassTypeNames(synchronizedBlock);
+				if (!synchronizedClassTypeNames.isEmpty()) {
+					InstructionInfo instructionInfo = synchronizedBlock.getMonitorEnter();
+					CodePosition instructionPosition = getPosition(instructionInfo);
+					logger.debug("Detected an instance of LCK02-J in class %s, line number=%d, instructionIndex= %d", instructionPosition.getFullyQualifiedClassName(), instructionPosition.getFirstLine(),
+							instructionInfo.getInstructionIndex());
+					bugInstances.add(new BugInstance(BugPatterns.LCK02J, instructionPosition, new LCK02JFixInformation(synchronizedClassTypeNames)));
+				}
 			}
 		}
 		return bugInstances;
 	}
 
 	private static boolean isReturnedByGetClass(NormalAllocationInNode normalAllocationInNode) {
-		return normalAllocationInNode.getSite().getDeclaredType().getName().toString().equals(JAVA_LANG_CLASS) && AnalysisUtils.isObjectGetClass(normalAllocationInNode.getNode().getMethod());
+		return KnownTypes.is(normalAllocationInNode.getSite().getDeclaredType().getName(), KnownTypes.JAVA_LANG_CLASS) && AnalysisUtils.isObjectGetClass(normalAllocationInNode.getNode().getMethod());
 	}
 
-	private Set<String> getSynchronizedClassTypeNames(SSAMonitorInstruction monitorInstruction, CGNode cgNode) {
+	private Set<String> getSynchronizedClassTypeNames(LockSite synchronizedBlock) {
 		Set<String> result = new HashSet<String>();
-		int lockValueNumber = monitorInstruction.getRef();
-		PointerKey lockPointer = getPointerForValueNumber(cgNode, lockValueNumber);
-		OrdinalSet<InstanceKey> lockObjects = basicAnalysisData.pointerAnalysis.getPointsToSet(lockPointer);
-		for (InstanceKey instanceKey : lockObjects) {
-			Logger.log("An InstanceKey pointed to by the lock of the synchronized block:" + instanceKey);
+		for (InstanceKey instanceKey : synchronizedBlock.getLockInstances()) {
+			logger.debug("An InstanceKey pointed to by the lock of the synchronized block:%s", instanceKey);
 			if (instanceKey instanceof NormalAllocationInNode) {
 				NormalAllocationInNode normalAllocationInNode = (NormalAllocationInNode) instanceKey;
 				if (isReturnedByGetClass(normalAllocationInNode)) {
@@ -144,8 +139,19 @@ public class LCK02JBugDetector extends BugPatternDetector {
 		}
 	}
 
+	/**
+	 * The context of a call to getClass() is a receiver string or, under the
+	 * fast analysis profile, the type of the receiver (see
+	 * {@link edu.illinois.keshmesh.walaconfig.AnalysisProfile}).
+	 */
 	private static String getReceiverTypeName(AbstractTypeInNode node) {
-		TypeName typeName = ((ReceiverStringContext) (node.getNode().getContext())).getReceiver().getConcreteType().getName();
+		Context context = node.getNode().getContext();
+		TypeName typeName;
+		if (context instanceof ReceiverStringContext) {
+			typeName = ((ReceiverStringContext) context).getReceiver().getConcreteType().getName();
+		} else {
+			typeName = ((PointType) context.get(ContextKey.RECEIVER)).getType().getName();
+		}
 		return getJavaClassName(typeName);
 	}
 
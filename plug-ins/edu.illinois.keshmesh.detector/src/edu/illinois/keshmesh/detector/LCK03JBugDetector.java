@@ -3,26 +3,21 @@
  */
 package edu.illinois.keshmesh.detector;
 
-import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import org.eclipse.jdt.core.IJavaProject;
-
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.CGNode;
-import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
-import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
-import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAMonitorInstruction;
 
+import edu.illinois.keshmesh.detector.BasicAnalysisData.Artifact;
+import edu.illinois.keshmesh.detector.LockSites.LockSite;
 import edu.illinois.keshmesh.detector.bugs.BugInstance;
 import edu.illinois.keshmesh.detector.bugs.BugInstances;
 import edu.illinois.keshmesh.detector.bugs.BugPatterns;
 import edu.illinois.keshmesh.detector.bugs.CodePosition;
-import edu.illinois.keshmesh.detector.bugs.LCK03JBugPattern;
 import edu.illinois.keshmesh.detector.bugs.LCK03JFixInformation;
 import edu.illinois.keshmesh.detector.util.AnalysisUtils;
 import edu.illinois.keshmesh.util.Logger;
@@ -34,29 +29,36 @@ import edu.illinois.keshmesh.util.Logger;
  */
 public class LCK03JBugDetector extends BugPatternDetector {
 
+	private static final Logger logger = Logger.getLogger(LCK03JBugDetector.class);
+
 	@Override
 	public IntermediateResults getIntermediateResults() {
 		return null;
 	}
 
 	@Override
-	public BugInstances performAnalysis(IJavaProject javaProject, BasicAnalysisData basicAnalysisData) {
-		this.javaProject = javaProject;
+	public Set<Artifact> getRequiredArtifacts() {
+		return EnumSet.of(Artifact.LOCK_SITES, Artifact.TYPE_PREDICATES);
+	}
+
+	@Override
+	public BugInstances performAnalysis(BasicAnalysisData basicAnalysisData) {
 		this.basicAnalysisData = basicAnalysisData;
-		Iterator<CGNode> cgNodesIter = this.basicAnalysisData.callGraph.iterator();
-		while (cgNodesIter.hasNext()) {
-			CGNode cgNode = cgNodesIter.next();
-			Logger.log("CGNode: " + cgNode.getIR());
+		if (logger.isTraceEnabled()) {
+			Iterator<CGNode> cgNodesIter = this.basicAnalysisData.callGraph.iterator();
+			while (cgNodesIter.hasNext()) {
+				CGNode cgNode = cgNodesIter.next();
+				logger.trace("CGNode: %s", cgNode.getIR());
+			}
 		}
 		BugInstances bugInstances = new BugInstances();
-		Collection<InstructionInfo> unsafeSynchronizedBlocks = new HashSet<InstructionInfo>();
 		Iterator<CGNode> cgNodesIterator = basicAnalysisData.callGraph.iterator();
 		while (cgNodesIterator.hasNext()) {
 			final CGNode cgNode = cgNodesIterator.next();
-			Logger.log("IR is:" + cgNode.getIR());
+			logger.trace("IR is:%s", cgNode.getIR());
 			IMethod method = cgNode.getMethod();
-			if (!isIgnoredClass(method.getDeclaringClass())) {
-				populateBugInstances(unsafeSynchronizedBlocks, cgNode, bugInstances);
+			if (!isIgnoredClass(method.getDeclaringClass()) && isReanalyzed(cgNode)) {
+				populateBugInstances(cgNode, bugInstances);
 			}
 		}
 		return bugInstances;
@@ -70,62 +72,39 @@ public class LCK03JBugDetector extends BugPatternDetector {
 		return monitorExpressionTypeNames;
 	}
 
-	private void populateBugInstances(Collection<InstructionInfo> synchronizedBlocks, final CGNode cgNode, final BugInstances bugInstances) {
-		AnalysisUtils.collect(javaProject, synchronizedBlocks, cgNode, new InstructionFilter() {
-
-			@Override
-			public boolean accept(InstructionInfo instructionInfo) {
-				SSAInstruction instruction = instructionInfo.getInstruction();
-				if (AnalysisUtils.isMonitorEnter(instruction)) {
-					SSAMonitorInstruction monitorEnterInstruction = (SSAMonitorInstruction) instruction;
-					Set<IClass> monitorExpressionTypes = getMonitorExpressionTypes(cgNode, monitorEnterInstruction);
-					boolean isLock = isLock(monitorExpressionTypes);
-					boolean isCondition = isCondition(monitorExpressionTypes);
-					if (isLock || isCondition) {
-						CodePosition instructionPosition = instructionInfo.getPosition();
-						Logger.log("Detected an instance of LCK03-J in class " + instructionPosition.getFullyQualifiedClassName() + ", line number=" + instructionPosition.getFirstLine()
-								+ ", instructionIndex= " + instructionInfo.getInstructionIndex());
-						bugInstances.add(new BugInstance(BugPatterns.LCK03J, instructionPosition, new LCK03JFixInformation(getJavaNames(monitorExpressionTypes), isLock)));
-					}
-				}
-				return false;
+	private void populateBugInstances(CGNode cgNode, BugInstances bugInstances) {
+		for (LockSite synchronizedBlock : basicAnalysisData.getLockSites().getSynchronizedBlocks(cgNode)) {
+			Set<IClass> monitorExpressionTypes = synchronizedBlock.getLockTypes();
+			boolean isLock = isLock(monitorExpressionTypes);
+			boolean isCondition = isCondition(monitorExpressionTypes);
+			if (isLock || isCondition) {
+				InstructionInfo instructionInfo = synchronizedBlock.getMonitorEnter();
+				CodePosition instructionPosition = getPosition(instructionInfo);
+				logger.debug("Detected an instance of LCK03-J in class %s, line number=%d, instructionIndex= %d", instructionPosition.getFullyQualifiedClassName(), instructionPosition.getFirstLine(),
+						instructionInfo.getInstructionIndex());
+				bugInstances.add(new BugInstance(BugPatterns.LCK03J, instructionPosition, new LCK03JFixInformation(getJavaNames(monitorExpressionTypes), isLock)));
 			}
-		});
+		}
 	}
 
 	boolean isLock(Set<IClass> instanceTypes) {
-		return anyClassImplementsInterface(instanceTypes, LCK03JBugPattern.LOCK);
-	}
-
-	boolean isCondition(Set<IClass> instanceTypes) {
-		return anyClassImplementsInterface(instanceTypes, LCK03JBugPattern.CONDITION);
-	}
-
-	private boolean anyClassImplementsInterface(Set<IClass> instanceTypes, String interfaceName) {
+		TypePredicates typePredicates = basicAnalysisData.getTypePredicates();
 		for (IClass instanceType : instanceTypes) {
-			Collection<IClass> implementedInterfaces = instanceType.getAllImplementedInterfaces();
-			for (IClass implementedInterface : implementedInterfaces) {
-				String interfaceType = AnalysisUtils.walaTypeNameToJavaName(implementedInterface.getName());
-				if (interfaceType.equals(interfaceName)) {
-					return true;
-				}
+			if (typePredicates.isLock(instanceType)) {
+				return true;
 			}
 		}
 		return false;
 	}
 
-	Set<IClass> getMonitorExpressionTypes(CGNode cgNode, SSAMonitorInstruction monitorInstruction) {
-		if (!monitorInstruction.isMonitorEnter()) {
-			throw new AssertionError("Expected a monitor enter instruction.");
-		}
-		PointerKey lockPointer = getPointerForValueNumber(cgNode, monitorInstruction.getRef());
-		Collection<InstanceKey> lockPointedInstances = getPointedInstances(lockPointer);
-		Set<IClass> instancesTypes = new HashSet<IClass>();
-		for (InstanceKey instanceKey : lockPointedInstances) {
-			instancesTypes.add(instanceKey.getConcreteType());
+	boolean isCondition(Set<IClass> instanceTypes) {
+		TypePredicates typePredicates = basicAnalysisData.getTypePredicates();
+		for (IClass instanceType : instanceTypes) {
+			if (typePredicates.isCondition(instanceType)) {
+				return true;
+			}
 		}
-		return instancesTypes;
-
+		return false;
 	}
 
 	private boolean isIgnoredClass(IClass klass) {
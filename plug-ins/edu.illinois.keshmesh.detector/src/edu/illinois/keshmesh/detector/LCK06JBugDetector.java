@@ -5,43 +5,39 @@ package edu.illinois.keshmesh.detector;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
-import org.eclipse.jdt.core.IJavaProject;
-
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.classLoader.IMethod;
-import com.ibm.wala.dataflow.graph.BitVectorFramework;
-import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.ipa.callgraph.CGNode;
-import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
-import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAMonitorInstruction;
 import com.ibm.wala.ssa.SSAPutInstruction;
-import com.ibm.wala.util.CancelException;
-import com.ibm.wala.util.graph.impl.GraphInverter;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
 
+import edu.illinois.keshmesh.detector.BasicAnalysisData.Artifact;
+import edu.illinois.keshmesh.detector.LockSites.LockSite;
 import edu.illinois.keshmesh.detector.bugs.BugInstance;
 import edu.illinois.keshmesh.detector.bugs.BugInstances;
 import edu.illinois.keshmesh.detector.bugs.BugPatterns;
 import edu.illinois.keshmesh.detector.bugs.CodePosition;
 import edu.illinois.keshmesh.detector.bugs.LCK06JFixInformation;
 import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+import edu.illinois.keshmesh.detector.util.SCCBitVectorSolver;
 import edu.illinois.keshmesh.util.Logger;
+import edu.illinois.keshmesh.util.Modes;
 
 /**
  * 
@@ -57,14 +53,19 @@ import edu.illinois.keshmesh.util.Logger;
 
 public class LCK06JBugDetector extends BugPatternDetector {
 
+	private static final Logger logger = Logger.getLogger(LCK06JBugDetector.class);
+
 	enum SynchronizedBlockKind {
 		SAFE, UNSAFE
 	}
 
-	private final Set<InstanceKey> instancesPointedByStaticFields = new HashSet<InstanceKey>();
+	private StaticFieldIndex staticFieldIndex;
 
 	private final OrdinalSetMapping<InstructionInfo> globalValues = MutableMapping.make();
 
+	// The universe of the summaries of the CGNodes in summary mode (see Modes#isInSummaryMode()).
+	private final OrdinalSetMapping<IField> globalFields = MutableMapping.make();
+
 	private final Map<CGNode, CGNodeInfo> cgNodeInfoMap = new HashMap<CGNode, CGNodeInfo>();
 
 	private LCK06JIntermediateResults intermediateResults;
@@ -78,22 +79,28 @@ public class LCK06JBugDetector extends BugPatternDetector {
 		return intermediateResults;
 	}
 
+	@Override
+	public Set<Artifact> getRequiredArtifacts() {
+		return EnumSet.of(Artifact.LOCK_SITES, Artifact.REVERSE_CALL_GRAPH, Artifact.STATIC_FIELD_INDEX);
+	}
+
 	public Map<CGNode, CGNodeInfo> getCGNodeInfoMap() {
 		return Collections.unmodifiableMap(cgNodeInfoMap);
 	}
 
 	@Override
-	public BugInstances performAnalysis(IJavaProject javaProject, BasicAnalysisData basicAnalysisData) {
-		this.javaProject = javaProject;
+	public BugInstances performAnalysis(BasicAnalysisData basicAnalysisData) {
 		this.basicAnalysisData = basicAnalysisData;
-		Iterator<CGNode> cgNodesIter = basicAnalysisData.callGraph.iterator();
-		while (cgNodesIter.hasNext()) {
-			CGNode cgNode = cgNodesIter.next();
-			Logger.log("CGNode:" + cgNode);
-			Logger.log("IR: " + cgNode.getIR());
+		if (logger.isTraceEnabled()) {
+			Iterator<CGNode> cgNodesIter = basicAnalysisData.callGraph.iterator();
+			while (cgNodesIter.hasNext()) {
+				CGNode cgNode = cgNodesIter.next();
+				logger.trace("CGNode:%s", cgNode);
+				logger.trace("IR: %s", cgNode.getIR());
+			}
 		}
-		intermediateResults.setStaticFields(getAllStaticFields());
-		populateAllInstancesPointedByStaticFields();
+		staticFieldIndex = basicAnalysisData.getStaticFieldIndex();
+		intermediateResults.setStaticFields(staticFieldIndex.getStaticFields());
 		BugInstances bugInstances = new BugInstances();
 		Collection<InstructionInfo> unsafeSynchronizedBlocks = new HashSet<InstructionInfo>();
 		Collection<CGNode> unsafeSynchronizedMethods = new HashSet<CGNode>();
@@ -104,18 +111,23 @@ public class LCK06JBugDetector extends BugPatternDetector {
 
 		populateUnsafeModifyingStaticFieldsInstructionsMap();
 
-		BitVectorSolver<CGNode> bitVectorSolver = propagateUnsafeModifyingStaticFieldsInstructions();
-
-		Iterator<CGNode> cgNodesIterator = basicAnalysisData.callGraph.iterator();
-		while (cgNodesIterator.hasNext()) {
-			CGNode cgNode = cgNodesIterator.next();
-			IntSet value = bitVectorSolver.getOut(cgNode).getValue();
-			if (value != null) {
-				IntIterator intIterator = value.intIterator();
-				Logger.log("CGNode: " + cgNode.getMethod().getSignature());
-				while (intIterator.hasNext()) {
-					InstructionInfo instructionInfo = globalValues.getMappedObject(intIterator.next());
-					Logger.log("\tPropagated instruction: " + instructionInfo);
+		SCCBitVectorSolver<CGNode> bitVectorSolver = propagateUnsafeModifyingStaticFieldsInstructions();
+
+		if (logger.isDebugEnabled()) {
+			Iterator<CGNode> cgNodesIterator = basicAnalysisData.callGraph.iterator();
+			while (cgNodesIterator.hasNext()) {
+				CGNode cgNode = cgNodesIterator.next();
+				IntSet value = bitVectorSolver.getOut(cgNode).getValue();
+				if (value != null) {
+					IntIterator intIterator = value.intIterator();
+					logger.debug("CGNode: %s", cgNode.getMethod().getSignature());
+					while (intIterator.hasNext()) {
+						if (Modes.isInSummaryMode()) {
+							logger.debug("\tModified static field: %s", globalFields.getMappedObject(intIterator.next()));
+						} else {
+							logger.debug("\tPropagated instruction: %s", globalValues.getMappedObject(intIterator.next()));
+						}
+					}
 				}
 			}
 		}
@@ -134,7 +146,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 	 * a safe synchronized method).
 	 */
 	private void reportActuallyUnsafeInstructions(BugInstances bugInstances, Collection<InstructionInfo> unsafeSynchronizedBlocks, Collection<CGNode> unsafeSynchronizedMethods,
-			BitVectorSolver<CGNode> bitVectorSolver) {
+			SCCBitVectorSolver<CGNode> bitVectorSolver) {
 		reportActuallyUnsafeInstructionsOfSynchronizedBlocks(bugInstances, unsafeSynchronizedBlocks, bitVectorSolver);
 		reportActuallyUnsafeInstructionsOfMethods(bugInstances, unsafeSynchronizedMethods, bitVectorSolver);
 	}
@@ -143,8 +155,14 @@ public class LCK06JBugDetector extends BugPatternDetector {
 	 * Report the instructions of synchronized instance methods that have unsafe
 	 * instructions.
 	 */
-	private void reportActuallyUnsafeInstructionsOfMethods(BugInstances bugInstances, Collection<CGNode> unsafeSynchronizedMethods, BitVectorSolver<CGNode> bitVectorSolver) {
+	private void reportActuallyUnsafeInstructionsOfMethods(BugInstances bugInstances, Collection<CGNode> unsafeSynchronizedMethods, SCCBitVectorSolver<CGNode> bitVectorSolver) {
 		for (CGNode unsafeSynchronizedMethod : unsafeSynchronizedMethods) {
+			if (Modes.isInSummaryMode()) {
+				Set<IField> unsafeStaticFields = new HashSet<IField>();
+				addSummary(unsafeStaticFields, bitVectorSolver, unsafeSynchronizedMethod);
+				reportUnsafeStaticFields(getPosition(unsafeSynchronizedMethod), unsafeStaticFields, bugInstances);
+				continue;
+			}
 			Collection<InstructionInfo> actuallyUnsafeInstructions = new HashSet<InstructionInfo>();
 			addSolverResults(actuallyUnsafeInstructions, bitVectorSolver, unsafeSynchronizedMethod);
 			reportActuallyUnsafeInstructionsOfMethod(unsafeSynchronizedMethod, actuallyUnsafeInstructions, bugInstances);
@@ -155,26 +173,30 @@ public class LCK06JBugDetector extends BugPatternDetector {
 	 * Report the instructions of synchronized blocks that take a nonstatic lock
 	 * but has unsafe instructions.
 	 */
-	private void reportActuallyUnsafeInstructionsOfSynchronizedBlocks(BugInstances bugInstances, Collection<InstructionInfo> unsafeSynchronizedBlocks, BitVectorSolver<CGNode> bitVectorSolver) {
+	private void reportActuallyUnsafeInstructionsOfSynchronizedBlocks(BugInstances bugInstances, Collection<InstructionInfo> unsafeSynchronizedBlocks, SCCBitVectorSolver<CGNode> bitVectorSolver) {
 		for (InstructionInfo unsafeSynchronizedBlock : unsafeSynchronizedBlocks) {
 			// If the method is safe, i.e. static and synchronized, we report no instances of LCK06J in that method. Therefore, we ignore the unsafe synchronized blocks in it.
 			if (isSafeSynchronized(unsafeSynchronizedBlock.getCGNode())) {
 				continue;
 			}
 
+			if (Modes.isInSummaryMode()) {
+				reportUnsafeStaticFields(getPosition(unsafeSynchronizedBlock), getActuallyUnsafeStaticFields(bitVectorSolver, unsafeSynchronizedBlock), bugInstances);
+				continue;
+			}
 			Collection<InstructionInfo> actuallyUnsafeInstructions = getActuallyUnsafeInstructions(bitVectorSolver, unsafeSynchronizedBlock);
 			reportActuallyUnsafeInstructionsOfSynchronizedBlock(unsafeSynchronizedBlock, actuallyUnsafeInstructions, bugInstances);
 		}
 	}
 
 	private void reportActuallyUnsafeInstructionsOfSynchronizedBlock(InstructionInfo unsafeSynchronizedBlock, Collection<InstructionInfo> actuallyUnsafeInstructions, BugInstances bugInstances) {
-		reportActuallyUnsafeInstructions(unsafeSynchronizedBlock.getCGNode(), unsafeSynchronizedBlock.getPosition(), actuallyUnsafeInstructions, bugInstances);
-		Logger.log("Unsafe instructions of " + unsafeSynchronizedBlock + " are " + actuallyUnsafeInstructions.toString());
+		reportActuallyUnsafeInstructions(unsafeSynchronizedBlock.getCGNode(), getPosition(unsafeSynchronizedBlock), actuallyUnsafeInstructions, bugInstances);
+		logger.debug("Unsafe instructions of %s are %s", unsafeSynchronizedBlock, actuallyUnsafeInstructions);
 	}
 
 	private void reportActuallyUnsafeInstructionsOfMethod(CGNode unsafeSynchronizedMethod, Collection<InstructionInfo> actuallyUnsafeInstructions, BugInstances bugInstances) {
 		reportActuallyUnsafeInstructions(unsafeSynchronizedMethod, getPosition(unsafeSynchronizedMethod), actuallyUnsafeInstructions, bugInstances);
-		Logger.log("Unsafe instructions of " + unsafeSynchronizedMethod + " are " + actuallyUnsafeInstructions.toString());
+		logger.debug("Unsafe instructions of %s are %s", unsafeSynchronizedMethod, actuallyUnsafeInstructions);
 	}
 
 	private void reportActuallyUnsafeInstructions(CGNode cgNode, CodePosition position, Collection<InstructionInfo> actuallyUnsafeInstructions, BugInstances bugInstances) {
@@ -184,6 +206,17 @@ public class LCK06JBugDetector extends BugPatternDetector {
 		}
 	}
 
+	/**
+	 * Every instruction that may modify a static field modifies at least one
+	 * static field. So, reporting the unsafe static fields is equivalent to
+	 * reporting the instructions that modify them.
+	 */
+	private void reportUnsafeStaticFields(CodePosition position, Set<IField> unsafeStaticFields, BugInstances bugInstances) {
+		if (!unsafeStaticFields.isEmpty()) {
+			bugInstances.add(new BugInstance(BugPatterns.LCK06J, position, new LCK06JFixInformation(getFieldNames(unsafeStaticFields))));
+		}
+	}
+
 	private Set<String> getFieldNames(Collection<IField> fields) {
 		Set<String> fieldNames = new HashSet<String>();
 		for (IField field : fields) {
@@ -215,7 +248,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 						result.add(accessedField);
 					}
 				} else {
-					result.addAll(getStaticFieldsPointingTo(instruction.getRef(), unsafeInstructionInfo.getCGNode()));
+					result.addAll(staticFieldIndex.getStaticFieldsPointingTo(getPointerForValueNumber(unsafeInstructionInfo.getCGNode(), instruction.getRef())));
 				}
 			}
 
@@ -225,46 +258,6 @@ public class LCK06JBugDetector extends BugPatternDetector {
 		return visitor.result;
 	}
 
-	private Collection<IField> getStaticFieldsPointingTo(int valueNumber, CGNode cgNode) {
-		Collection<IField> staticFieldsPointingToValueNumber = new HashSet<IField>();
-		for (IField staticField : getAllStaticFields()) {
-			if (isPointedByStaticField(staticField, valueNumber, cgNode)) {
-				staticFieldsPointingToValueNumber.add(staticField);
-			}
-		}
-		return staticFieldsPointingToValueNumber;
-	}
-
-	private boolean isPointedByStaticField(IField staticField, int valueNumber, CGNode cgNode) {
-		PointerKey staticFieldPointer = basicAnalysisData.heapModel.getPointerKeyForStaticField(staticField);
-		Collection<InstanceKey> instancesPointedByStaticField = getPointedInstances(staticFieldPointer);
-		Collection<InstanceKey> pointedInstances = getPointedInstances(getPointerForValueNumber(cgNode, valueNumber));
-		if (containsAny(pointedInstances, instancesPointedByStaticField)) {
-			return true;
-		}
-		return false;
-	}
-
-	private boolean isPointedByAnyStaticField(int valueNumber, CGNode cgNode) {
-		for (IField staticField : getAllStaticFields()) {
-			if (isPointedByStaticField(staticField, valueNumber, cgNode)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Has a side-effect: container collection may change.
-	 * 
-	 * @param container
-	 * @param containee
-	 * @return
-	 */
-	private boolean containsAny(Collection<InstanceKey> container, Collection<InstanceKey> containee) {
-		return containee.removeAll(container);
-	}
-
 	//	private IField getStaticNonFinalField(SSAFieldAccessInstruction fieldAccessInstruction) {
 	//		IField accessedField = basicAnalysisData.classHierarchy.resolveField(fieldAccessInstruction.getDeclaredField());
 	//		if (!(fieldAccessInstruction.isStatic() && !accessedField.isFinal())) {
@@ -282,7 +275,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 	 *            instructions.
 	 * @param cgNode
 	 */
-	public void addSolverResults(Collection<InstructionInfo> results, BitVectorSolver<CGNode> bitVectorSolver, CGNode cgNode) {
+	public void addSolverResults(Collection<InstructionInfo> results, SCCBitVectorSolver<CGNode> bitVectorSolver, CGNode cgNode) {
 		IntSet value = bitVectorSolver.getOut(cgNode).getValue();
 		if (value != null) {
 			IntIterator intIterator = value.intIterator();
@@ -305,7 +298,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 	 *         but are not directly or indirectly inside a safe synchronized
 	 *         block.
 	 */
-	private Collection<InstructionInfo> getActuallyUnsafeInstructions(final BitVectorSolver<CGNode> bitVectorSolver, final InstructionInfo unsafeSynchronizedBlock) {
+	private Collection<InstructionInfo> getActuallyUnsafeInstructions(final SCCBitVectorSolver<CGNode> bitVectorSolver, final InstructionInfo unsafeSynchronizedBlock) {
 		final Collection<InstructionInfo> unsafeInstructions = new HashSet<InstructionInfo>();
 		final CGNode cgNode = unsafeSynchronizedBlock.getCGNode();
 		final Collection<InstructionInfo> safeSynchronizedBlocks = new HashSet<InstructionInfo>();
@@ -314,7 +307,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 		if (ir == null) {
 			return unsafeInstructions; //should not really be null here
 		}
-		AnalysisUtils.collect(javaProject, new HashSet<InstructionInfo>(), cgNode, new InstructionFilter() {
+		AnalysisUtils.collect(basicAnalysisData, new HashSet<InstructionInfo>(), cgNode, new InstructionFilter() {
 			@Override
 			public boolean accept(InstructionInfo instructionInfo) {
 				SSAInstruction instruction = instructionInfo.getInstruction();
@@ -338,13 +331,60 @@ public class LCK06JBugDetector extends BugPatternDetector {
 		return unsafeInstructions;
 	}
 
-	private BitVectorSolver<CGNode> propagateUnsafeModifyingStaticFieldsInstructions() {
-		LCK06JTransferFunctionProvider transferFunctions = new LCK06JTransferFunctionProvider(this);
+	/**
+	 * Adds the summary of the given CGNode, i.e. the static fields that it may
+	 * modify outside a safe lock directly or through its callees, to the given
+	 * set.
+	 */
+	private void addSummary(Set<IField> unsafeStaticFields, SCCBitVectorSolver<CGNode> bitVectorSolver, CGNode cgNode) {
+		IntSet value = bitVectorSolver.getOut(cgNode).getValue();
+		if (value != null) {
+			IntIterator intIterator = value.intIterator();
+			while (intIterator.hasNext()) {
+				unsafeStaticFields.add(globalFields.getMappedObject(intIterator.next()));
+			}
+		}
+	}
 
-		BitVectorFramework<CGNode, InstructionInfo> bitVectorFramework = new BitVectorFramework<CGNode, InstructionInfo>(GraphInverter.invert(basicAnalysisData.callGraph), transferFunctions,
-				globalValues);
+	/**
+	 * This method is the same as getActuallyUnsafeInstructions except that it
+	 * composes the summaries of the callees instead of collecting their
+	 * instructions.
+	 */
+	private Set<IField> getActuallyUnsafeStaticFields(final SCCBitVectorSolver<CGNode> bitVectorSolver, final InstructionInfo unsafeSynchronizedBlock) {
+		final Set<IField> unsafeStaticFields = new HashSet<IField>();
+		final CGNode cgNode = unsafeSynchronizedBlock.getCGNode();
+		final Collection<InstructionInfo> safeSynchronizedBlocks = new HashSet<InstructionInfo>();
+		populateSynchronizedBlocksForNode(safeSynchronizedBlocks, cgNode, SynchronizedBlockKind.SAFE);
+		AnalysisUtils.collect(basicAnalysisData, new HashSet<InstructionInfo>(), cgNode, new InstructionFilter() {
+			@Override
+			public boolean accept(InstructionInfo instructionInfo) {
+				SSAInstruction instruction = instructionInfo.getInstruction();
+				if (instructionInfo.isInside(unsafeSynchronizedBlock) && !AnalysisUtils.isProtectedByAnySynchronizedBlock(safeSynchronizedBlocks, instructionInfo)) {
+					unsafeStaticFields.addAll(getModifiedStaticFields(instructionInfo));
+					if (instruction instanceof SSAAbstractInvokeInstruction) {
+						Set<CGNode> possibleTargets = basicAnalysisData.callGraph.getPossibleTargets(cgNode, ((SSAAbstractInvokeInstruction) instruction).getCallSite());
+						for (CGNode possibleTarget : possibleTargets) {
+							addSummary(unsafeStaticFields, bitVectorSolver, possibleTarget);
+						}
+					}
+				}
+				return false;
+			}
+		});
+		return unsafeStaticFields;
+	}
+
+	private SCCBitVectorSolver<CGNode> propagateUnsafeModifyingStaticFieldsInstructions() {
+		CallSiteFlags unprotectedCallSites = new CallSiteFlags(basicAnalysisData, new InstructionFilter() {
+			@Override
+			public boolean accept(InstructionInfo invokeInstruction) {
+				return !AnalysisUtils.isProtectedByAnySynchronizedBlock(cgNodeInfoMap.get(invokeInstruction.getCGNode()).getSafeSynchronizedBlocks(), invokeInstruction);
+			}
+		}, getNumberOfSolverThreads());
+		LCK06JTransferFunctionProvider transferFunctions = new LCK06JTransferFunctionProvider(this, unprotectedCallSites);
 
-		BitVectorSolver<CGNode> bitVectorSolver = new BitVectorSolver<CGNode>(bitVectorFramework) {
+		SCCBitVectorSolver<CGNode> bitVectorSolver = new SCCBitVectorSolver<CGNode>(basicAnalysisData.getReverseCallGraph(), transferFunctions) {
 			@Override
 			protected BitVectorVariable makeNodeVariable(CGNode cgNode, boolean IN) {
 				BitVectorVariable nodeBitVectorVariable = new BitVectorVariable();
@@ -352,10 +392,14 @@ public class LCK06JBugDetector extends BugPatternDetector {
 				return nodeBitVectorVariable;
 			}
 		};
-		try {
-			bitVectorSolver.solve(null);
-		} catch (CancelException ex) {
-			throw new RuntimeException("Bitvector solver was stopped", ex);
+		bitVectorSolver.solve(getNumberOfSolverThreads());
+		if (Modes.isInTestMode()) {
+			// The bit vectors index the static fields in summary mode and the instructions otherwise.
+			if (Modes.isInSummaryMode()) {
+				intermediateResults.setNodesWithDifferentSolutions(getNodesWithDifferentSolutions(basicAnalysisData.getReverseCallGraph(), transferFunctions, globalFields, cgNodeInfoMap, bitVectorSolver));
+			} else {
+				intermediateResults.setNodesWithDifferentSolutions(getNodesWithDifferentSolutions(basicAnalysisData.getReverseCallGraph(), transferFunctions, globalValues, cgNodeInfoMap, bitVectorSolver));
+			}
 		}
 		return bitVectorSolver;
 	}
@@ -372,7 +416,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 			CGNode cgNode = cgNodesIterator.next();
 			BitVector bitVector = new BitVector();
 			Collection<InstructionInfo> safeSynchronizedBlocks = new HashSet<InstructionInfo>();
-			if (!isSafeSynchronized(cgNode) && !isIgnoredClass(cgNode.getMethod().getDeclaringClass())) {
+			if (!isSafeSynchronized(cgNode) && !isIgnoredClass(cgNode.getMethod().getDeclaringClass()) && basicAnalysisData.changeImpact.isInfluencing(cgNode)) {
 				Collection<InstructionInfo> modifyingStaticFieldsInstructions = getModifyingStaticFieldsInstructions(cgNode);
 				populateSynchronizedBlocksForNode(safeSynchronizedBlocks, cgNode, SynchronizedBlockKind.SAFE);
 				Collection<InstructionInfo> unsafeModifyingStaticFieldsInstructions = new HashSet<InstructionInfo>();
@@ -381,12 +425,20 @@ public class LCK06JBugDetector extends BugPatternDetector {
 						unsafeModifyingStaticFieldsInstructions.add(modifyingStaticFieldInstruction);
 					}
 				}
-				for (InstructionInfo modifyInstruction : modifyingStaticFieldsInstructions) {
-					Logger.log("MODIFY: " + modifyInstruction);
+				if (logger.isDebugEnabled()) {
+					for (InstructionInfo modifyInstruction : modifyingStaticFieldsInstructions) {
+						logger.debug("MODIFY: %s", modifyInstruction);
+					}
 				}
 				for (InstructionInfo unsafeModifyInstruction : unsafeModifyingStaticFieldsInstructions) {
-					bitVector.set(globalValues.add(unsafeModifyInstruction));
-					Logger.log("UNSAFE MODIFY: " + unsafeModifyInstruction);
+					if (Modes.isInSummaryMode()) {
+						for (IField modifiedStaticField : getModifiedStaticFields(unsafeModifyInstruction)) {
+							bitVector.set(globalFields.add(modifiedStaticField));
+						}
+					} else {
+						bitVector.set(globalValues.add(unsafeModifyInstruction));
+					}
+					logger.debug("UNSAFE MODIFY: %s", unsafeModifyInstruction);
 				}
 			}
 			cgNodeInfoMap.put(cgNode, new CGNodeInfo(safeSynchronizedBlocks, bitVector));
@@ -399,7 +451,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 		if (ir == null) {
 			return modifyingStaticFieldsInstructions;
 		}
-		AnalysisUtils.collect(javaProject, modifyingStaticFieldsInstructions, cgNode, new InstructionFilter() {
+		AnalysisUtils.collect(basicAnalysisData, modifyingStaticFieldsInstructions, cgNode, NodeInstructions.Kind.PUT, new InstructionFilter() {
 			@Override
 			public boolean accept(InstructionInfo instructionInfo) {
 				return canModifyStaticField(cgNode, instructionInfo.getInstruction());
@@ -419,7 +471,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 				if (accessedField.isStatic()) {
 					result = !accessedField.isFinal();
 				} else {
-					result = isPointedByAnyStaticField(instruction.getRef(), cgNode);
+					result = staticFieldIndex.isPointedByAnyStaticField(getPointerForValueNumber(cgNode, instruction.getRef()));
 				}
 			}
 
@@ -437,16 +489,16 @@ public class LCK06JBugDetector extends BugPatternDetector {
 	/*
 	 * FIXME: A synchronized block that is nested inside a safe one is
 	 * considered safe (See edu.illinois.keshmesh.detector.LCK06JBugDetector.
-	 * getActuallyUnsafeInstructions(BitVectorSolver<CGNode>, InstructionInfo)).
+	 * getActuallyUnsafeInstructions(SCCBitVectorSolver<CGNode>, InstructionInfo)).
 	 * So, this method should not return such synchronized blocks.
 	 */
 	private void populatedUnsafeSynchronizedStructures(Collection<InstructionInfo> unsafeSynchronizedBlocks, Collection<CGNode> unsafeSynchronizedMethods) {
 		Iterator<CGNode> cgNodesIterator = basicAnalysisData.callGraph.iterator();
 		while (cgNodesIterator.hasNext()) {
 			final CGNode cgNode = cgNodesIterator.next();
-			Logger.log("IR is:" + cgNode.getIR());
+			logger.trace("IR is:%s", cgNode.getIR());
 			IMethod method = cgNode.getMethod();
-			if (!isIgnoredClass(method.getDeclaringClass())) {
+			if (!isIgnoredClass(method.getDeclaringClass()) && isReanalyzed(cgNode)) {
 				populateSynchronizedBlocksForNode(unsafeSynchronizedBlocks, cgNode, SynchronizedBlockKind.UNSAFE);
 				if (isUnsafeSynchronized(cgNode)) {
 					unsafeSynchronizedMethods.add(cgNode);
@@ -455,63 +507,20 @@ public class LCK06JBugDetector extends BugPatternDetector {
 		}
 	}
 
-	private void populateSynchronizedBlocksForNode(Collection<InstructionInfo> synchronizedBlocks, final CGNode cgNode, final SynchronizedBlockKind synchronizedBlockKind) {
-		AnalysisUtils.collect(javaProject, synchronizedBlocks, cgNode, new InstructionFilter() {
-
-			@Override
-			public boolean accept(InstructionInfo instructionInfo) {
-				SSAInstruction instruction = instructionInfo.getInstruction();
-				if (AnalysisUtils.isMonitorEnter(instruction)) {
-					SSAMonitorInstruction monitorEnterInstruction = (SSAMonitorInstruction) instruction;
-					if (synchronizedBlockKind == SynchronizedBlockKind.SAFE) {
-						return isSafe(cgNode, monitorEnterInstruction);
-					} else {
-						return !isSafe(cgNode, monitorEnterInstruction);
-					}
-				}
-				return false;
-			}
-		});
-	}
-
-	boolean isSafe(CGNode cgNode, SSAMonitorInstruction monitorInstruction) {
-		if (!monitorInstruction.isMonitorEnter()) {
-			throw new AssertionError("Expected a monitor enter instruction.");
-		}
-		return isSafeLock(cgNode, monitorInstruction.getRef());
-	}
-
-	private boolean isSafeLock(CGNode cgNode, int lockValueNumber) {
-		PointerKey lockPointer = getPointerForValueNumber(cgNode, lockValueNumber);
-		Collection<InstanceKey> lockPointedInstances = getPointedInstances(lockPointer);
-		if (lockPointedInstances.isEmpty() || !instancesPointedByStaticFields.containsAll(lockPointedInstances)) {
-			return false;
-		}
-		return true;
-	}
-
-	private void populateAllInstancesPointedByStaticFields() {
-		for (IField staticField : getAllStaticFields()) {
-			Logger.log("Static field: " + staticField);
-			PointerKey staticFieldPointer = basicAnalysisData.heapModel.getPointerKeyForStaticField(staticField);
-			Collection<InstanceKey> pointedInstances = getPointedInstances(staticFieldPointer);
-			for (InstanceKey instance : pointedInstances) {
-				Logger.log("Pointed instance: " + instance);
+	private void populateSynchronizedBlocksForNode(Collection<InstructionInfo> synchronizedBlocks, CGNode cgNode, SynchronizedBlockKind synchronizedBlockKind) {
+		for (LockSite synchronizedBlock : basicAnalysisData.getLockSites().getSynchronizedBlocks(cgNode)) {
+			if (isSafe(synchronizedBlock) == (synchronizedBlockKind == SynchronizedBlockKind.SAFE)) {
+				synchronizedBlocks.add(synchronizedBlock.getMonitorEnter());
 			}
-			instancesPointedByStaticFields.addAll(pointedInstances);
 		}
 	}
 
-	private Set<IField> getAllStaticFields() {
-		Set<IField> staticFields = new HashSet<IField>();
-		Iterator<IClass> classIterator = basicAnalysisData.classHierarchy.iterator();
-		while (classIterator.hasNext()) {
-			IClass klass = classIterator.next();
-			if (!isIgnoredClass(klass)) {
-				staticFields.addAll(klass.getAllStaticFields());
-			}
-		}
-		return staticFields;
+	/**
+	 * A lock is safe if it is the object of a class or if static fields may
+	 * point to all instances that it may point to.
+	 */
+	boolean isSafe(LockSite lockSite) {
+		return lockSite.locksDeclaringClass() || staticFieldIndex.isPointedOnlyByStaticFields(lockSite.getLockInstanceNumbers());
 	}
 
 	private boolean isIgnoredClass(IClass klass) {
@@ -520,9 +529,19 @@ public class LCK06JBugDetector extends BugPatternDetector {
 		return AnalysisUtils.isJDKClass(klass);
 	}
 
+	/**
+	 * The unsafe instructions of a synchronized block or method include the
+	 * ones propagated from its callees. So, this detector reanalyzes the
+	 * affected classes.
+	 */
+	@Override
+	protected boolean isReanalyzed(String enclosingClassName) {
+		return basicAnalysisData.changeImpact.isAffectedClass(enclosingClassName);
+	}
+
 	private CodePosition getPosition(CGNode cgNode) {
 		IMethod method = cgNode.getMethod();
-		return AnalysisUtils.getPosition(javaProject, method, 0);
+		return basicAnalysisData.codePositionResolver.getPosition(method, 0);
 	}
 
 	public boolean isSafeSynchronized(CGNode cgNode) {
@@ -534,7 +553,7 @@ public class LCK06JBugDetector extends BugPatternDetector {
 	}
 
 	private boolean isSafeMethod(CGNode cgNode) {
-		return cgNode.getMethod().isStatic() || isSafeLock(cgNode, AnalysisUtils.THIS_VALUE_NUMBER);
+		return isSafe(basicAnalysisData.getLockSites().getSynchronizedMethod(cgNode));
 	}
 
 }
@@ -6,6 +6,7 @@ package edu.illinois.keshmesh.detector;
 import java.util.Collection;
 
 import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.ipa.callgraph.CGNode;
 
 /**
  * 
@@ -17,6 +18,8 @@ public class LCK06JIntermediateResults extends IntermediateResults {
 
 	private String staticFields;
 
+	private String nodesWithDifferentSolutions;
+
 	public void setStaticFields(Collection<IField> staticFields) {
 		this.staticFields = getIntermediateResult(this.staticFields, staticFields);
 	}
@@ -25,4 +28,17 @@ public class LCK06JIntermediateResults extends IntermediateResults {
 		return staticFields;
 	}
 
+	/**
+	 * @param nodesWithDifferentSolutions
+	 *            the nodes whose in or out values differ between
+	 *            SCCBitVectorSolver and WALA's generic BitVectorSolver.
+	 */
+	public void setNodesWithDifferentSolutions(Collection<CGNode> nodesWithDifferentSolutions) {
+		this.nodesWithDifferentSolutions = getIntermediateResult(this.nodesWithDifferentSolutions, nodesWithDifferentSolutions);
+	}
+
+	public String getNodesWithDifferentSolutions() {
+		return nodesWithDifferentSolutions;
+	}
+
 }
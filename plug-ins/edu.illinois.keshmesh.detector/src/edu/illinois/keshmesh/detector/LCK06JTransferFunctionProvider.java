@@ -3,9 +3,6 @@
  */
 package edu.illinois.keshmesh.detector;
 
-import java.util.Iterator;
-
-import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.dataflow.graph.AbstractMeetOperator;
 import com.ibm.wala.dataflow.graph.BitVectorIdentity;
 import com.ibm.wala.dataflow.graph.BitVectorKillAll;
@@ -15,11 +12,7 @@ import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.ipa.callgraph.CGNode;
-import com.ibm.wala.ssa.IR;
 import com.ibm.wala.util.intset.IntIterator;
-import com.ibm.wala.util.intset.IntSet;
-
-import edu.illinois.keshmesh.detector.util.AnalysisUtils;
 
 /**
  * 
@@ -31,8 +24,12 @@ public class LCK06JTransferFunctionProvider implements ITransferFunctionProvider
 
 	private final LCK06JBugDetector lck06jBugDetector;
 
-	public LCK06JTransferFunctionProvider(LCK06JBugDetector lck06BugDetector) {
+	// The call sites that are not protected by any safe synchronized block of their callers.
+	private final CallSiteFlags unprotectedCallSites;
+
+	public LCK06JTransferFunctionProvider(LCK06JBugDetector lck06BugDetector, CallSiteFlags unprotectedCallSites) {
 		this.lck06jBugDetector = lck06BugDetector;
+		this.unprotectedCallSites = unprotectedCallSites;
 	}
 
 	@Override
@@ -48,19 +45,10 @@ public class LCK06JTransferFunctionProvider implements ITransferFunctionProvider
 	@Override
 	public UnaryOperator<BitVectorVariable> getEdgeTransferFunction(CGNode src, CGNode dst) {
 		if (!lck06jBugDetector.isSafeSynchronized(dst)) {
-			CGNodeInfo dstNodeInfo = lck06jBugDetector.getCGNodeInfoMap().get(dst);
-			Iterator<CallSiteReference> callSitesIterator = lck06jBugDetector.basicAnalysisData.callGraph.getPossibleSites(dst, src);
-			IR dstIR = dst.getIR();
-			while (callSitesIterator.hasNext()) {
-				CallSiteReference callSiteReference = callSitesIterator.next();
-				IntSet callInstructionIndices = dstIR.getCallInstructionIndices(callSiteReference);
-				IntIterator instructionIndicesIterator = callInstructionIndices.intIterator();
-				while (instructionIndicesIterator.hasNext()) {
-					int invokeInstructionIndex = instructionIndicesIterator.next();
-					InstructionInfo instructionInfo = new InstructionInfo(lck06jBugDetector.javaProject, dst, invokeInstructionIndex);
-					if (!AnalysisUtils.isProtectedByAnySynchronizedBlock(dstNodeInfo.getSafeSynchronizedBlocks(), instructionInfo)) {
-						return BitVectorIdentity.instance();
-					}
+			IntIterator instructionIndicesIterator = unprotectedCallSites.getCallInstructionIndexes(dst, src).intIterator();
+			while (instructionIndicesIterator.hasNext()) {
+				if (unprotectedCallSites.isSet(dst, instructionIndicesIterator.next())) {
+					return BitVectorIdentity.instance();
 				}
 			}
 		}
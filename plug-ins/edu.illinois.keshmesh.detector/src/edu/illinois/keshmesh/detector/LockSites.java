@@ -0,0 +1,201 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ssa.SSAMonitorInstruction;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+
+import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+
+/**
+ * The table of the places where the program acquires locks, i.e. the
+ * synchronized blocks and the synchronized methods of the CGNodes.
+ * 
+ * The table gets built once per analysis and is shared by all lock related
+ * detectors. So, the detectors neither look for the monitor enter
+ * instructions nor query the points-to sets of the locks again.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class LockSites {
+
+	public static class LockSite {
+
+		private final CGNode cgNode;
+
+		private final InstructionInfo monitorEnter;
+
+		private final int lockValueNumber;
+
+		private final IntSet lockInstanceNumbers;
+
+		private final PointsToSets pointsToSets;
+
+		private Set<IClass> lockTypes = null;
+
+		private LockSite(CGNode cgNode, InstructionInfo monitorEnter, int lockValueNumber, BasicAnalysisData basicAnalysisData) {
+			this.cgNode = cgNode;
+			this.monitorEnter = monitorEnter;
+			this.lockValueNumber = lockValueNumber;
+			this.pointsToSets = basicAnalysisData.pointsToSets;
+			if (lockValueNumber < 0) {
+				this.lockInstanceNumbers = EmptyIntSet.instance;
+			} else {
+				this.lockInstanceNumbers = pointsToSets.getPointedInstanceNumbers(basicAnalysisData.heapModel.getPointerKeyForLocal(cgNode, lockValueNumber));
+			}
+		}
+
+		public CGNode getCGNode() {
+			return cgNode;
+		}
+
+		public boolean isSynchronizedMethod() {
+			return monitorEnter == null;
+		}
+
+		/**
+		 * @return the monitor enter instruction of a synchronized block, or
+		 *         null for a synchronized method.
+		 */
+		public InstructionInfo getMonitorEnter() {
+			return monitorEnter;
+		}
+
+		/**
+		 * @return true for a static synchronized method, which locks the
+		 *         object of its declaring class.
+		 */
+		public boolean locksDeclaringClass() {
+			return lockValueNumber < 0;
+		}
+
+		/**
+		 * @return the value number of the lock, or -1 for a static
+		 *         synchronized method.
+		 */
+		public int getLockValueNumber() {
+			return lockValueNumber;
+		}
+
+		/**
+		 * @return the numbers of the instances that the lock may point to (see
+		 *         {@link PointsToSets}).
+		 */
+		public IntSet getLockInstanceNumbers() {
+			return lockInstanceNumbers;
+		}
+
+		public Collection<InstanceKey> getLockInstances() {
+			Collection<InstanceKey> lockInstances = new ArrayList<InstanceKey>(lockInstanceNumbers.size());
+			IntIterator lockInstanceNumbersIterator = lockInstanceNumbers.intIterator();
+			while (lockInstanceNumbersIterator.hasNext()) {
+				lockInstances.add(pointsToSets.getInstance(lockInstanceNumbersIterator.next()));
+			}
+			return lockInstances;
+		}
+
+		/**
+		 * @return the concrete types of the instances that the lock may point
+		 *         to.
+		 */
+		public synchronized Set<IClass> getLockTypes() {
+			if (lockTypes == null) {
+				Set<IClass> types = new HashSet<IClass>();
+				for (InstanceKey lockInstance : getLockInstances()) {
+					types.add(lockInstance.getConcreteType());
+				}
+				lockTypes = Collections.unmodifiableSet(types);
+			}
+			return lockTypes;
+		}
+
+		/**
+		 * @return true if the given instruction is inside the region that this
+		 *         lock site protects.
+		 */
+		public boolean isInside(InstructionInfo instructionInfo) {
+			if (isSynchronizedMethod()) {
+				return instructionInfo.getCGNode() == cgNode;
+			}
+			return instructionInfo.isInside(monitorEnter);
+		}
+
+		@Override
+		public String toString() {
+			return "LockSite [cgNode=" + cgNode + ", monitorEnter=" + monitorEnter + ", lockValueNumber=" + lockValueNumber + "]";
+		}
+
+	}
+
+	private final List<LockSite> lockSites = new ArrayList<LockSite>();
+
+	private final Map<CGNode, List<LockSite>> synchronizedBlocks = new HashMap<CGNode, List<LockSite>>();
+
+	private final Map<CGNode, LockSite> synchronizedMethods = new HashMap<CGNode, LockSite>();
+
+	public LockSites(BasicAnalysisData basicAnalysisData) {
+		Iterator<CGNode> cgNodesIterator = basicAnalysisData.callGraph.iterator();
+		while (cgNodesIterator.hasNext()) {
+			CGNode cgNode = cgNodesIterator.next();
+			List<InstructionInfo> monitorEnters = basicAnalysisData.getNodeInstructions(cgNode).getInstructionInfos(NodeInstructions.Kind.MONITOR_ENTER);
+			if (!monitorEnters.isEmpty()) {
+				List<LockSite> synchronizedBlocksOfNode = new ArrayList<LockSite>(monitorEnters.size());
+				for (InstructionInfo monitorEnter : monitorEnters) {
+					synchronizedBlocksOfNode.add(new LockSite(cgNode, monitorEnter, ((SSAMonitorInstruction) monitorEnter.getInstruction()).getRef(), basicAnalysisData));
+				}
+				synchronizedBlocks.put(cgNode, Collections.unmodifiableList(synchronizedBlocksOfNode));
+				lockSites.addAll(synchronizedBlocksOfNode);
+			}
+			IMethod method = cgNode.getMethod();
+			if (method.isSynchronized()) {
+				LockSite synchronizedMethod = new LockSite(cgNode, null, method.isStatic() ? -1 : AnalysisUtils.THIS_VALUE_NUMBER, basicAnalysisData);
+				synchronizedMethods.put(cgNode, synchronizedMethod);
+				lockSites.add(synchronizedMethod);
+			}
+		}
+	}
+
+	public List<LockSite> getLockSites() {
+		return Collections.unmodifiableList(lockSites);
+	}
+
+	/**
+	 * @return the lock sites of the synchronized blocks of the given CGNode in
+	 *         the order of their monitor enter instructions.
+	 */
+	public List<LockSite> getSynchronizedBlocks(CGNode cgNode) {
+		List<LockSite> synchronizedBlocksOfNode = synchronizedBlocks.get(cgNode);
+		if (synchronizedBlocksOfNode == null) {
+			return Collections.emptyList();
+		}
+		return synchronizedBlocksOfNode;
+	}
+
+	/**
+	 * @return the lock site of the given CGNode if its method is synchronized,
+	 *         or null otherwise.
+	 */
+	public LockSite getSynchronizedMethod(CGNode cgNode) {
+		return synchronizedMethods.get(cgNode);
+	}
+
+}
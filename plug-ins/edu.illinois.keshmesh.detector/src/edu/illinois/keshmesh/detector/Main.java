@@ -3,11 +3,22 @@
  */
 package edu.illinois.keshmesh.detector;
 
-import java.util.Iterator;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.jdt.core.IJavaProject;
 
-import com.ibm.wala.analysis.pointers.BasicHeapGraph;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
@@ -15,12 +26,23 @@ import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.util.WalaException;
 import com.ibm.wala.util.io.FileProvider;
 
+import edu.illinois.keshmesh.detector.BasicAnalysisData.Artifact;
+import edu.illinois.keshmesh.detector.bugs.BugInstance;
 import edu.illinois.keshmesh.detector.bugs.BugInstances;
 import edu.illinois.keshmesh.detector.bugs.BugPattern;
 import edu.illinois.keshmesh.detector.bugs.BugPatterns;
+import edu.illinois.keshmesh.detector.cache.AnalysisResultsCache;
+import edu.illinois.keshmesh.detector.cache.AnalysisResultsCache.CachedAnalysis;
+import edu.illinois.keshmesh.detector.cache.ScopeFingerprint;
 import edu.illinois.keshmesh.detector.exception.Exceptions;
 import edu.illinois.keshmesh.detector.exception.Exceptions.WALAInitializationException;
+import edu.illinois.keshmesh.detector.util.CodePositionResolver;
 import edu.illinois.keshmesh.detector.util.DisplayUtils;
+import edu.illinois.keshmesh.detector.util.JavaProjectCodePositionResolver;
+import edu.illinois.keshmesh.util.Logger;
+import edu.illinois.keshmesh.util.Modes;
+import edu.illinois.keshmesh.walaconfig.EclipseProjectAnalysisEngine;
+import edu.illinois.keshmesh.walaconfig.KeshmeshAnalysisEngine;
 import edu.illinois.keshmesh.walaconfig.KeshmeshCGModel;
 
 /**
@@ -31,44 +53,235 @@ import edu.illinois.keshmesh.walaconfig.KeshmeshCGModel;
  */
 public class Main {
 
+	private static final Logger logger = Logger.getLogger(Main.class);
+
 	private static boolean hasShownGraphs = false;
 
+	/**
+	 * Builds the analysis data only if the cache of analysis results cannot
+	 * provide the bug instances.
+	 */
+	public interface BasicAnalysisDataBuilder {
+
+		BasicAnalysisData build() throws WALAInitializationException;
+
+	}
+
+	/**
+	 * Analyzes the given project. If the KESHMESH_CACHE_DIRECTORY environment
+	 * variable is set, it reuses the results of an earlier analysis of the
+	 * same project (see {@link #performAnalysis(AnalysisResultsCache, ScopeFingerprint, CodePositionResolver, BasicAnalysisDataBuilder)}).
+	 */
 	public static BugInstances initAndPerformAnalysis(IJavaProject javaProject) throws WALAInitializationException {
+		return initAndPerformAnalysis(javaProject, AnalysisResultsCache.fromEnvironment());
+	}
+
+	/**
+	 * Analyzes the given project and reuses the results of an earlier analysis
+	 * of the same project in the given cache, or analyzes the whole project if
+	 * the cache is null.
+	 */
+	public static BugInstances initAndPerformAnalysis(final IJavaProject javaProject, AnalysisResultsCache analysisResultsCache) throws WALAInitializationException {
+		if (analysisResultsCache == null) {
+			return performAnalysis(initBytecodeAnalysis(javaProject));
+		}
+		ScopeFingerprint fingerprint;
+		try {
+			EclipseProjectAnalysisEngine engine = new EclipseProjectAnalysisEngine(javaProject);
+			engine.setExclusionsFile(getExclusionsFileName());
+			fingerprint = ScopeFingerprint.compute(engine, BugPatterns.getEnabledBugPatterns());
+		} catch (IOException e) {
+			throw new WALAInitializationException(e);
+		}
+		return performAnalysis(analysisResultsCache, fingerprint, new JavaProjectCodePositionResolver(javaProject), new BasicAnalysisDataBuilder() {
+
+			@Override
+			public BasicAnalysisData build() throws WALAInitializationException {
+				return initBytecodeAnalysis(javaProject);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the cached bug instances if the inputs of the analysis have not
+	 * changed since the last cached analysis. Otherwise, it runs the detectors
+	 * and caches their results.
+	 * 
+	 * In incremental mode, if only the classes under analysis have changed, the
+	 * detectors reanalyze the classes impacted by the changes and the rest of
+	 * the cached bug instances get carried over (see {@link ChangeImpact}).
+	 */
+	public static BugInstances performAnalysis(AnalysisResultsCache analysisResultsCache, ScopeFingerprint fingerprint, CodePositionResolver codePositionResolver,
+			BasicAnalysisDataBuilder basicAnalysisDataBuilder) throws WALAInitializationException {
+		CachedAnalysis cachedAnalysis = analysisResultsCache.load(fingerprint);
+		if (cachedAnalysis != null && cachedAnalysis.isUpToDate(fingerprint)) {
+			logger.info("Reusing the cached analysis of %s", fingerprint);
+			return cachedAnalysis.getBugInstances(codePositionResolver);
+		}
+		BasicAnalysisData basicAnalysisData = basicAnalysisDataBuilder.build();
+		BugInstances bugInstances;
+		if (Modes.isInIncrementalMode() && cachedAnalysis != null && fingerprint.hasSameEnvironment(cachedAnalysis.getFingerprint())) {
+			ChangeImpact changeImpact = new ChangeImpact(basicAnalysisData.callGraph, fingerprint.getChangedClassNames(cachedAnalysis.getFingerprint()), cachedAnalysis.getDetectorStates());
+			logger.info("Analyzing %s incrementally: %s", fingerprint, changeImpact);
+			bugInstances = performIncrementalAnalysis(basicAnalysisData.restrictTo(changeImpact), cachedAnalysis.getBugInstances(codePositionResolver));
+		} else {
+			logger.info("Analyzing %s", fingerprint);
+			bugInstances = performAnalysis(basicAnalysisData);
+		}
+		analysisResultsCache.store(fingerprint, bugInstances, getDetectorStates());
+		return bugInstances;
+	}
+
+	/**
+	 * @return the states of the detectors of the enabled bug patterns after
+	 *         their last analysis (see
+	 *         {@link BugPatternDetector#getIncrementalState()}).
+	 */
+	private static Map<String, Serializable> getDetectorStates() {
+		Map<String, Serializable> detectorStates = new HashMap<String, Serializable>();
+		for (BugPattern bugPattern : BugPatterns.getEnabledBugPatterns()) {
+			Serializable detectorState = bugPattern.getBugPatternDetector().getIncrementalState();
+			if (detectorState != null) {
+				detectorStates.put(bugPattern.getName(), detectorState);
+			}
+		}
+		return detectorStates;
+	}
+
+	/**
+	 * Runs the detectors on the classes that they reanalyze and merges their
+	 * results with the bug instances of the earlier analysis in the other
+	 * classes.
+	 */
+	private static BugInstances performIncrementalAnalysis(BasicAnalysisData basicAnalysisData, BugInstances previousBugInstances) {
+		List<BugPattern> bugPatterns = BugPatterns.getEnabledBugPatterns();
+		BugInstances bugInstances = performAnalysis(basicAnalysisData);
+		for (BugInstance previousBugInstance : previousBugInstances) {
+			BugPattern bugPattern = previousBugInstance.getBugPattern();
+			if (bugPatterns.contains(bugPattern) && bugPattern.getBugPatternDetector().shouldCarryOver(previousBugInstance)) {
+				bugInstances.add(previousBugInstance);
+			}
+		}
+		return bugInstances;
+	}
+
+	/**
+	 * Runs the detectors of the enabled bug patterns on the given analysis
+	 * data.
+	 */
+	public static BugInstances performAnalysis(BasicAnalysisData basicAnalysisData) {
+		List<BugPattern> bugPatterns = BugPatterns.getEnabledBugPatterns();
+		if (Modes.isInParallelMode() && bugPatterns.size() > 1) {
+			return performAnalysisInParallel(basicAnalysisData, bugPatterns);
+		} else {
+			return performAnalysis(basicAnalysisData, bugPatterns);
+		}
+	}
+
+	private static BugInstances performAnalysis(BasicAnalysisData basicAnalysisData, List<BugPattern> bugPatterns) {
 		BugInstances bugInstances = new BugInstances();
-		BasicAnalysisData basicAnalysisData = initBytecodeAnalysis(javaProject);
-		Iterator<BugPattern> bugPatternsIterator = BugPatterns.iterator();
-		while (bugPatternsIterator.hasNext()) {
-			BugPattern bugPattern = bugPatternsIterator.next();
-			BugInstances instancesOfCurrentBugPattern = bugPattern.createBugPatternDetector().performAnalysis(javaProject, basicAnalysisData);
+		for (BugPattern bugPattern : bugPatterns) {
+			BugInstances instancesOfCurrentBugPattern = bugPattern.createBugPatternDetector().performAnalysis(basicAnalysisData);
 			bugInstances.addAll(instancesOfCurrentBugPattern);
 		}
 		return bugInstances;
 	}
 
+	/**
+	 * Runs the detectors of the given bug patterns on a bounded pool of
+	 * threads. The artifacts that the detectors require get built before the
+	 * detectors start. Each detector collects its results into its own BugInstances.
+	 * This method merges these results on the calling thread in the order of
+	 * the given bug patterns. So, the merged results do not depend on how the
+	 * detectors get scheduled.
+	 */
+	private static BugInstances performAnalysisInParallel(final BasicAnalysisData basicAnalysisData, List<BugPattern> bugPatterns) {
+		basicAnalysisData.prepareForConcurrentAccess();
+		// BugPattern#createBugPatternDetector() records the detector in the bug pattern. So, we call it on this thread.
+		List<BugPatternDetector> bugPatternDetectors = new ArrayList<BugPatternDetector>();
+		Set<Artifact> requiredArtifacts = EnumSet.noneOf(Artifact.class);
+		for (BugPattern bugPattern : bugPatterns) {
+			BugPatternDetector bugPatternDetector = bugPattern.createBugPatternDetector();
+			bugPatternDetectors.add(bugPatternDetector);
+			requiredArtifacts.addAll(bugPatternDetector.getRequiredArtifacts());
+		}
+		basicAnalysisData.build(requiredArtifacts);
+		int numberOfThreads = Math.min(bugPatterns.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			List<Future<BugInstances>> futures = new ArrayList<Future<BugInstances>>();
+			for (final BugPatternDetector bugPatternDetector : bugPatternDetectors) {
+				futures.add(executorService.submit(new Callable<BugInstances>() {
+
+					@Override
+					public BugInstances call() {
+						return bugPatternDetector.performAnalysis(basicAnalysisData);
+					}
+
+				}));
+			}
+			BugInstances bugInstances = new BugInstances();
+			for (Future<BugInstances> future : futures) {
+				bugInstances.addAll(getResult(future));
+			}
+			return bugInstances;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static BugInstances getResult(Future<BugInstances> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a detector.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
 	private static BasicAnalysisData initBytecodeAnalysis(IJavaProject javaProject) throws WALAInitializationException {
 		KeshmeshCGModel model;
 		try {
-			String exclusionsFileName = FileProvider.getFileFromPlugin(Activator.getDefault(), "EclipseDefaultExclusions.txt").getAbsolutePath();
-			model = new KeshmeshCGModel(javaProject, exclusionsFileName);
+			model = new KeshmeshCGModel(javaProject, getExclusionsFileName());
 			model.buildGraph();
 		} catch (Exception e) {
 			throw new Exceptions.WALAInitializationException(e);
 		}
-		CallGraph callGraph = model.getGraph();
-		PointerAnalysis pointerAnalysis = model.getPointerAnalysis();
-		HeapModel heapModel = pointerAnalysis.getHeapModel();
-		BasicHeapGraph basicHeapGraph = new BasicHeapGraph(pointerAnalysis, callGraph);
-		if (!hasShownGraphs) {
+		BasicAnalysisData basicAnalysisData = createBasicAnalysisData(model.getClassHierarchy(), model.getGraph(), model.getPointerAnalysis(), new JavaProjectCodePositionResolver(javaProject));
+		// Displaying the heap graph builds it. So, we display the graphs only if the display is enabled.
+		if (!hasShownGraphs && DisplayUtils.isEnabled()) {
 			try {
-				DisplayUtils.displayGraph(callGraph);
-				DisplayUtils.displayGraph(basicHeapGraph);
+				DisplayUtils.displayGraph(basicAnalysisData.callGraph);
+				DisplayUtils.displayGraph(basicAnalysisData.getBasicHeapGraph());
 				hasShownGraphs = true;
 			} catch (WalaException e) {
 				throw new WALAInitializationException(e);
 			}
 		}
-		IClassHierarchy classHierarchy = model.getClassHierarchy();
-		return new BasicAnalysisData(classHierarchy, callGraph, pointerAnalysis, heapModel, basicHeapGraph);
+		return basicAnalysisData;
+	}
+
+	/**
+	 * @return the absolute path of the exclusions file that the analysis of
+	 *         Eclipse projects uses.
+	 */
+	public static String getExclusionsFileName() throws IOException {
+		return FileProvider.getFileFromPlugin(Activator.getDefault(), KeshmeshAnalysisEngine.DEFAULT_EXCLUSIONS_FILE_NAME).getAbsolutePath();
+	}
+
+	public static BasicAnalysisData createBasicAnalysisData(IClassHierarchy classHierarchy, CallGraph callGraph, PointerAnalysis pointerAnalysis, CodePositionResolver codePositionResolver) {
+		HeapModel heapModel = pointerAnalysis.getHeapModel();
+		return new BasicAnalysisData(classHierarchy, callGraph, pointerAnalysis, heapModel, codePositionResolver);
 	}
 
 }
@@ -0,0 +1,125 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.util.intset.IntIterator;
+
+import edu.illinois.keshmesh.detector.util.MethodFacts;
+
+/**
+ * Indexes the instructions of a CGNode by their kinds.
+ * 
+ * The instructions of a CGNode get indexed once per analysis, in a single pass
+ * over its IR, when the CGNode is queried for the first time (see
+ * {@link BasicAnalysisData#getNodeInstructions(CGNode)}). The detectors and their
+ * phases then share the same InstructionInfo objects and visit only the
+ * instructions of the kinds that they are interested in, instead of walking
+ * the whole IR and allocating new InstructionInfo objects every time.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class NodeInstructions {
+
+	public enum Kind {
+		ANY, MONITOR_ENTER, FIELD_ACCESS, PUT, INVOKE
+	}
+
+	private static final NodeInstructions EMPTY_NODE_INSTRUCTIONS = new NodeInstructions();
+
+	// Indexed by the instruction indexes. The entries of null instructions are null.
+	private final InstructionInfo[] instructionInfosByIndex;
+
+	private final List<InstructionInfo> instructionInfos = new ArrayList<InstructionInfo>();
+
+	private final List<InstructionInfo> monitorEnters = new ArrayList<InstructionInfo>();
+
+	private final List<InstructionInfo> fieldAccesses = new ArrayList<InstructionInfo>();
+
+	private final List<InstructionInfo> puts = new ArrayList<InstructionInfo>();
+
+	private final List<InstructionInfo> invokes = new ArrayList<InstructionInfo>();
+
+	/**
+	 * @return the instructions of the given CGNode, indexed in a single pass
+	 *         over its IR. The detectors get the shared NodeInstructions of a
+	 *         CGNode from {@link BasicAnalysisData#getNodeInstructions(CGNode)}.
+	 */
+	static NodeInstructions create(CGNode cgNode) {
+		IR ir = cgNode.getIR();
+		if (ir == null) {
+			return EMPTY_NODE_INSTRUCTIONS;
+		}
+		return new NodeInstructions(cgNode, ir);
+	}
+
+	private NodeInstructions() {
+		instructionInfosByIndex = new InstructionInfo[0];
+	}
+
+	private NodeInstructions(CGNode cgNode, IR ir) {
+		SSAInstruction[] instructions = ir.getInstructions();
+		instructionInfosByIndex = new InstructionInfo[instructions.length];
+		for (int instructionIndex = 0; instructionIndex < instructions.length; instructionIndex++) {
+			SSAInstruction instruction = instructions[instructionIndex];
+			if (instruction == null) {
+				continue;
+			}
+			InstructionInfo instructionInfo = new InstructionInfo(cgNode, instructionIndex, instruction);
+			instructionInfosByIndex[instructionIndex] = instructionInfo;
+			instructionInfos.add(instructionInfo);
+		}
+		// The instructions of each kind are the same for all CGNodes of a method.
+		MethodFacts methodFacts = MethodFacts.of(ir);
+		IntIterator monitorEnterIndexesIterator = methodFacts.getMonitorRegions().getMonitorEnterIndexes().intIterator();
+		while (monitorEnterIndexesIterator.hasNext()) {
+			monitorEnters.add(instructionInfosByIndex[monitorEnterIndexesIterator.next()]);
+		}
+		addInstructionInfos(fieldAccesses, methodFacts.getFieldAccessIndexes());
+		addInstructionInfos(puts, methodFacts.getPutIndexes());
+		addInstructionInfos(invokes, methodFacts.getInvokeIndexes());
+	}
+
+	private void addInstructionInfos(List<InstructionInfo> instructionInfosOfKind, int[] instructionIndexes) {
+		for (int instructionIndex : instructionIndexes) {
+			instructionInfosOfKind.add(instructionInfosByIndex[instructionIndex]);
+		}
+	}
+
+	/**
+	 * @return the InstructionInfo of the instruction at the given index, or
+	 *         null if there is no instruction at the given index.
+	 */
+	public InstructionInfo getInstructionInfo(int instructionIndex) {
+		return instructionInfosByIndex[instructionIndex];
+	}
+
+	/**
+	 * @return the InstructionInfos of the non-null instructions of the given
+	 *         kind in the order of their instruction indexes.
+	 */
+	public List<InstructionInfo> getInstructionInfos(Kind kind) {
+		switch (kind) {
+		case MONITOR_ENTER:
+			return Collections.unmodifiableList(monitorEnters);
+		case FIELD_ACCESS:
+			return Collections.unmodifiableList(fieldAccesses);
+		case PUT:
+			return Collections.unmodifiableList(puts);
+		case INVOKE:
+			return Collections.unmodifiableList(invokes);
+		default:
+			return Collections.unmodifiableList(instructionInfos);
+		}
+	}
+
+}
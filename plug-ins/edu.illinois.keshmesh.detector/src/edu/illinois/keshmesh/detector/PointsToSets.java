@@ -0,0 +1,74 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+
+/**
+ * Answers points-to queries in terms of the numbers of the instances in the
+ * instance key mapping of the pointer analysis, which is the numbering that
+ * the pointer analysis uses internally. So, the detectors can intersect
+ * and compare points-to sets as int sets instead of copying them into sets of
+ * instance keys.
+ * 
+ * The points-to set of each pointer gets looked up once and is shared by all
+ * detectors. The returned sets must not be modified.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class PointsToSets {
+
+	private final PointerAnalysis pointerAnalysis;
+
+	private final OrdinalSetMapping<InstanceKey> instanceKeyMapping;
+
+	private final ConcurrentMap<PointerKey, IntSet> pointedInstanceNumbers = new ConcurrentHashMap<PointerKey, IntSet>();
+
+	public PointsToSets(PointerAnalysis pointerAnalysis) {
+		this.pointerAnalysis = pointerAnalysis;
+		this.instanceKeyMapping = pointerAnalysis.getInstanceKeyMapping();
+	}
+
+	/**
+	 * @return the numbers of the instances that the given pointer may point to.
+	 */
+	public IntSet getPointedInstanceNumbers(PointerKey pointer) {
+		IntSet instanceNumbers = pointedInstanceNumbers.get(pointer);
+		if (instanceNumbers == null) {
+			instanceNumbers = pointerAnalysis.getPointsToSet(pointer).getBackingSet();
+			if (instanceNumbers == null) {
+				instanceNumbers = EmptyIntSet.instance;
+			}
+			pointedInstanceNumbers.put(pointer, instanceNumbers);
+		}
+		return instanceNumbers;
+	}
+
+	public InstanceKey getInstance(int instanceNumber) {
+		return instanceKeyMapping.getMappedObject(instanceNumber);
+	}
+
+	public int getMaximumInstanceNumber() {
+		return instanceKeyMapping.getMaximumIndex();
+	}
+
+	public static boolean intersects(IntSet instanceNumbers1, IntSet instanceNumbers2) {
+		return !instanceNumbers1.isEmpty() && !instanceNumbers2.isEmpty() && instanceNumbers1.containsAny(instanceNumbers2);
+	}
+
+	public static boolean isSubset(IntSet instanceNumbers1, IntSet instanceNumbers2) {
+		return instanceNumbers1.isEmpty() || instanceNumbers1.isSubset(instanceNumbers2);
+	}
+
+}
@@ -0,0 +1,103 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+
+import edu.illinois.keshmesh.util.Logger;
+
+/**
+ * Indexes the static fields by the instances that they may point to.
+ * 
+ * The instances are identified by their numbers in the instance key mapping of
+ * the pointer analysis (see {@link PointsToSets}). So, checking whether a
+ * pointer may point to an instance that a static field points to is an
+ * intersection of two int sets rather than a scan over all static fields.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class StaticFieldIndex {
+
+	private static final Logger logger = Logger.getLogger(StaticFieldIndex.class);
+
+	private final PointsToSets pointsToSets;
+
+	private final Collection<IField> staticFields;
+
+	// The numbers of the instances that some static field may point to.
+	private final BitVectorIntSet instancesPointedByStaticFields = new BitVectorIntSet();
+
+	private final Map<Integer, Collection<IField>> staticFieldsPointingToInstance = new HashMap<Integer, Collection<IField>>();
+
+	public StaticFieldIndex(BasicAnalysisData basicAnalysisData, Collection<IField> staticFields) {
+		this.pointsToSets = basicAnalysisData.pointsToSets;
+		this.staticFields = Collections.unmodifiableCollection(new ArrayList<IField>(staticFields));
+		for (IField staticField : staticFields) {
+			logger.debug("Static field: %s", staticField);
+			IntSet pointedInstances = pointsToSets.getPointedInstanceNumbers(basicAnalysisData.heapModel.getPointerKeyForStaticField(staticField));
+			IntIterator pointedInstancesIterator = pointedInstances.intIterator();
+			while (pointedInstancesIterator.hasNext()) {
+				int pointedInstance = pointedInstancesIterator.next();
+				logger.debug("Pointed instance: %s", pointsToSets.getInstance(pointedInstance));
+				instancesPointedByStaticFields.add(pointedInstance);
+				Collection<IField> fields = staticFieldsPointingToInstance.get(pointedInstance);
+				if (fields == null) {
+					fields = new ArrayList<IField>();
+					staticFieldsPointingToInstance.put(pointedInstance, fields);
+				}
+				fields.add(staticField);
+			}
+		}
+	}
+
+	public Collection<IField> getStaticFields() {
+		return staticFields;
+	}
+
+	/**
+	 * @return true if the given pointer may point to an instance that some
+	 *         static field may point to.
+	 */
+	public boolean isPointedByAnyStaticField(PointerKey pointer) {
+		return PointsToSets.intersects(pointsToSets.getPointedInstanceNumbers(pointer), instancesPointedByStaticFields);
+	}
+
+	/**
+	 * @return true if the given set of instance numbers is not empty and
+	 *         static fields may point to all of its instances.
+	 */
+	public boolean isPointedOnlyByStaticFields(IntSet pointedInstances) {
+		return !pointedInstances.isEmpty() && PointsToSets.isSubset(pointedInstances, instancesPointedByStaticFields);
+	}
+
+	/**
+	 * @return the static fields that may point to an instance that the given
+	 *         pointer may point to.
+	 */
+	public Collection<IField> getStaticFieldsPointingTo(PointerKey pointer) {
+		Collection<IField> fields = new HashSet<IField>();
+		IntIterator pointedInstancesIterator = pointsToSets.getPointedInstanceNumbers(pointer).intIterator();
+		while (pointedInstancesIterator.hasNext()) {
+			Collection<IField> fieldsPointingToInstance = staticFieldsPointingToInstance.get(pointedInstancesIterator.next());
+			if (fieldsPointingToInstance != null) {
+				fields.addAll(fieldsPointingToInstance);
+			}
+		}
+		return fields;
+	}
+
+}
@@ -0,0 +1,156 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.propagation.ConcreteTypeKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.NormalAllocationInNode;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.strings.Atom;
+
+import edu.illinois.keshmesh.detector.util.KnownTypes;
+
+/**
+ * The classification of the classes and the instances of the program that
+ * the lock related detectors look up for every lock.
+ * 
+ * The classification gets computed once per analysis into bit vectors. The
+ * bit vectors of the classes are indexed by the numbers of the classes (see
+ * {@link ClassNumbering}) and the bit vector of the instances is indexed by
+ * the numbers of the instances (see {@link PointsToSets}). So, each lookup is
+ * a single bit test.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class TypePredicates {
+
+	/**
+	 * An allocation site of the JDK that returns instances that the JDK
+	 * caches and shares, e.g. Integer.valueOf().
+	 */
+	private static class ReusableAllocationSite {
+
+		private final TypeName allocatedType;
+
+		private final TypeName allocatingClass;
+
+		private final Atom allocatingMethodName;
+
+		ReusableAllocationSite(TypeReference allocatedType, String allocatingClass, Atom allocatingMethodName) {
+			this.allocatedType = allocatedType.getName();
+			this.allocatingClass = TypeName.string2TypeName(allocatingClass);
+			this.allocatingMethodName = allocatingMethodName;
+		}
+
+		boolean matches(TypeName type, IMethod allocatingMethod) {
+			return type == allocatedType && allocatingMethod.getDeclaringClass().getName() == allocatingClass && allocatingMethod.getName() == allocatingMethodName;
+		}
+
+	}
+
+	private static final Atom VALUE_OF = Atom.findOrCreateUnicodeAtom("valueOf"); //$NON-NLS-1$
+
+	private static final Atom INTERN = Atom.findOrCreateUnicodeAtom("intern"); //$NON-NLS-1$
+
+	private static final ReusableAllocationSite[] REUSABLE_ALLOCATION_SITES = new ReusableAllocationSite[] {
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_STRING, "Ljava/lang/String", INTERN), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_BOOLEAN, "Ljava/lang/Boolean", MethodReference.clinitName), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_INTEGER, "Ljava/lang/Integer", VALUE_OF), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_LONG, "Ljava/lang/Long$LongCache", MethodReference.clinitName), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_LONG, "Ljava/lang/Long", VALUE_OF), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_SHORT, "Ljava/lang/Short$ShortCache", MethodReference.clinitName), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_SHORT, "Ljava/lang/Short", VALUE_OF), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_FLOAT, "Ljava/lang/Float", VALUE_OF), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_DOUBLE, "Ljava/lang/Double", VALUE_OF), //$NON-NLS-1$
+			new ReusableAllocationSite(KnownTypes.JAVA_LANG_BYTE, "Ljava/lang/Byte$ByteCache", MethodReference.clinitName) }; //$NON-NLS-1$
+
+	private final ClassNumbering classNumbering;
+
+	// Indexed by the numbers of the classes.
+	private final BitVector lockClasses;
+
+	private final BitVector conditionClasses;
+
+	// Indexed by the numbers of the instances.
+	private final BitVector reusableInstances = new BitVector();
+
+	public TypePredicates(BasicAnalysisData basicAnalysisData) {
+		this.classNumbering = basicAnalysisData.getClassNumbering();
+		this.lockClasses = getImplementors(basicAnalysisData.classHierarchy, KnownTypes.JAVA_UTIL_CONCURRENT_LOCKS_LOCK);
+		this.conditionClasses = getImplementors(basicAnalysisData.classHierarchy, KnownTypes.JAVA_UTIL_CONCURRENT_LOCKS_CONDITION);
+		PointsToSets pointsToSets = basicAnalysisData.pointsToSets;
+		for (int instanceNumber = 0; instanceNumber <= pointsToSets.getMaximumInstanceNumber(); instanceNumber++) {
+			InstanceKey instanceKey = pointsToSets.getInstance(instanceNumber);
+			if (instanceKey != null && isReusable(instanceKey)) {
+				reusableInstances.set(instanceNumber);
+			}
+		}
+	}
+
+	private BitVector getImplementors(IClassHierarchy classHierarchy, TypeReference interfaceType) {
+		BitVector implementors = new BitVector(classNumbering.getNumberOfClasses());
+		if (classHierarchy.lookupClass(interfaceType) != null) {
+			for (IClass implementor : classHierarchy.getImplementors(interfaceType)) {
+				classNumbering.add(implementors, implementor);
+			}
+		}
+		return implementors;
+	}
+
+	/**
+	 * An instance is reusable if the JDK may return it to unrelated parts of
+	 * the program, i.e. a string constant, an interned string or a boxed
+	 * value that comes from the caches of the JDK.
+	 */
+	private static boolean isReusable(InstanceKey instanceKey) {
+		IClass concreteType = instanceKey.getConcreteType();
+		if (concreteType == null) {
+			return false;
+		}
+		TypeName type = concreteType.getName();
+		if (instanceKey instanceof NormalAllocationInNode) {
+			IMethod allocatingMethod = ((NormalAllocationInNode) instanceKey).getNode().getMethod();
+			for (ReusableAllocationSite reusableAllocationSite : REUSABLE_ALLOCATION_SITES) {
+				if (reusableAllocationSite.matches(type, allocatingMethod)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return instanceKey instanceof ConcreteTypeKey && KnownTypes.is(type, KnownTypes.JAVA_LANG_STRING);
+	}
+
+	/**
+	 * @return true if the given class implements
+	 *         java.util.concurrent.locks.Lock.
+	 */
+	public boolean isLock(IClass klass) {
+		return classNumbering.contains(lockClasses, klass);
+	}
+
+	/**
+	 * @return true if the given class implements
+	 *         java.util.concurrent.locks.Condition.
+	 */
+	public boolean isCondition(IClass klass) {
+		return classNumbering.contains(conditionClasses, klass);
+	}
+
+	/**
+	 * @return true if the instance with the given number is reusable (see
+	 *         {@link #isReusable(InstanceKey)}).
+	 */
+	public boolean isReusable(int instanceNumber) {
+		return reusableInstances.get(instanceNumber);
+	}
+
+}
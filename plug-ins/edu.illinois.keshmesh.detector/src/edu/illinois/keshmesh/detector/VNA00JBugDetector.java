@@ -3,47 +3,50 @@
  */
 package edu.illinois.keshmesh.detector;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-
-import org.eclipse.jdt.core.IJavaProject;
+import java.util.TreeSet;
 
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.SyntheticMethod;
-import com.ibm.wala.dataflow.graph.BitVectorFramework;
-import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceFieldPointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
-import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
 import com.ibm.wala.ssa.SSAFieldAccessInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAMonitorInstruction;
-import com.ibm.wala.util.CancelException;
-import com.ibm.wala.util.graph.Graph;
-import com.ibm.wala.util.graph.impl.GraphInverter;
-import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
 
+import edu.illinois.keshmesh.detector.BasicAnalysisData.Artifact;
+import edu.illinois.keshmesh.detector.LockSites.LockSite;
 import edu.illinois.keshmesh.detector.bugs.BugInstance;
 import edu.illinois.keshmesh.detector.bugs.BugInstances;
 import edu.illinois.keshmesh.detector.bugs.BugPatterns;
+import edu.illinois.keshmesh.detector.bugs.CodePosition;
 import edu.illinois.keshmesh.detector.bugs.VNA00JFixInformation;
 import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+import edu.illinois.keshmesh.detector.util.SCCBitVectorSolver;
+import edu.illinois.keshmesh.detector.util.HeapReachability;
+import edu.illinois.keshmesh.detector.util.KnownTypes;
+import edu.illinois.keshmesh.detector.util.MethodFacts;
 import edu.illinois.keshmesh.util.Logger;
 import edu.illinois.keshmesh.util.Modes;
 
@@ -55,103 +58,139 @@ import edu.illinois.keshmesh.util.Modes;
  */
 public class VNA00JBugDetector extends BugPatternDetector {
 
+	private static final Logger logger = Logger.getLogger(VNA00JBugDetector.class);
+
 	VNA00JIntermediateResults intermediateResults = new VNA00JIntermediateResults();
 
 	private final OrdinalSetMapping<InstructionInfo> globalValues = MutableMapping.make();
 
+	// The universe of the data flow problem in field granular mode (see Modes#isInFieldGranularMode()).
+	private final OrdinalSetMapping<FieldReference> globalFields = MutableMapping.make();
+
 	private final Map<CGNode, CGNodeInfo> cgNodeInfoMap = new HashMap<CGNode, CGNodeInfo>();
 
-	private Collection<IClass> threadSafeClasses;
+	// The call sites that pass AnalysisUtils#doesAllowPropagation.
+	private CallSiteFlags propagationAllowingCallSites;
+
+	// Indexed by the numbers of the classes (see ClassNumbering).
+	private BitVector threadSafeClasses;
+
+	private HeapReachability heapReachability;
 
 	@Override
 	public IntermediateResults getIntermediateResults() {
 		return intermediateResults;
 	}
 
+	@Override
+	public Set<Artifact> getRequiredArtifacts() {
+		return EnumSet.of(Artifact.HEAP_GRAPH, Artifact.REVERSE_CALL_GRAPH, Artifact.LOCK_SITES);
+	}
+
 	private boolean isThreadSafe(IClass klass) {
 		populateThreadSafeClassesLazily();
-		return threadSafeClasses.contains(klass);
+		return basicAnalysisData.getClassNumbering().contains(threadSafeClasses, klass);
 	}
 
 	private void populateThreadSafeClassesLazily() {
 		if (threadSafeClasses == null) {
 			populateThreadSafeClasses();
-			intermediateResults.setThreadSafeClasses(threadSafeClasses);
+			intermediateResults.setThreadSafeClasses(basicAnalysisData.getClassNumbering().getClasses(threadSafeClasses));
 		}
 	}
 
 	@Override
-	public BugInstances performAnalysis(IJavaProject javaProject, BasicAnalysisData basicAnalysisData) {
-		this.javaProject = javaProject;
+	public BugInstances performAnalysis(BasicAnalysisData basicAnalysisData) {
 		this.basicAnalysisData = basicAnalysisData;
-		Iterator<CGNode> cgNodesIter = basicAnalysisData.callGraph.iterator();
 		populateThreadSafeClassesLazily();
-
-		while (cgNodesIter.hasNext()) {
-			CGNode cgNode = cgNodesIter.next();
-			Logger.log("CGNode:" + cgNode);
-			Logger.log("IR: " + cgNode.getIR());
+		if (!basicAnalysisData.changeImpact.isEverything() && !getThreadSafeClassNames().equals(basicAnalysisData.changeImpact.getPreviousDetectorState(BugPatterns.VNA00J))) {
+			logger.info("Reanalyzing all classes because the thread safe classes have changed since the last analysis.");
+			this.basicAnalysisData = basicAnalysisData.restrictTo(ChangeImpact.EVERYTHING);
+		}
+		heapReachability = createHeapReachability();
+
+		if (logger.isTraceEnabled()) {
+			Iterator<CGNode> cgNodesIter = basicAnalysisData.callGraph.iterator();
+			while (cgNodesIter.hasNext()) {
+				CGNode cgNode = cgNodesIter.next();
+				logger.trace("CGNode:%s", cgNode);
+				logger.trace("IR: %s", cgNode.getIR());
+			}
 		}
 		collectUnprotectedInstructionsThatMayAccessUnsafelySharedFields();
 
-		BitVectorSolver<CGNode> bitVectorSolver = propagateUnprotectedInstructionThatMayAccessUnsafelySharedFields();
+		SCCBitVectorSolver<CGNode> bitVectorSolver = propagateUnprotectedInstructionThatMayAccessUnsafelySharedFields();
 		Collection<InstructionInfo> instructionInfosToReport = getInstructionsToReport(bitVectorSolver);
 
 		return createBugInstances(instructionInfosToReport);
 	}
 
-	//TODO: All derived classes of a thread safe class should be considered thread safe as well. 
-	private void populateThreadSafeClasses() {
-		threadSafeClasses = new HashSet<IClass>();
-		Iterator<CGNode> cgNodesIter = basicAnalysisData.callGraph.iterator();
-		while (cgNodesIter.hasNext()) {
-			CGNode cgNode = cgNodesIter.next();
-			if (!isIgnoredClass(cgNode.getMethod().getDeclaringClass()) && belongsToThreadSafeClass(cgNode)) {
-				threadSafeClasses.add(cgNode.getMethod().getDeclaringClass());
-			}
+	private TreeSet<String> getThreadSafeClassNames() {
+		TreeSet<String> threadSafeClassNames = new TreeSet<String>();
+		for (IClass threadSafeClass : basicAnalysisData.getClassNumbering().getClasses(threadSafeClasses)) {
+			threadSafeClassNames.add(threadSafeClass.getName().toString());
 		}
+		return threadSafeClassNames;
 	}
 
-	private boolean belongsToThreadSafeClass(CGNode cgNode) {
-		IClass declaringClass = cgNode.getMethod().getDeclaringClass();
-		if (implementsRunnableInterface(declaringClass) || extendsThreadClass(declaringClass)) {
-			return true;
-		} else {
-			return AnalysisUtils.contains(javaProject, cgNode, new InstructionFilter() {
-				@Override
-				public boolean accept(InstructionInfo instructionInfo) {
-					return instructionInfo.getInstruction() instanceof SSAMonitorInstruction;
-				}
-			});
+	/**
+	 * Whether an access to a field gets reported depends on the thread safe
+	 * classes of the whole program. A change to a class can make other classes
+	 * thread safe, e.g. its subclasses, without affecting the callers of the
+	 * changed class. So, an incremental analysis reanalyzes all classes if the
+	 * thread safe classes differ from the ones of the earlier analysis.
+	 */
+	@Override
+	public Serializable getIncrementalState() {
+		if (threadSafeClasses == null) {
+			return null;
 		}
+		return getThreadSafeClassNames();
 	}
 
-	private boolean extendsThreadClass(IClass klass) {
-		IClass superclass = klass.getSuperclass();
-		if (superclass == null) {
-			return false;
+	/**
+	 * A class is thread safe if it implements Runnable, extends Thread or
+	 * declares a method that has monitor instructions. All subclasses of a
+	 * thread safe class are thread safe as well.
+	 */
+	private void populateThreadSafeClasses() {
+		IClassHierarchy classHierarchy = basicAnalysisData.classHierarchy;
+		threadSafeClasses = new BitVector(basicAnalysisData.getClassNumbering().getNumberOfClasses());
+		for (IClass runnableClass : classHierarchy.getImplementors(KnownTypes.JAVA_LANG_RUNNABLE)) {
+			addThreadSafeClassAndSubclasses(runnableClass);
 		}
-		if (isThreadClass(superclass)) {
-			return true;
+		IClass threadClass = classHierarchy.lookupClass(KnownTypes.JAVA_LANG_THREAD);
+		if (threadClass != null) {
+			addThreadSafeClassAndSubclasses(threadClass);
 		}
-		return extendsThreadClass(superclass);
-	}
-
-	private boolean implementsRunnableInterface(IClass klass) {
-		for (IClass implementedInterface : klass.getAllImplementedInterfaces()) {
-			if (isRunnableInterface(implementedInterface)) {
-				return true;
+		Iterator<CGNode> cgNodesIter = basicAnalysisData.callGraph.iterator();
+		while (cgNodesIter.hasNext()) {
+			CGNode cgNode = cgNodesIter.next();
+			IClass declaringClass = cgNode.getMethod().getDeclaringClass();
+			if (!basicAnalysisData.getClassNumbering().contains(threadSafeClasses, declaringClass) && hasMonitorInstructions(cgNode)) {
+				addThreadSafeClassAndSubclasses(declaringClass);
 			}
 		}
-		return false;
 	}
 
-	private boolean isRunnableInterface(IClass interfaceClass) {
-		return AnalysisUtils.getEnclosingNonanonymousClassName(interfaceClass.getName()).equals("java.lang.Runnable");
+	private void addThreadSafeClassAndSubclasses(IClass klass) {
+		ClassNumbering classNumbering = basicAnalysisData.getClassNumbering();
+		if (klass.isInterface()) {
+			if (!isIgnoredClass(klass)) {
+				classNumbering.add(threadSafeClasses, klass);
+			}
+			return;
+		}
+		for (IClass subclass : basicAnalysisData.classHierarchy.computeSubClasses(klass.getReference())) {
+			if (!isIgnoredClass(subclass)) {
+				classNumbering.add(threadSafeClasses, subclass);
+			}
+		}
 	}
 
-	private boolean isThreadClass(IClass klass) {
-		return AnalysisUtils.getEnclosingNonanonymousClassName(klass.getName()).equals("java.lang.Thread");
+	private boolean hasMonitorInstructions(CGNode cgNode) {
+		IR ir = cgNode.getIR();
+		return ir != null && MethodFacts.of(ir).hasMonitorInstructions();
 	}
 
 	/**
@@ -163,18 +202,10 @@ public class VNA00JBugDetector extends BugPatternDetector {
 	 * @param cgNode
 	 * @param synchronizedBlockKind
 	 */
-	private void populateSynchronizedBlocksForNode(Collection<InstructionInfo> synchronizedBlocks, final CGNode cgNode) {
-		AnalysisUtils.collect(javaProject, synchronizedBlocks, cgNode, new InstructionFilter() {
-
-			@Override
-			public boolean accept(InstructionInfo instructionInfo) {
-				SSAInstruction instruction = instructionInfo.getInstruction();
-				if (AnalysisUtils.isMonitorEnter(instruction)) {
-					return true;
-				}
-				return false;
-			}
-		});
+	private void populateSynchronizedBlocksForNode(Collection<InstructionInfo> synchronizedBlocks, CGNode cgNode) {
+		for (LockSite synchronizedBlock : basicAnalysisData.getLockSites().getSynchronizedBlocks(cgNode)) {
+			synchronizedBlocks.add(synchronizedBlock.getMonitorEnter());
+		}
 	}
 
 	/**
@@ -205,20 +236,22 @@ public class VNA00JBugDetector extends BugPatternDetector {
 			BitVector bitVector = new BitVector();
 			Collection<InstructionInfo> synchronizedBlocks = new HashSet<InstructionInfo>();
 			Collection<InstructionInfo> unprotectedInstructionsThatMayAccessUnsafelySharedFields = new HashSet<InstructionInfo>();
-			if (canContainUnprotectedInstructions(cgNode.getMethod())) {
+			if (canContainUnprotectedInstructions(cgNode.getMethod()) && basicAnalysisData.changeImpact.isInfluencing(cgNode)) {
 				Collection<InstructionInfo> instructionsThatMayAccessUnsafelySharedFields = getInstructionsThatMayAccessUnsafelySharedFields(cgNode);
 				populateSynchronizedBlocksForNode(synchronizedBlocks, cgNode);
-				for (InstructionInfo instructionThatMayAccessesUnsafelySharedFields : instructionsThatMayAccessUnsafelySharedFields) {
-					if (!AnalysisUtils.isProtectedByAnySynchronizedBlock(synchronizedBlocks, instructionThatMayAccessesUnsafelySharedFields)) {
-						unprotectedInstructionsThatMayAccessUnsafelySharedFields.add(instructionThatMayAccessesUnsafelySharedFields);
+				unprotectedInstructionsThatMayAccessUnsafelySharedFields = getUnprotectedInstructions(instructionsThatMayAccessUnsafelySharedFields);
+				if (logger.isDebugEnabled()) {
+					for (InstructionInfo instructionThatMayAccessesUnsafelySharedFields : instructionsThatMayAccessUnsafelySharedFields) {
+						logger.debug("UNSAFE ACCESS: %s", instructionThatMayAccessesUnsafelySharedFields);
 					}
 				}
-				for (InstructionInfo instructionThatMayAccessesUnsafelySharedFields : instructionsThatMayAccessUnsafelySharedFields) {
-					Logger.log("UNSAFE ACCESS: " + instructionThatMayAccessesUnsafelySharedFields);
-				}
 				for (InstructionInfo unprotectedInstruction : unprotectedInstructionsThatMayAccessUnsafelySharedFields) {
-					bitVector.set(globalValues.add(unprotectedInstruction));
-					Logger.log("UNPROTECTED INSTRUCTION: " + unprotectedInstruction);
+					if (Modes.isInFieldGranularMode()) {
+						bitVector.set(globalFields.add(((SSAFieldAccessInstruction) unprotectedInstruction.getInstruction()).getDeclaredField()));
+					} else {
+						bitVector.set(globalValues.add(unprotectedInstruction));
+					}
+					logger.debug("UNPROTECTED INSTRUCTION: %s", unprotectedInstruction);
 				}
 			}
 			cgNodeInfoMap.put(cgNode, new CGNodeInfo(synchronizedBlocks, bitVector));
@@ -233,6 +266,16 @@ public class VNA00JBugDetector extends BugPatternDetector {
 		}
 	}
 
+	private Collection<InstructionInfo> getUnprotectedInstructions(Collection<InstructionInfo> instructions) {
+		Collection<InstructionInfo> unprotectedInstructions = new HashSet<InstructionInfo>();
+		for (InstructionInfo instruction : instructions) {
+			if (!AnalysisUtils.isInsideAnySynchronizedBlock(instruction)) {
+				unprotectedInstructions.add(instruction);
+			}
+		}
+		return unprotectedInstructions;
+	}
+
 	private boolean canContainUnprotectedInstructions(IMethod method) {
 		return !method.isSynchronized() && !isIgnoredClass(method.getDeclaringClass()) && !isInitializationMethod(method);
 	}
@@ -242,6 +285,17 @@ public class VNA00JBugDetector extends BugPatternDetector {
 		return methodName.equals("<init>") || methodName.equals("<clinit>");
 	}
 
+	/**
+	 * An instruction gets reported in a method if it may access unsafely shared
+	 * fields or if it calls a method that propagates such accesses. So, this
+	 * detector reanalyzes the affected classes, or all classes if the thread
+	 * safe classes have changed (see {@link #getIncrementalState()}).
+	 */
+	@Override
+	protected boolean isReanalyzed(String enclosingClassName) {
+		return basicAnalysisData.changeImpact.isAffectedClass(enclosingClassName);
+	}
+
 	/**
 	 * 
 	 * See LCK06JBugDetector#isIgnoredClass
@@ -262,7 +316,7 @@ public class VNA00JBugDetector extends BugPatternDetector {
 	 */
 	private Collection<InstructionInfo> getInstructionsThatMayAccessUnsafelySharedFields(CGNode cgNode) {
 		Collection<InstructionInfo> instructionsThatMayAccessUnsafelySharedFields = new HashSet<InstructionInfo>();
-		AnalysisUtils.collect(javaProject, instructionsThatMayAccessUnsafelySharedFields, cgNode, new InstructionFilter() {
+		AnalysisUtils.collect(basicAnalysisData, instructionsThatMayAccessUnsafelySharedFields, cgNode, NodeInstructions.Kind.FIELD_ACCESS, new InstructionFilter() {
 
 			@Override
 			public boolean accept(InstructionInfo instructionInfo) {
@@ -289,17 +343,6 @@ public class VNA00JBugDetector extends BugPatternDetector {
 		return false;
 	}
 
-	private Collection<InstanceKey> getSuccNodes(CGNode cgNode, int valueNumber) {
-		PointerKey pointerForValueNumber = getPointerForValueNumber(cgNode, valueNumber);
-		Collection<InstanceKey> pointedInstances = new HashSet<InstanceKey>();
-		Iterator<Object> iterator = basicAnalysisData.basicHeapGraph.getSuccNodes(pointerForValueNumber);
-		while (iterator.hasNext()) {
-			InstanceKey nextInstanceKey = (InstanceKey) iterator.next();
-			pointedInstances.add(nextInstanceKey);
-		}
-		return pointedInstances;
-	}
-
 	/**
 	 * 
 	 * See LCK06JBugDetector#canModifyStaticField.
@@ -321,37 +364,32 @@ public class VNA00JBugDetector extends BugPatternDetector {
 					return true;
 				}
 			} else {
-				Collection<InstanceKey> pointedInstances = getSuccNodes(instructionInfo.getCGNode(), fieldAccessInstruction.getRef());
-				Graph<Object> invertedHeapGraph = GraphInverter.invert(basicAnalysisData.basicHeapGraph);
-				Set<Object> reachingHeapGraphNodes = DFS.getReachableNodes(invertedHeapGraph, pointedInstances);
-				return doesContainExternalPointer(reachingHeapGraphNodes, instructionInfo.getCGNode())
-						&& (isAnyThreadSafe(getConcreteTypes(pointedInstances)) || doesContainThreadSafeFieldPointer(reachingHeapGraphNodes));
+				Collection<InstanceKey> pointedInstances = getPointedInstances(getPointerForValueNumber(instructionInfo.getCGNode(), fieldAccessInstruction.getRef()));
+				return heapReachability.isReachableFromLocalPointerOfOtherNode(pointedInstances, instructionInfo.getCGNode())
+						&& (isAnyThreadSafe(getConcreteTypes(pointedInstances)) || heapReachability.isReachableFromFieldPointer(pointedInstances));
 			}
 		}
 		return false;
 	}
 
-	private boolean doesContainExternalPointer(Set<Object> reachingHeapGraphNodes, CGNode localCGNode) {
-		for (Object node : reachingHeapGraphNodes) {
-			if (node instanceof LocalPointerKey && isExternalPointer((LocalPointerKey) node, localCGNode)) {
-				return true;
+	/**
+	 * The heap reachability summarizes the local pointers of the methods other
+	 * than the initialization methods and the instance field pointers of the
+	 * thread safe classes. So, the thread safe classes should be populated
+	 * before calling this method.
+	 */
+	private HeapReachability createHeapReachability() {
+		return new HeapReachability(basicAnalysisData.getBasicHeapGraph(), new HeapReachability.LocalPointerFilter() {
+			@Override
+			public boolean accept(LocalPointerKey localPointerKey) {
+				return !isInitializationMethod(localPointerKey.getNode().getMethod());
 			}
-		}
-		return false;
-	}
-
-	private boolean doesContainThreadSafeFieldPointer(Set<Object> reachingNodes) {
-		for (Object node : reachingNodes) {
-			if (node instanceof InstanceFieldPointerKey && isThreadSafeFieldPointer((InstanceFieldPointerKey) node)) {
-				return true;
+		}, new HeapReachability.FieldPointerFilter() {
+			@Override
+			public boolean accept(InstanceFieldPointerKey instanceFieldPointerKey) {
+				return isThreadSafeFieldPointer(instanceFieldPointerKey);
 			}
-		}
-		return false;
-	}
-
-	private boolean isExternalPointer(LocalPointerKey pointerKey, CGNode cgNode) {
-		CGNode pointerNode = pointerKey.getNode();
-		return !isInitializationMethod(pointerNode.getMethod()) && pointerNode != cgNode;
+		});
 	}
 
 	private boolean isThreadSafeFieldPointer(InstanceFieldPointerKey pointerKey) {
@@ -366,13 +404,16 @@ public class VNA00JBugDetector extends BugPatternDetector {
 	 * 
 	 * @return
 	 */
-	private BitVectorSolver<CGNode> propagateUnprotectedInstructionThatMayAccessUnsafelySharedFields() {
-		VNA00JTransferFunctionProvider transferFunctions = new VNA00JTransferFunctionProvider(javaProject, basicAnalysisData.callGraph, cgNodeInfoMap, basicAnalysisData.classHierarchy);
-
-		BitVectorFramework<CGNode, InstructionInfo> bitVectorFramework = new BitVectorFramework<CGNode, InstructionInfo>(GraphInverter.invert(basicAnalysisData.callGraph), transferFunctions,
-				globalValues);
+	private SCCBitVectorSolver<CGNode> propagateUnprotectedInstructionThatMayAccessUnsafelySharedFields() {
+		propagationAllowingCallSites = new CallSiteFlags(basicAnalysisData, new InstructionFilter() {
+			@Override
+			public boolean accept(InstructionInfo invokeInstruction) {
+				return AnalysisUtils.doesAllowPropagation(invokeInstruction, basicAnalysisData.classHierarchy);
+			}
+		}, getNumberOfSolverThreads());
+		VNA00JTransferFunctionProvider transferFunctions = new VNA00JTransferFunctionProvider(cgNodeInfoMap, propagationAllowingCallSites);
 
-		BitVectorSolver<CGNode> bitVectorSolver = new BitVectorSolver<CGNode>(bitVectorFramework) {
+		SCCBitVectorSolver<CGNode> bitVectorSolver = new SCCBitVectorSolver<CGNode>(basicAnalysisData.getReverseCallGraph(), transferFunctions) {
 			@Override
 			protected BitVectorVariable makeNodeVariable(CGNode cgNode, boolean IN) {
 				BitVectorVariable nodeBitVectorVariable = new BitVectorVariable();
@@ -380,10 +421,14 @@ public class VNA00JBugDetector extends BugPatternDetector {
 				return nodeBitVectorVariable;
 			}
 		};
-		try {
-			bitVectorSolver.solve(null);
-		} catch (CancelException ex) {
-			throw new RuntimeException("Bitvector solver was stopped", ex);
+		bitVectorSolver.solve(getNumberOfSolverThreads());
+		if (Modes.isInTestMode()) {
+			// The bit vectors index the fields in field granular mode and the instructions otherwise.
+			if (Modes.isInFieldGranularMode()) {
+				intermediateResults.setNodesWithDifferentSolutions(getNodesWithDifferentSolutions(basicAnalysisData.getReverseCallGraph(), transferFunctions, globalFields, cgNodeInfoMap, bitVectorSolver));
+			} else {
+				intermediateResults.setNodesWithDifferentSolutions(getNodesWithDifferentSolutions(basicAnalysisData.getReverseCallGraph(), transferFunctions, globalValues, cgNodeInfoMap, bitVectorSolver));
+			}
 		}
 		return bitVectorSolver;
 	}
@@ -410,10 +455,8 @@ public class VNA00JBugDetector extends BugPatternDetector {
 	 * @param unsafeSynchronizedBlock
 	 * @return
 	 */
-	private Collection<InstructionInfo> getInstructionsToReport(final BitVectorSolver<CGNode> bitVectorSolver, final CGNode cgNode) {
+	private Collection<InstructionInfo> getInstructionsToReport(final SCCBitVectorSolver<CGNode> bitVectorSolver, final CGNode cgNode) {
 		final Collection<InstructionInfo> unprotectedInstructionsThatMayAccessUnsafelySharedFields = new HashSet<InstructionInfo>();
-		final Collection<InstructionInfo> synchronizedBlocks = new HashSet<InstructionInfo>();
-		populateSynchronizedBlocksForNode(synchronizedBlocks, cgNode);
 		IR ir = cgNode.getIR();
 		if (ir == null) {
 			return unprotectedInstructionsThatMayAccessUnsafelySharedFields; //should not really be null here
@@ -421,16 +464,21 @@ public class VNA00JBugDetector extends BugPatternDetector {
 
 		//Add the initial set of the given CGNode.
 		CGNodeInfo cgNodeInfo = cgNodeInfoMap.get(cgNode);
-		cgNodeInfo.getBitVectorContents(unprotectedInstructionsThatMayAccessUnsafelySharedFields, globalValues);
+		if (!Modes.isInFieldGranularMode()) {
+			cgNodeInfo.getBitVectorContents(unprotectedInstructionsThatMayAccessUnsafelySharedFields, globalValues);
+		} else if (!cgNodeInfo.getBitVector().isZero()) {
+			// The initial set of the CGNode consists of fields. So, recover the instructions that access them.
+			unprotectedInstructionsThatMayAccessUnsafelySharedFields.addAll(getUnprotectedInstructions(getInstructionsThatMayAccessUnsafelySharedFields(cgNode)));
+		}
 
 		//Add the instructions propagated from the callees.
-		AnalysisUtils.collect(javaProject, new HashSet<InstructionInfo>(), cgNode, new InstructionFilter() {
+		AnalysisUtils.collect(basicAnalysisData, new HashSet<InstructionInfo>(), cgNode, NodeInstructions.Kind.INVOKE, new InstructionFilter() {
 			@Override
 			public boolean accept(InstructionInfo instructionInfo) {
 				SSAInstruction instruction = instructionInfo.getInstruction();
 				if (instruction instanceof SSAAbstractInvokeInstruction) {
 					//FIXME: The following condition is similar to the one in edu.illinois.keshmesh.detector.VNA00JTransferFunctionProvider.getEdgeTransferFunction(CGNode, CGNode). We should consider removing this duplication.
-					if (!AnalysisUtils.isProtectedByAnySynchronizedBlock(synchronizedBlocks, instructionInfo) && AnalysisUtils.doesAllowPropagation(instructionInfo, basicAnalysisData.classHierarchy)) {
+					if (!AnalysisUtils.isInsideAnySynchronizedBlock(instructionInfo) && propagationAllowingCallSites.isSet(instructionInfo)) {
 						SSAAbstractInvokeInstruction invokeInstruction = (SSAAbstractInvokeInstruction) instruction;
 						// Add the unprotected instructions of the methods that are the targets of the invocation instruction. 
 						Set<CGNode> possibleTargets = basicAnalysisData.callGraph.getPossibleTargets(cgNode, invokeInstruction.getCallSite());
@@ -456,7 +504,7 @@ public class VNA00JBugDetector extends BugPatternDetector {
 	 * @param bitVectorSolver
 	 * @param cgNode
 	 */
-	private boolean hasPropagatedUnprotectedInstructions(BitVectorSolver<CGNode> bitVectorSolver, CGNode cgNode) {
+	private boolean hasPropagatedUnprotectedInstructions(SCCBitVectorSolver<CGNode> bitVectorSolver, CGNode cgNode) {
 		IntSet value = bitVectorSolver.getIn(cgNode).getValue();
 		if (value != null) {
 			IntIterator intIterator = value.intIterator();
@@ -467,13 +515,13 @@ public class VNA00JBugDetector extends BugPatternDetector {
 		return false;
 	}
 
-	private Collection<InstructionInfo> getInstructionsToReport(BitVectorSolver<CGNode> bitVectorSolver) {
+	private Collection<InstructionInfo> getInstructionsToReport(SCCBitVectorSolver<CGNode> bitVectorSolver) {
 		Iterator<CGNode> cgNodesIter = basicAnalysisData.callGraph.iterator();
 
 		final Collection<InstructionInfo> unprotectedInstructionsThatMayAccessUnsafelySharedFields = new HashSet<InstructionInfo>();
 		while (cgNodesIter.hasNext()) {
 			CGNode cgNode = cgNodesIter.next();
-			if (!isIgnoredClass(cgNode.getMethod().getDeclaringClass())) {
+			if (!isIgnoredClass(cgNode.getMethod().getDeclaringClass()) && isReanalyzed(cgNode)) {
 				unprotectedInstructionsThatMayAccessUnsafelySharedFields.addAll(getInstructionsToReport(bitVectorSolver, cgNode));
 			}
 		}
@@ -481,19 +529,17 @@ public class VNA00JBugDetector extends BugPatternDetector {
 	}
 
 	private BugInstances createBugInstances(Collection<InstructionInfo> instructionInfosToReport) {
-		BugInstances bugInstances = new BugInstances();
+		Collection<InstructionInfo> instructionInfosNotInFakeRootMethod = new ArrayList<InstructionInfo>();
 		for (InstructionInfo instructionInfo : instructionInfosToReport) {
 			if (!isInFakeRootMethod(instructionInfo)) {
-				//FIXME: The following try-catch block is a workaround for issue #41.
-				try {
-					bugInstances.add(new BugInstance(BugPatterns.VNA00J, instructionInfo.getPosition(), new VNA00JFixInformation()));
-				} catch (RuntimeException e) {
-					if (!e.getMessage().startsWith("Position not found.")) {
-						throw e;
-					}
-				}
+				instructionInfosNotInFakeRootMethod.add(instructionInfo);
 			}
 		}
+		//FIXME: The resolver leaves out the instructions whose positions are not found. This is a workaround for issue #41.
+		BugInstances bugInstances = new BugInstances();
+		for (CodePosition position : basicAnalysisData.codePositionResolver.getPositions(instructionInfosNotInFakeRootMethod).values()) {
+			bugInstances.add(new BugInstance(BugPatterns.VNA00J, position, new VNA00JFixInformation()));
+		}
 		return bugInstances;
 	}
 
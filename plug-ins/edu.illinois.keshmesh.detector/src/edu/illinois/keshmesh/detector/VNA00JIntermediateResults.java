@@ -21,6 +21,8 @@ public class VNA00JIntermediateResults extends IntermediateResults {
 
 	private String unprotectedInstructionsThatMayAccessUnsafelySharedFields;
 
+	private String nodesWithDifferentSolutions;
+
 	public void setThreadSafeClasses(Collection<IClass> threadSafeClasses) {
 		this.threadSafeClasses = getIntermediateResult(this.threadSafeClasses, threadSafeClasses);
 	}
@@ -37,4 +39,17 @@ public class VNA00JIntermediateResults extends IntermediateResults {
 		return unprotectedInstructionsThatMayAccessUnsafelySharedFields;
 	}
 
+	/**
+	 * @param nodesWithDifferentSolutions
+	 *            the nodes whose in or out values differ between
+	 *            SCCBitVectorSolver and WALA's generic BitVectorSolver.
+	 */
+	public void setNodesWithDifferentSolutions(Collection<CGNode> nodesWithDifferentSolutions) {
+		this.nodesWithDifferentSolutions = getIntermediateResult(this.nodesWithDifferentSolutions, nodesWithDifferentSolutions);
+	}
+
+	public String getNodesWithDifferentSolutions() {
+		return nodesWithDifferentSolutions;
+	}
+
 }
@@ -3,12 +3,9 @@
  */
 package edu.illinois.keshmesh.detector;
 
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.Map;
 
-import org.eclipse.jdt.core.IJavaProject;
-
-import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.dataflow.graph.AbstractMeetOperator;
 import com.ibm.wala.dataflow.graph.BitVectorUnion;
 import com.ibm.wala.dataflow.graph.BitVectorUnionVector;
@@ -16,12 +13,8 @@ import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.ipa.callgraph.CGNode;
-import com.ibm.wala.ipa.callgraph.CallGraph;
-import com.ibm.wala.ipa.cha.IClassHierarchy;
-import com.ibm.wala.ssa.IR;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.IntIterator;
-import com.ibm.wala.util.intset.IntSet;
 
 import edu.illinois.keshmesh.detector.util.AnalysisUtils;
 
@@ -35,16 +28,19 @@ import edu.illinois.keshmesh.detector.util.AnalysisUtils;
  */
 public class VNA00JTransferFunctionProvider implements ITransferFunctionProvider<CGNode, BitVectorVariable> {
 
-	private final IJavaProject javaProject;
-	private final CallGraph callGraph;
+	private static final UnaryOperator<BitVectorVariable> UNION_WITH_NOTHING = new BitVectorUnionVector(new BitVector());
+
 	private final Map<CGNode, CGNodeInfo> cgNodeInfoMap;
-	private final IClassHierarchy classHierarchy;
 
-	public VNA00JTransferFunctionProvider(IJavaProject javaProject, CallGraph callGraph, Map<CGNode, CGNodeInfo> cgNodeInfoMap, IClassHierarchy classHierarchy) {
-		this.javaProject = javaProject;
-		this.callGraph = callGraph;
+	// The call sites that pass AnalysisUtils#doesAllowPropagation.
+	private final CallSiteFlags propagationAllowingCallSites;
+
+	// Maps each source node to the transfer function that adds its initial set.
+	private final Map<CGNode, UnaryOperator<BitVectorVariable>> unionsWithInitialSets = new HashMap<CGNode, UnaryOperator<BitVectorVariable>>();
+
+	public VNA00JTransferFunctionProvider(Map<CGNode, CGNodeInfo> cgNodeInfoMap, CallSiteFlags propagationAllowingCallSites) {
 		this.cgNodeInfoMap = cgNodeInfoMap;
-		this.classHierarchy = classHierarchy;
+		this.propagationAllowingCallSites = propagationAllowingCallSites;
 	}
 
 	@Override
@@ -67,25 +63,28 @@ public class VNA00JTransferFunctionProvider implements ITransferFunctionProvider
 	@Override
 	public UnaryOperator<BitVectorVariable> getEdgeTransferFunction(CGNode src, CGNode dst) {
 		if (!dst.getMethod().isSynchronized()) {
-			CGNodeInfo srcNodeInfo = cgNodeInfoMap.get(src);
 			CGNodeInfo dstNodeInfo = cgNodeInfoMap.get(dst);
-			Iterator<CallSiteReference> callSitesIterator = callGraph.getPossibleSites(dst, src);
-			IR dstIR = dst.getIR();
-			while (callSitesIterator.hasNext()) {
-				CallSiteReference callSiteReference = callSitesIterator.next();
-				IntSet callInstructionIndices = dstIR.getCallInstructionIndices(callSiteReference);
-				IntIterator instructionIndicesIterator = callInstructionIndices.intIterator();
-				while (instructionIndicesIterator.hasNext()) {
-					int invokeInstructionIndex = instructionIndicesIterator.next();
-					InstructionInfo instructionInfo = new InstructionInfo(javaProject, dst, invokeInstructionIndex);
-					if (!AnalysisUtils.isProtectedByAnySynchronizedBlock(dstNodeInfo.getSafeSynchronizedBlocks(), instructionInfo)
-							&& AnalysisUtils.doesAllowPropagation(instructionInfo, classHierarchy)) {
-						return new BitVectorUnionVector(srcNodeInfo.getBitVector());
-					}
+			// The synchronized blocks of dst are either all of its synchronized blocks or none of them.
+			boolean hasSynchronizedBlocks = !dstNodeInfo.getSafeSynchronizedBlocks().isEmpty();
+			IntIterator instructionIndicesIterator = propagationAllowingCallSites.getCallInstructionIndexes(dst, src).intIterator();
+			while (instructionIndicesIterator.hasNext()) {
+				int invokeInstructionIndex = instructionIndicesIterator.next();
+				if (propagationAllowingCallSites.isSet(dst, invokeInstructionIndex)
+						&& !(hasSynchronizedBlocks && AnalysisUtils.isInsideAnySynchronizedBlock(dst, invokeInstructionIndex))) {
+					return getUnionWithInitialSet(src);
 				}
 			}
 		}
-		return new BitVectorUnionVector(new BitVector());
+		return UNION_WITH_NOTHING;
+	}
+
+	private UnaryOperator<BitVectorVariable> getUnionWithInitialSet(CGNode cgNode) {
+		UnaryOperator<BitVectorVariable> unionWithInitialSet = unionsWithInitialSets.get(cgNode);
+		if (unionWithInitialSet == null) {
+			unionWithInitialSet = new BitVectorUnionVector(cgNodeInfoMap.get(cgNode).getBitVector());
+			unionsWithInitialSets.put(cgNode, unionWithInitialSet);
+		}
+		return unionWithInitialSet;
 	}
 
 	@Override
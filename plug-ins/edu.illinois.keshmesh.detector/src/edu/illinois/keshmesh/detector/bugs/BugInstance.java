@@ -3,15 +3,24 @@
  */
 package edu.illinois.keshmesh.detector.bugs;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 /**
  * 
  * @author Mohsen Vakilian
  * @author Stas Negara
  * 
  */
-public class BugInstance {
+public class BugInstance implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
-	BugPattern bugPattern;
+	// Bug patterns hold their detectors. So, we serialize the name of the bug pattern instead.
+	transient BugPattern bugPattern;
 
 	CodePosition bugPosition;
 
@@ -101,6 +110,24 @@ public class BugInstance {
 		return true;
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(bugPattern.getName());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		String bugPatternName = (String) in.readObject();
+		for (BugPattern candidateBugPattern : BugPatterns.getAllBugPatterns()) {
+			if (candidateBugPattern.getName().equals(bugPatternName)) {
+				bugPattern = candidateBugPattern;
+			}
+		}
+		if (bugPattern == null) {
+			throw new InvalidObjectException("Unknown bug pattern: " + bugPatternName);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return bugPattern + " @ " + bugPosition + " : " + fixInformation;
@@ -4,6 +4,7 @@
 package edu.illinois.keshmesh.detector.bugs;
 
 import edu.illinois.keshmesh.detector.BugPatternDetector;
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
 
 /**
  * 
@@ -38,6 +39,14 @@ abstract public class BugPattern {
 
 	public abstract boolean hasFixer();
 
+	/**
+	 * @return the cheapest analysis profile that the detector of this bug
+	 *         pattern is precise enough with.
+	 */
+	public AnalysisProfile getRequiredAnalysisProfile() {
+		return AnalysisProfile.PRECISE;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
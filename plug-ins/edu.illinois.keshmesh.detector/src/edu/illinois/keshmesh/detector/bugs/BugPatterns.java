@@ -3,8 +3,13 @@
  */
 package edu.illinois.keshmesh.detector.bugs;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -33,6 +38,19 @@ public class BugPatterns {
 		enableBugPatterns(LCK01J, LCK02J, LCK03J, LCK06J, VNA00J);
 	}
 
+	public static void disableAllBugPatterns() {
+		bugPatternsMap.clear();
+	}
+
+	/**
+	 * 
+	 * @return all bug patterns that Keshmesh supports, whether enabled or
+	 *         not.
+	 */
+	public static List<BugPattern> getAllBugPatterns() {
+		return Arrays.asList(LCK01J, LCK02J, LCK03J, LCK06J, VNA00J);
+	}
+
 	public static BugPattern getBugPatternByName(String name) {
 		return bugPatternsMap.get(name);
 	}
@@ -41,4 +59,23 @@ public class BugPatterns {
 		return bugPatternsMap.values().iterator();
 	}
 
+	/**
+	 * 
+	 * @return the enabled bug patterns sorted by their names. Unlike
+	 *         {@link #iterator()}, the order of the returned bug patterns does
+	 *         not change from run to run.
+	 */
+	public static List<BugPattern> getEnabledBugPatterns() {
+		List<BugPattern> enabledBugPatterns = new ArrayList<BugPattern>(bugPatternsMap.values());
+		Collections.sort(enabledBugPatterns, new Comparator<BugPattern>() {
+
+			@Override
+			public int compare(BugPattern bugPattern1, BugPattern bugPattern2) {
+				return bugPattern1.getName().compareTo(bugPattern2.getName());
+			}
+
+		});
+		return enabledBugPatterns;
+	}
+
 }
@@ -3,7 +3,13 @@
  */
 package edu.illinois.keshmesh.detector.bugs;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
 
 /**
  * 
@@ -11,14 +17,17 @@ import org.eclipse.core.runtime.IPath;
  * @author Stas Negara
  * 
  */
-public class CodePosition {
+public class CodePosition implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	// [firstOffset, lastOffset)
 	private int firstOffset, lastOffset;
 
 	private int firstLine, lastLine;
 
-	private IPath sourcePath;
+	// IPath is not serializable. So, we serialize its portable string instead.
+	private transient IPath sourcePath;
 
 	private String fullyQualifiedEnclosingClassName;
 
@@ -29,6 +38,12 @@ public class CodePosition {
 		this.fullyQualifiedEnclosingClassName = fullyQualifiedClassName;
 	}
 
+	public CodePosition(int firstOffset, int lastOffset, int firstLine, int lastLine, IPath sourcePath, String fullyQualifiedClassName) {
+		this(firstLine, lastLine, sourcePath, fullyQualifiedClassName);
+		this.firstOffset = firstOffset;
+		this.lastOffset = lastOffset;
+	}
+
 	public int getFirstOffset() {
 		return firstOffset;
 	}
@@ -105,9 +120,20 @@ public class CodePosition {
 		return true;
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(sourcePath == null ? null : sourcePath.toPortableString());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		String portableSourcePath = (String) in.readObject();
+		sourcePath = portableSourcePath == null ? null : Path.fromPortableString(portableSourcePath);
+	}
+
 	@Override
 	public String toString() {
-		return sourcePath.toPortableString() + " / " + fullyQualifiedEnclosingClassName + " @ [" + firstLine + "--" + lastLine + "(" + firstOffset + ", " + lastOffset + ")" + "]";
+		return (sourcePath == null ? null : sourcePath.toPortableString()) + " / " + fullyQualifiedEnclosingClassName + " @ [" + firstLine + "--" + lastLine + "(" + firstOffset + ", " + lastOffset + ")" + "]";
 	}
 
 }
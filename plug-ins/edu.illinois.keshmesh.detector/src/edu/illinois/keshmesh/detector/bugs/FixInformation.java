@@ -3,13 +3,17 @@
  */
 package edu.illinois.keshmesh.detector.bugs;
 
+import java.io.Serializable;
+
 /**
+ * Fix information gets serialized into the cache of analysis results. So,
+ * implementations should only refer to serializable values such as names.
  * 
  * @author Mohsen Vakilian
  * @author Stas Negara
  * 
  */
-public interface FixInformation {
+public interface FixInformation extends Serializable {
 
 	public abstract int hashCode();
 
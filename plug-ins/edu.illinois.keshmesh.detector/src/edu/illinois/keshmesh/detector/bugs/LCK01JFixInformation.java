@@ -13,6 +13,8 @@ import java.util.Set;
  */
 public class LCK01JFixInformation implements FixInformation {
 
+	private static final long serialVersionUID = 1L;
+
 	Set<String> typeNames;
 
 	public LCK01JFixInformation(Set<String> typeNames) {
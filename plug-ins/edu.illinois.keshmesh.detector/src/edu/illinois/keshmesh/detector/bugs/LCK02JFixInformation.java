@@ -14,6 +14,8 @@ import java.util.Set;
  */
 public class LCK02JFixInformation implements FixInformation {
 
+	private static final long serialVersionUID = 1L;
+
 	Set<String> typeNames;
 
 	public LCK02JFixInformation(Set<String> typeNames) {
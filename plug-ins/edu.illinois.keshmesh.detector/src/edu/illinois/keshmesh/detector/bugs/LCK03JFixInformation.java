@@ -13,6 +13,8 @@ import java.util.Set;
  */
 public class LCK03JFixInformation implements FixInformation {
 
+	private static final long serialVersionUID = 1L;
+
 	private Set<String> typeNames;
 	private boolean isLock;
 
@@ -16,6 +16,8 @@ import java.util.Set;
 
 public class LCK06JFixInformation implements FixInformation {
 
+	private static final long serialVersionUID = 1L;
+
 	Set<String> unsafeStaticFieldNames;
 
 	public LCK06JFixInformation(Set<String> unsafeStaticFieldNames) {
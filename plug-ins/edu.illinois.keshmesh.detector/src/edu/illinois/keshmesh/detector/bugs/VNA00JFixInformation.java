@@ -11,6 +11,8 @@ package edu.illinois.keshmesh.detector.bugs;
  */
 public class VNA00JFixInformation implements FixInformation {
 
+	private static final long serialVersionUID = 1L;
+
 	@Override
 	public FixInformation merge(FixInformation other) {
 		if (!(other instanceof VNA00JFixInformation)) {
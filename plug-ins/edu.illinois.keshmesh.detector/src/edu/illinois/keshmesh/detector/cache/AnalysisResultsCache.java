@@ -0,0 +1,199 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.illinois.keshmesh.detector.bugs.BugInstance;
+import edu.illinois.keshmesh.detector.bugs.BugInstances;
+import edu.illinois.keshmesh.detector.bugs.CodePosition;
+import edu.illinois.keshmesh.detector.util.CodePositionResolver;
+import edu.illinois.keshmesh.util.Logger;
+
+/**
+ * Keeps the bug instances of the last analysis of each project in a local
+ * directory. A later analysis of the same project with the same
+ * {@link ScopeFingerprint} can reuse these bug instances instead of building
+ * the class hierarchy, the call graph and the pointer analysis again.
+ * 
+ * The cache is only an optimization. So, it treats unreadable, corrupted and
+ * outdated entries as misses, and reports failures to write entries without
+ * failing the analysis.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class AnalysisResultsCache {
+
+	public static final String KESHMESH_CACHE_DIRECTORY = "KESHMESH_CACHE_DIRECTORY"; //$NON-NLS-1$
+
+	private static final String ENTRY_FILE_EXTENSION = ".ser"; //$NON-NLS-1$
+
+	private static final Logger logger = Logger.getLogger(AnalysisResultsCache.class);
+
+	private final File directory;
+
+	public AnalysisResultsCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the cache in the directory given by the KESHMESH_CACHE_DIRECTORY
+	 *         environment variable, or null if the variable is not set.
+	 */
+	public static AnalysisResultsCache fromEnvironment() {
+		String directoryName = System.getenv(KESHMESH_CACHE_DIRECTORY);
+		if (directoryName == null || directoryName.trim().length() == 0) {
+			return null;
+		}
+		return new AnalysisResultsCache(new File(directoryName.trim()));
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the last cached analysis of the project of the given
+	 *         fingerprint, whether its inputs have changed or not, or null if
+	 *         the cache has no analysis of the project.
+	 */
+	public synchronized CachedAnalysis load(ScopeFingerprint fingerprint) {
+		return loadEntry(fingerprint.getProjectKey());
+	}
+
+	/**
+	 * Replaces the entry of the project of the given fingerprint.
+	 * 
+	 * @param detectorStates
+	 *            the states of the detectors that the next incremental
+	 *            analysis needs, indexed by the names of their bug patterns
+	 *            (see
+	 *            {@link edu.illinois.keshmesh.detector.BugPatternDetector#getIncrementalState()}
+	 *            ).
+	 */
+	public synchronized void store(ScopeFingerprint fingerprint, BugInstances bugInstances, Map<String, Serializable> detectorStates) {
+		// BugInstances does not support toArray(). So, we cannot pass it to the constructor of ArrayList.
+		List<BugInstance> bugInstanceList = new ArrayList<BugInstance>();
+		for (BugInstance bugInstance : bugInstances) {
+			bugInstanceList.add(bugInstance);
+		}
+		File entryFile = getEntryFile(fingerprint.getProjectKey());
+		File temporaryFile = new File(directory, entryFile.getName() + ".tmp");
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create the directory " + directory + ".");
+			}
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+			try {
+				out.writeObject(new CachedAnalysis(fingerprint, bugInstanceList, new HashMap<String, Serializable>(detectorStates)));
+			} finally {
+				out.close();
+			}
+			// Writing to a temporary file first keeps readers from seeing partially written entries.
+			if ((entryFile.exists() && !entryFile.delete()) || !temporaryFile.renameTo(entryFile)) {
+				throw new IOException("Could not replace " + entryFile + ".");
+			}
+		} catch (IOException e) {
+			temporaryFile.delete();
+			logger.info("Failed to cache the analysis results in %s: %s", directory, e);
+		}
+	}
+
+	private CachedAnalysis loadEntry(String projectKey) {
+		File entryFile = getEntryFile(projectKey);
+		if (!entryFile.isFile()) {
+			return null;
+		}
+		try {
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(entryFile)));
+			try {
+				return (CachedAnalysis) in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			logger.info("Ignored the unreadable cache entry %s: %s", entryFile, e);
+		} catch (ClassNotFoundException e) {
+			logger.info("Ignored the incompatible cache entry %s: %s", entryFile, e);
+		} catch (ClassCastException e) {
+			logger.info("Ignored the incompatible cache entry %s: %s", entryFile, e);
+		}
+		return null;
+	}
+
+	private File getEntryFile(String projectKey) {
+		return new File(directory, projectKey + ENTRY_FILE_EXTENSION);
+	}
+
+	public static class CachedAnalysis implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ScopeFingerprint fingerprint;
+
+		private final List<BugInstance> bugInstances;
+
+		private final HashMap<String, Serializable> detectorStates;
+
+		CachedAnalysis(ScopeFingerprint fingerprint, List<BugInstance> bugInstances, HashMap<String, Serializable> detectorStates) {
+			this.fingerprint = fingerprint;
+			this.bugInstances = bugInstances;
+			this.detectorStates = detectorStates;
+		}
+
+		public ScopeFingerprint getFingerprint() {
+			return fingerprint;
+		}
+
+		/**
+		 * @return the states of the detectors after this analysis, which are
+		 *         missing from the entries that older versions have written.
+		 */
+		public Map<String, Serializable> getDetectorStates() {
+			if (detectorStates == null) {
+				return Collections.emptyMap();
+			}
+			return Collections.unmodifiableMap(detectorStates);
+		}
+
+		/**
+		 * @return true if this analysis had the same inputs as the analysis
+		 *         with the given fingerprint.
+		 */
+		public boolean isUpToDate(ScopeFingerprint currentFingerprint) {
+			return fingerprint.getDigest().equals(currentFingerprint.getDigest());
+		}
+
+		/**
+		 * @param codePositionResolver
+		 *            recomputes the offsets of the cached bug instances from
+		 *            the current source files.
+		 */
+		public BugInstances getBugInstances(CodePositionResolver codePositionResolver) {
+			BugInstances result = new BugInstances();
+			for (BugInstance bugInstance : bugInstances) {
+				CodePosition bugPosition = codePositionResolver.updateOffsets(bugInstance.getBugPosition());
+				result.add(new BugInstance(bugInstance.getBugPattern(), bugPosition, bugInstance.getFixInformation()));
+			}
+			return result;
+		}
+
+	}
+
+}
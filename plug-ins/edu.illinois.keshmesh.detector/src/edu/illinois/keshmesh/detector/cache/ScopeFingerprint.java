@@ -0,0 +1,226 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.types.ClassLoaderReference;
+
+import edu.illinois.keshmesh.detector.bugs.BugPattern;
+import edu.illinois.keshmesh.walaconfig.AbstractKeshmeshAnalysisEngine;
+import edu.illinois.keshmesh.walaconfig.KeshmeshAnalysisEngine;
+
+/**
+ * Identifies the inputs of an analysis. Two analyses with equal fingerprints
+ * report the same bug instances.
+ * 
+ * The fingerprint covers the contents of the class files under analysis, the
+ * locations, sizes and modification times of the library and JDK jars, the
+ * exclusions, the configuration of the call graph builder and the enabled
+ * bug patterns. It also keeps the digest of each class under analysis, so
+ * that an incremental analysis can find out which classes have changed.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class ScopeFingerprint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String DIGEST_ALGORITHM = "SHA-1"; //$NON-NLS-1$
+
+	// Identifies the project regardless of its contents.
+	private final String projectKey;
+
+	// Covers every input except the classes under analysis.
+	private final String environmentDigest;
+
+	private final String digest;
+
+	// Maps the name of each class under analysis to the digest of its class file.
+	private final Map<String, String> classDigests;
+
+	private ScopeFingerprint(String projectKey, String environmentDigest, String digest, Map<String, String> classDigests) {
+		this.projectKey = projectKey;
+		this.environmentDigest = environmentDigest;
+		this.digest = digest;
+		this.classDigests = classDigests;
+	}
+
+	public String getProjectKey() {
+		return projectKey;
+	}
+
+	public String getDigest() {
+		return digest;
+	}
+
+	public Map<String, String> getClassDigests() {
+		return Collections.unmodifiableMap(classDigests);
+	}
+
+	/**
+	 * @return true if the given fingerprint of an earlier analysis of the same
+	 *         project differs from this one only in the classes under
+	 *         analysis.
+	 */
+	public boolean hasSameEnvironment(ScopeFingerprint previous) {
+		return projectKey.equals(previous.projectKey) && environmentDigest.equals(previous.environmentDigest);
+	}
+
+	/**
+	 * @return the names of the classes that have been added, removed or
+	 *         modified since the analysis with the given fingerprint, in the
+	 *         format of class files, e.g. "a/b/C$D".
+	 */
+	public Set<String> getChangedClassNames(ScopeFingerprint previous) {
+		Set<String> changedClassNames = new TreeSet<String>();
+		for (Map.Entry<String, String> classDigest : classDigests.entrySet()) {
+			if (!classDigest.getValue().equals(previous.classDigests.get(classDigest.getKey()))) {
+				changedClassNames.add(classDigest.getKey());
+			}
+		}
+		for (String previousClassName : previous.classDigests.keySet()) {
+			if (!classDigests.containsKey(previousClassName)) {
+				changedClassNames.add(previousClassName);
+			}
+		}
+		return changedClassNames;
+	}
+
+	/**
+	 * Builds the analysis scope of the given engine and computes its
+	 * fingerprint. Building the scope does not load any classes. So, it is much
+	 * cheaper than building the class hierarchy or the call graph.
+	 */
+	public static ScopeFingerprint compute(AbstractKeshmeshAnalysisEngine engine, Collection<BugPattern> bugPatterns) throws IOException {
+		engine.buildAnalysisScope();
+		AnalysisScope scope = engine.getAnalysisScope();
+
+		MessageDigest projectKeyDigest = newMessageDigest();
+		update(projectKeyDigest, engine.getApplicationDescription());
+		Map<String, String> classDigests = new TreeMap<String, String>();
+		for (Module module : scope.getModules(ClassLoaderReference.Application)) {
+			addClassDigests(module, classDigests);
+		}
+
+		MessageDigest environmentMessageDigest = newMessageDigest();
+		update(environmentMessageDigest, KeshmeshAnalysisEngine.getConfiguration());
+		for (BugPattern bugPattern : bugPatterns) {
+			update(environmentMessageDigest, bugPattern.getName());
+		}
+		InputStream exclusionsStream = engine.openExclusions();
+		try {
+			update(environmentMessageDigest, exclusionsStream);
+		} finally {
+			exclusionsStream.close();
+		}
+		update(environmentMessageDigest, describeLibraries(scope, ClassLoaderReference.Primordial));
+		update(environmentMessageDigest, describeLibraries(scope, ClassLoaderReference.Extension));
+		String environmentDigestString = toHexString(environmentMessageDigest.digest());
+
+		MessageDigest scopeDigest = newMessageDigest();
+		update(scopeDigest, environmentDigestString);
+		for (Map.Entry<String, String> classDigest : classDigests.entrySet()) {
+			update(scopeDigest, classDigest.getKey());
+			update(scopeDigest, classDigest.getValue());
+		}
+		return new ScopeFingerprint(toHexString(projectKeyDigest.digest()), environmentDigestString, toHexString(scopeDigest.digest()), classDigests);
+	}
+
+	private static void addClassDigests(Module module, Map<String, String> classDigests) throws IOException {
+		Iterator<? extends ModuleEntry> entries = module.getEntries();
+		while (entries.hasNext()) {
+			ModuleEntry entry = entries.next();
+			if (entry.isClassFile()) {
+				MessageDigest classDigest = newMessageDigest();
+				InputStream classStream = entry.getInputStream();
+				try {
+					update(classDigest, classStream);
+				} finally {
+					classStream.close();
+				}
+				classDigests.put(entry.getClassName(), toHexString(classDigest.digest()));
+			} else if (entry.isModuleFile()) {
+				addClassDigests(entry.asModule(), classDigests);
+			}
+		}
+	}
+
+	/*
+	 * Library jars rarely change. So, we do not read their contents.
+	 */
+	private static String describeLibraries(AnalysisScope scope, ClassLoaderReference classLoaderReference) throws IOException {
+		StringBuilder description = new StringBuilder(classLoaderReference.getName().toString());
+		for (Module module : scope.getModules(classLoaderReference)) {
+			description.append('\n');
+			if (module instanceof JarFileModule) {
+				File jarFile = new File(((JarFileModule) module).getJarFile().getName());
+				description.append(jarFile.getAbsolutePath()).append(' ').append(jarFile.length()).append(' ').append(jarFile.lastModified());
+			} else {
+				Map<String, String> libraryClassDigests = new TreeMap<String, String>();
+				addClassDigests(module, libraryClassDigests);
+				description.append(libraryClassDigests);
+			}
+		}
+		return description.toString();
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void update(MessageDigest messageDigest, String string) {
+		try {
+			messageDigest.update(string.getBytes("UTF-8"));
+			messageDigest.update((byte) 0);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void update(MessageDigest messageDigest, InputStream inputStream) throws IOException {
+		byte[] buffer = new byte[8192];
+		int length;
+		while ((length = inputStream.read(buffer)) != -1) {
+			messageDigest.update(buffer, 0, length);
+		}
+	}
+
+	private static String toHexString(byte[] bytes) {
+		StringBuilder hexString = new StringBuilder();
+		for (byte b : bytes) {
+			hexString.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hexString.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hexString.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "ScopeFingerprint [projectKey=" + projectKey + ", digest=" + digest + ", classes=" + classDigests.size() + "]";
+	}
+
+}
@@ -4,21 +4,17 @@
 package edu.illinois.keshmesh.detector.util;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.NullProgressMonitor;
-import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.JavaModelException;
 
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.classLoader.IMethod;
-import com.ibm.wala.classLoader.ShrikeCTMethod;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
-import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAFieldAccessInstruction;
@@ -34,7 +30,7 @@ import com.ibm.wala.util.strings.Atom;
 import edu.illinois.keshmesh.detector.BasicAnalysisData;
 import edu.illinois.keshmesh.detector.InstructionFilter;
 import edu.illinois.keshmesh.detector.InstructionInfo;
-import edu.illinois.keshmesh.detector.bugs.CodePosition;
+import edu.illinois.keshmesh.detector.NodeInstructions;
 
 /**
  * 
@@ -55,6 +51,11 @@ public class AnalysisUtils {
 	 */
 	public static final int THIS_VALUE_NUMBER = 1;
 
+	// WALA interns the type names and never releases them. So, these caches hold at most one entry per type of the analysis scope.
+	private static final Map<TypeName, String> javaNamesCache = new HashMap<TypeName, String>();
+
+	private static final Map<TypeName, String> enclosingNonanonymousClassNamesCache = new HashMap<TypeName, String>();
+
 	public static IPath getWorkspaceLocation() {
 		return ResourcesPlugin.getWorkspace().getRoot().getLocation();
 	}
@@ -68,44 +69,46 @@ public class AnalysisUtils {
 		return false;
 	}
 
-	public static void collect(IJavaProject javaProject, Collection<InstructionInfo> instructionInfos, CGNode cgNode, InstructionFilter instructionFilter) {
-		if (instructionInfos == null) {
-			throw new RuntimeException("Expected a valid collection to store the results in.");
-		}
+	/**
+	 * @return true if the given instruction is inside any synchronized block
+	 *         of its CGNode, regardless of the locks of the synchronized blocks.
+	 */
+	public static boolean isInsideAnySynchronizedBlock(InstructionInfo instruction) {
+		return isInsideAnySynchronizedBlock(instruction.getCGNode(), instruction.getInstructionIndex());
+	}
 
+	public static boolean isInsideAnySynchronizedBlock(CGNode cgNode, int instructionIndex) {
 		IR ir = cgNode.getIR();
-		if (ir == null) {
-			return;
+		return ir != null && MethodFacts.of(ir).isInsideAnySynchronizedBlock(instructionIndex);
+	}
+
+	public static void collect(BasicAnalysisData basicAnalysisData, Collection<InstructionInfo> instructionInfos, CGNode cgNode, InstructionFilter instructionFilter) {
+		collect(basicAnalysisData, instructionInfos, cgNode, NodeInstructions.Kind.ANY, instructionFilter);
+	}
+
+	/**
+	 * Adds the instructions of the given kind that the given filter accepts to
+	 * the given collection. The filter only gets called on the instructions of
+	 * the given kind (see {@link NodeInstructions}).
+	 */
+	public static void collect(BasicAnalysisData basicAnalysisData, Collection<InstructionInfo> instructionInfos, CGNode cgNode, NodeInstructions.Kind kind, InstructionFilter instructionFilter) {
+		if (instructionInfos == null) {
+			throw new RuntimeException("Expected a valid collection to store the results in.");
 		}
-		SSAInstruction[] instructions = ir.getInstructions();
-		for (int instructionIndex = 0; instructionIndex < instructions.length; instructionIndex++) {
-			SSAInstruction instruction = instructions[instructionIndex];
-			InstructionInfo instructionInfo = new InstructionInfo(javaProject, cgNode, instructionIndex);
-			if (instruction != null && (instructionFilter == null || instructionFilter.accept(instructionInfo))) {
+		for (InstructionInfo instructionInfo : basicAnalysisData.getNodeInstructions(cgNode).getInstructionInfos(kind)) {
+			if (instructionFilter == null || instructionFilter.accept(instructionInfo)) {
 				instructionInfos.add(instructionInfo);
 			}
 		}
 	}
 
-	/**
-	 * Remove the code duplication in
-	 * 
-	 * {@link #collect(IJavaProject, Collection, CGNode, InstructionFilter)}
-	 * 
-	 * and
-	 * 
-	 * {@link #contains(IJavaProject, CGNode, InstructionFilter)}.
-	 */
-	public static boolean contains(IJavaProject javaProject, CGNode cgNode, InstructionFilter instructionFilter) {
-		IR ir = cgNode.getIR();
-		if (ir == null) {
-			return false;
-		}
-		SSAInstruction[] instructions = ir.getInstructions();
-		for (int instructionIndex = 0; instructionIndex < instructions.length; instructionIndex++) {
-			SSAInstruction instruction = instructions[instructionIndex];
-			InstructionInfo instructionInfo = new InstructionInfo(javaProject, cgNode, instructionIndex);
-			if (instruction != null && (instructionFilter == null || instructionFilter.accept(instructionInfo))) {
+	public static boolean contains(BasicAnalysisData basicAnalysisData, CGNode cgNode, InstructionFilter instructionFilter) {
+		return contains(basicAnalysisData, cgNode, NodeInstructions.Kind.ANY, instructionFilter);
+	}
+
+	public static boolean contains(BasicAnalysisData basicAnalysisData, CGNode cgNode, NodeInstructions.Kind kind, InstructionFilter instructionFilter) {
+		for (InstructionInfo instructionInfo : basicAnalysisData.getNodeInstructions(cgNode).getInstructionInfos(kind)) {
+			if (instructionFilter == null || instructionFilter.accept(instructionInfo)) {
 				return true;
 			}
 		}
@@ -124,6 +127,20 @@ public class AnalysisUtils {
 	 * @return
 	 */
 	public static String getEnclosingNonanonymousClassName(TypeName typeName) {
+		synchronized (enclosingNonanonymousClassNamesCache) {
+			String enclosingClassName = enclosingNonanonymousClassNamesCache.get(typeName);
+			if (enclosingClassName != null) {
+				return enclosingClassName;
+			}
+		}
+		String enclosingClassName = computeEnclosingNonanonymousClassName(typeName);
+		synchronized (enclosingNonanonymousClassNamesCache) {
+			enclosingNonanonymousClassNamesCache.put(typeName, enclosingClassName);
+		}
+		return enclosingClassName;
+	}
+
+	private static String computeEnclosingNonanonymousClassName(TypeName typeName) {
 		String packageName = typeName.getPackage().toString().replaceAll("/", ".");
 		int indexOfOpenParen = packageName.indexOf('(');
 		if (indexOfOpenParen != -1) {
@@ -174,39 +191,31 @@ public class AnalysisUtils {
 		return methodSignature.equals(OBJECT_GETCLASS_SIGNATURE);
 	}
 
+	/**
+	 * @return the name of the given type in Java source code. The name of
+	 *         each type gets built once and is cached.
+	 */
 	public static String walaTypeNameToJavaName(TypeName typeName) {
+		synchronized (javaNamesCache) {
+			String javaName = javaNamesCache.get(typeName);
+			if (javaName != null) {
+				return javaName;
+			}
+		}
+		String javaName = computeJavaName(typeName);
+		synchronized (javaNamesCache) {
+			javaNamesCache.put(typeName, javaName);
+		}
+		return javaName;
+	}
+
+	private static String computeJavaName(TypeName typeName) {
 		String fullyQualifiedName = typeName.getPackage() + "." + typeName.getClassName();
 
 		//WALA uses $ to refers to inner classes. We have to replace "$" by "." to make it a valid class name in Java source code.
 		return fullyQualifiedName.replace("$", ".").replace("/", ".");
 	}
 
-	public static CodePosition getPosition(IJavaProject javaProject, IMethod method, int instructionIndex) {
-		String enclosingClassName = getEnclosingNonanonymousClassName(method.getDeclaringClass().getName());
-		if (method instanceof ShrikeCTMethod) {
-			ShrikeCTMethod shrikeMethod = (ShrikeCTMethod) method;
-			try {
-				IType enclosingType = javaProject.findType(enclosingClassName, new NullProgressMonitor());
-
-				//FIXME: The following check is a workaround for issue #41.
-				if (enclosingType == null) {
-					String message = "Position not found. Could not find the type corresponding to %s in the Java project.";
-					System.err.println(String.format(message, enclosingClassName));
-					throw new RuntimeException(message);
-				}
-
-				IPath fullPath = getWorkspaceLocation().append(enclosingType.getCompilationUnit().getPath());
-				int lineNumber = shrikeMethod.getLineNumber(shrikeMethod.getBytecodeIndex(instructionIndex));
-				return new CodePosition(lineNumber, lineNumber, fullPath, enclosingClassName);
-			} catch (JavaModelException e) {
-				throw new RuntimeException(e);
-			} catch (InvalidClassFileException e) {
-				throw new RuntimeException(e);
-			}
-		}
-		throw new RuntimeException("Unexpected method class: " + method.getClass());
-	}
-
 	public static boolean isMonitorEnter(SSAInstruction ssaInstruction) {
 		return ssaInstruction instanceof SSAMonitorInstruction && ((SSAMonitorInstruction) ssaInstruction).isMonitorEnter();
 	}
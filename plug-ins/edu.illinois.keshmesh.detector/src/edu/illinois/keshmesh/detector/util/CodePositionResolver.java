@@ -0,0 +1,264 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.TypeName;
+
+import edu.illinois.keshmesh.detector.InstructionInfo;
+import edu.illinois.keshmesh.detector.bugs.CodePosition;
+
+/**
+ * Maps instructions to their positions in the source code.
+ * 
+ * A resolver lives as long as a single analysis. It locates the source file
+ * of each enclosing class once, computes the line table of each method once,
+ * and computes the offsets of the lines of each source file once. Subclasses
+ * decide where the source files come from.
+ * 
+ * The detectors may run concurrently. So, the methods that read or fill the
+ * caches are synchronized.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public abstract class CodePositionResolver {
+
+	/**
+	 * A source file that contains the code of one or more classes.
+	 */
+	protected static abstract class SourceFile {
+
+		private final IPath path;
+
+		// The offsets of the first character and of the line delimiter of each line. The first line is at index 0.
+		private int[] lineStartOffsets = null, lineEndOffsets = null;
+
+		protected SourceFile(IPath path) {
+			this.path = path;
+		}
+
+		public IPath getPath() {
+			return path;
+		}
+
+		/**
+		 * @return the contents of the source file, or null if they are not
+		 *         available.
+		 */
+		protected abstract String getContents();
+
+		/**
+		 * @return the offset of the first character of the given line, or -1 if
+		 *         the line is not available.
+		 */
+		int getLineStartOffset(int lineNumber) {
+			computeLineOffsets();
+			return isAvailable(lineNumber) ? lineStartOffsets[lineNumber - 1] : -1;
+		}
+
+		/**
+		 * @return the offset of the end of the given line excluding its line
+		 *         delimiter, or -1 if the line is not available.
+		 */
+		int getLineEndOffset(int lineNumber) {
+			computeLineOffsets();
+			return isAvailable(lineNumber) ? lineEndOffsets[lineNumber - 1] : -1;
+		}
+
+		private boolean isAvailable(int lineNumber) {
+			return lineNumber >= 1 && lineNumber <= lineStartOffsets.length;
+		}
+
+		private void computeLineOffsets() {
+			if (lineStartOffsets != null) {
+				return;
+			}
+			List<Integer> startOffsets = new ArrayList<Integer>();
+			List<Integer> endOffsets = new ArrayList<Integer>();
+			String contents = getContents();
+			if (contents != null) {
+				int length = contents.length();
+				startOffsets.add(0);
+				for (int offset = 0; offset < length; offset++) {
+					char c = contents.charAt(offset);
+					if (c == '\r' && offset + 1 < length && contents.charAt(offset + 1) == '\n') {
+						endOffsets.add(offset);
+						startOffsets.add(offset + 2);
+						offset++;
+					} else if (c == '\n' || c == '\r') {
+						endOffsets.add(offset);
+						startOffsets.add(offset + 1);
+					}
+				}
+				endOffsets.add(length);
+			}
+			lineStartOffsets = toIntArray(startOffsets);
+			lineEndOffsets = toIntArray(endOffsets);
+		}
+
+		private static int[] toIntArray(List<Integer> integers) {
+			int[] array = new int[integers.size()];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = integers.get(i);
+			}
+			return array;
+		}
+
+	}
+
+	private static final SourceFile MISSING_SOURCE_FILE = new SourceFile(null) {
+
+		@Override
+		protected String getContents() {
+			return null;
+		}
+
+	};
+
+	private final Map<String, SourceFile> sourceFiles = new HashMap<String, SourceFile>();
+
+	private final Map<IMethod, int[]> lineTables = new HashMap<IMethod, int[]>();
+
+	/**
+	 * @return the source file that contains the class with the given fully
+	 *         qualified name, or null if there is no such source file.
+	 */
+	protected abstract SourceFile findSourceFile(String enclosingClassName);
+
+	public synchronized CodePosition getPosition(InstructionInfo instructionInfo) {
+		return getPosition(instructionInfo.getCGNode().getMethod(), instructionInfo.getInstructionIndex());
+	}
+
+	/**
+	 * @return the position of the given instruction. If the source file of
+	 *         its enclosing class could not be found (see issue #41), the
+	 *         position only has the line of the instruction and no source path
+	 *         or offsets.
+	 */
+	public synchronized CodePosition getPosition(IMethod method, int instructionIndex) {
+		CodePosition position = resolvePosition(method, instructionIndex);
+		if (position == null) {
+			String enclosingClassName = AnalysisUtils.getEnclosingNonanonymousClassName(method.getDeclaringClass().getName());
+			int lineNumber = getLineNumber((ShrikeCTMethod) method, instructionIndex);
+			position = createPosition(MISSING_SOURCE_FILE, lineNumber, lineNumber, enclosingClassName);
+		}
+		return position;
+	}
+
+	/**
+	 * Resolves the positions of the given instructions at once. The positions
+	 * of the instructions whose source files could not be found are left out
+	 * (see issue #41).
+	 * 
+	 * @return the positions of the given instructions in the order of the
+	 *         given instructions.
+	 */
+	public synchronized Map<InstructionInfo, CodePosition> getPositions(Collection<InstructionInfo> instructionInfos) {
+		Map<InstructionInfo, CodePosition> positions = new LinkedHashMap<InstructionInfo, CodePosition>();
+		for (InstructionInfo instructionInfo : instructionInfos) {
+			CodePosition position = resolvePosition(instructionInfo.getCGNode().getMethod(), instructionInfo.getInstructionIndex());
+			if (position != null) {
+				positions.put(instructionInfo, position);
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * Recomputes the offsets of the lines of the given position from the
+	 * current contents of its source file. Editing a source file without
+	 * changing the class files, e.g. by editing a comment, may shift the
+	 * offsets of a position that was computed by an earlier analysis.
+	 * 
+	 * @return the given position if its source file could not be found.
+	 */
+	public synchronized CodePosition updateOffsets(CodePosition position) {
+		SourceFile sourceFile = getSourceFile(position.getFullyQualifiedClassName());
+		if (sourceFile == MISSING_SOURCE_FILE) {
+			return position;
+		}
+		return createPosition(sourceFile, position.getFirstLine(), position.getLastLine(), position.getFullyQualifiedClassName());
+	}
+
+	/**
+	 * @return the position of the given instruction, or null if the source
+	 *         file of its enclosing class could not be found.
+	 */
+	private CodePosition resolvePosition(IMethod method, int instructionIndex) {
+		if (!(method instanceof ShrikeCTMethod)) {
+			throw new RuntimeException("Unexpected method class: " + method.getClass());
+		}
+		TypeName enclosingTypeName = method.getDeclaringClass().getName();
+		String enclosingClassName = AnalysisUtils.getEnclosingNonanonymousClassName(enclosingTypeName);
+		SourceFile sourceFile = getSourceFile(enclosingClassName);
+		if (sourceFile == MISSING_SOURCE_FILE) {
+			return null;
+		}
+		int lineNumber = getLineNumber((ShrikeCTMethod) method, instructionIndex);
+		return createPosition(sourceFile, lineNumber, lineNumber, enclosingClassName);
+	}
+
+	private static CodePosition createPosition(SourceFile sourceFile, int firstLine, int lastLine, String enclosingClassName) {
+		int firstOffset = sourceFile.getLineStartOffset(firstLine);
+		int lastOffset = sourceFile.getLineEndOffset(lastLine);
+		if (firstOffset < 0 || lastOffset < firstOffset) {
+			return new CodePosition(firstLine, lastLine, sourceFile.getPath(), enclosingClassName);
+		}
+		return new CodePosition(firstOffset, lastOffset, firstLine, lastLine, sourceFile.getPath(), enclosingClassName);
+	}
+
+	private SourceFile getSourceFile(String enclosingClassName) {
+		SourceFile sourceFile = sourceFiles.get(enclosingClassName);
+		if (sourceFile == null) {
+			sourceFile = findSourceFile(enclosingClassName);
+			if (sourceFile == null) {
+				sourceFile = MISSING_SOURCE_FILE;
+			}
+			sourceFiles.put(enclosingClassName, sourceFile);
+		}
+		return sourceFile;
+	}
+
+	private int getLineNumber(ShrikeCTMethod method, int instructionIndex) {
+		try {
+			int[] lineTable = lineTables.get(method);
+			if (lineTable == null) {
+				lineTable = computeLineTable(method);
+				lineTables.put(method, lineTable);
+			}
+			if (instructionIndex >= 0 && instructionIndex < lineTable.length) {
+				return lineTable[instructionIndex];
+			}
+			return method.getLineNumber(method.getBytecodeIndex(instructionIndex));
+		} catch (InvalidClassFileException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the line number of each instruction of the given method indexed
+	 *         by the instruction index.
+	 */
+	private static int[] computeLineTable(ShrikeCTMethod method) throws InvalidClassFileException {
+		int[] lineTable = new int[method.getInstructions().length];
+		for (int instructionIndex = 0; instructionIndex < lineTable.length; instructionIndex++) {
+			lineTable[instructionIndex] = method.getLineNumber(method.getBytecodeIndex(instructionIndex));
+		}
+		return lineTable;
+	}
+
+}
@@ -12,6 +12,10 @@ public class DisplayUtils {
 
 	private static final boolean ENABLED = false;
 
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
 	public static void displayGraph(Graph graph) throws WalaException {
 		if (ENABLED) {
 			final SWTTreeViewer v = new SWTTreeViewer();
@@ -0,0 +1,143 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import java.util.Collection;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceFieldPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.GraphInverter;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.IntIterator;
+
+/**
+ * Answers which pointers may reach a set of instances in the heap graph.
+ * 
+ * Instead of traversing the inverted heap graph for every query, it inverts
+ * the heap graph once, condenses it into its strongly connected components,
+ * and summarizes the pointers that reach each component in a single pass over
+ * the components. A query then only looks up the summaries of the components
+ * of the given instances.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class HeapReachability {
+
+	public interface LocalPointerFilter {
+
+		boolean accept(LocalPointerKey localPointerKey);
+
+	}
+
+	public interface FieldPointerFilter {
+
+		boolean accept(InstanceFieldPointerKey instanceFieldPointerKey);
+
+	}
+
+	private final NumberedGraph<Object> invertedHeapGraph;
+
+	private final StronglyConnectedComponents<Object> components;
+
+	/*
+	 * The nodes of the accepted local pointers that reach each component. Two
+	 * distinct nodes are enough to tell whether a local pointer of a node other
+	 * than a given node reaches a component. So, we keep at most two nodes per
+	 * component.
+	 */
+	private final CGNode[] firstLocalPointerNodes, secondLocalPointerNodes;
+
+	// The components that some accepted instance field pointer reaches.
+	private final BitVector componentsReachedByFieldPointers = new BitVector();
+
+	public HeapReachability(NumberedGraph<Object> heapGraph, LocalPointerFilter localPointerFilter, FieldPointerFilter fieldPointerFilter) {
+		invertedHeapGraph = GraphInverter.invert(heapGraph);
+		components = new StronglyConnectedComponents<Object>(invertedHeapGraph);
+		int numberOfComponents = components.getNumberOfComponents();
+		firstLocalPointerNodes = new CGNode[numberOfComponents];
+		secondLocalPointerNodes = new CGNode[numberOfComponents];
+		// The successors of a component in the inverted heap graph have smaller numbers. So, their summaries are complete when we get to the component.
+		for (int component = 0; component < numberOfComponents; component++) {
+			for (int memberNumber : components.getMemberNumbers(component)) {
+				Object member = invertedHeapGraph.getNode(memberNumber);
+				if (member instanceof LocalPointerKey && localPointerFilter.accept((LocalPointerKey) member)) {
+					addLocalPointerNode(component, ((LocalPointerKey) member).getNode());
+				}
+				if (member instanceof InstanceFieldPointerKey && fieldPointerFilter.accept((InstanceFieldPointerKey) member)) {
+					componentsReachedByFieldPointers.set(component);
+				}
+				IntIterator successorNumbers = invertedHeapGraph.getSuccNodeNumbers(member).intIterator();
+				while (successorNumbers.hasNext()) {
+					int successorComponent = components.getComponentOfNodeNumber(successorNumbers.next());
+					if (successorComponent != component) {
+						addSummary(component, successorComponent);
+					}
+				}
+			}
+		}
+	}
+
+	private void addSummary(int component, int successorComponent) {
+		if (firstLocalPointerNodes[successorComponent] != null) {
+			addLocalPointerNode(component, firstLocalPointerNodes[successorComponent]);
+		}
+		if (secondLocalPointerNodes[successorComponent] != null) {
+			addLocalPointerNode(component, secondLocalPointerNodes[successorComponent]);
+		}
+		if (componentsReachedByFieldPointers.get(successorComponent)) {
+			componentsReachedByFieldPointers.set(component);
+		}
+	}
+
+	private void addLocalPointerNode(int component, CGNode cgNode) {
+		if (firstLocalPointerNodes[component] == null) {
+			firstLocalPointerNodes[component] = cgNode;
+		} else if (secondLocalPointerNodes[component] == null && firstLocalPointerNodes[component] != cgNode) {
+			secondLocalPointerNodes[component] = cgNode;
+		}
+	}
+
+	/**
+	 * @return true if an accepted local pointer of a node other than the given
+	 *         node may reach any of the given instances.
+	 */
+	public boolean isReachableFromLocalPointerOfOtherNode(Collection<InstanceKey> instanceKeys, CGNode cgNode) {
+		for (InstanceKey instanceKey : instanceKeys) {
+			int component = getComponent(instanceKey);
+			if (component < 0) {
+				continue;
+			}
+			CGNode firstLocalPointerNode = firstLocalPointerNodes[component];
+			if (firstLocalPointerNode != null && (firstLocalPointerNode != cgNode || secondLocalPointerNodes[component] != null)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if an accepted instance field pointer may reach any of the
+	 *         given instances.
+	 */
+	public boolean isReachableFromFieldPointer(Collection<InstanceKey> instanceKeys) {
+		for (InstanceKey instanceKey : instanceKeys) {
+			int component = getComponent(instanceKey);
+			if (component >= 0 && componentsReachedByFieldPointers.get(component)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int getComponent(InstanceKey instanceKey) {
+		int nodeNumber = invertedHeapGraph.getNumber(instanceKey);
+		return nodeNumber < 0 ? -1 : components.getComponentOfNodeNumber(nodeNumber);
+	}
+
+}
@@ -0,0 +1,53 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Finds the source files of the classes in the compilation units of a Java
+ * project in the workspace.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class JavaProjectCodePositionResolver extends CodePositionResolver {
+
+	private final IJavaProject javaProject;
+
+	public JavaProjectCodePositionResolver(IJavaProject javaProject) {
+		this.javaProject = javaProject;
+	}
+
+	@Override
+	protected SourceFile findSourceFile(String enclosingClassName) {
+		try {
+			IType enclosingType = javaProject.findType(enclosingClassName, new NullProgressMonitor());
+			if (enclosingType == null || enclosingType.getCompilationUnit() == null) {
+				return null;
+			}
+			final ICompilationUnit compilationUnit = enclosingType.getCompilationUnit();
+			return new SourceFile(AnalysisUtils.getWorkspaceLocation().append(compilationUnit.getPath())) {
+
+				@Override
+				protected String getContents() {
+					try {
+						return compilationUnit.getSource();
+					} catch (JavaModelException e) {
+						return null;
+					}
+				}
+
+			};
+		} catch (JavaModelException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
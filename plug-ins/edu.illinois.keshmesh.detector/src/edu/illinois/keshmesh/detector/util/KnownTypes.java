@@ -0,0 +1,67 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * The JDK types that the detectors look for.
+ * 
+ * WALA interns the instances of TypeReference and TypeName. So, the detectors
+ * check whether a class is one of these types by comparing references instead
+ * of building and comparing the Java names of the classes.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class KnownTypes {
+
+	public static final TypeReference JAVA_LANG_BOOLEAN = make("Ljava/lang/Boolean"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_BYTE = make("Ljava/lang/Byte"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_CLASS = make("Ljava/lang/Class"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_DOUBLE = make("Ljava/lang/Double"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_FLOAT = make("Ljava/lang/Float"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_INTEGER = make("Ljava/lang/Integer"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_LONG = make("Ljava/lang/Long"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_SHORT = make("Ljava/lang/Short"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_STRING = make("Ljava/lang/String"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_RUNNABLE = make("Ljava/lang/Runnable"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_LANG_THREAD = make("Ljava/lang/Thread"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_UTIL_CONCURRENT_LOCKS_LOCK = make("Ljava/util/concurrent/locks/Lock"); //$NON-NLS-1$
+
+	public static final TypeReference JAVA_UTIL_CONCURRENT_LOCKS_CONDITION = make("Ljava/util/concurrent/locks/Condition"); //$NON-NLS-1$
+
+	private static TypeReference make(String walaTypeName) {
+		return TypeReference.findOrCreate(ClassLoaderReference.Primordial, walaTypeName);
+	}
+
+	/**
+	 * @return true if the given type name is the name of the given type.
+	 *         Like the comparisons of the Java names that this method
+	 *         replaces, it ignores the class loaders of the types.
+	 */
+	public static boolean is(TypeName typeName, TypeReference knownType) {
+		return typeName == knownType.getName();
+	}
+
+	public static boolean is(IClass klass, TypeReference knownType) {
+		return is(klass.getName(), knownType);
+	}
+
+}
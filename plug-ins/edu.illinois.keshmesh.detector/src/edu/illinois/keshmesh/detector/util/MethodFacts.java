@@ -0,0 +1,196 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAGetInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAMonitorInstruction;
+import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * The facts of a method that do not depend on the context of its CGNodes.
+ * 
+ * A context selector may clone a method into many CGNodes. The IRs of these
+ * CGNodes are usually built from the same bytecode and are equivalent. So,
+ * the facts of a method get computed once, from the IR of the first CGNode
+ * that is queried, and are shared by the equivalent IRs of the other CGNodes
+ * of the method. An IR that is not equivalent to the one that the facts of
+ * its method were computed from, e.g. an IR that a context interpreter has
+ * synthesized, gets facts of its own.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class MethodFacts {
+
+	private static final Map<IMethod, MethodFacts> methodFactsCache = new WeakHashMap<IMethod, MethodFacts>();
+
+	// The facts of the IRs that are not equivalent to the IRs that the facts of their methods were computed from.
+	private static final Map<IR, MethodFacts> irFactsCache = new WeakHashMap<IR, MethodFacts>();
+
+	private final SSAInstruction[] instructions;
+
+	private final MonitorRegions monitorRegions;
+
+	private final boolean hasMonitorInstructions;
+
+	// The instructions that are inside some synchronized block.
+	private final BitVector synchronizedInstructions = new BitVector();
+
+	private final int[] fieldAccessIndexes;
+
+	private final int[] putIndexes;
+
+	private final int[] invokeIndexes;
+
+	public static MethodFacts of(IR ir) {
+		IMethod method = ir.getMethod();
+		synchronized (methodFactsCache) {
+			MethodFacts methodFacts = methodFactsCache.get(method);
+			if (methodFacts != null && methodFacts.isEquivalent(ir)) {
+				return methodFacts;
+			}
+			methodFacts = irFactsCache.get(ir);
+			if (methodFacts != null) {
+				return methodFacts;
+			}
+		}
+		// Compute the facts outside the lock so that detectors running in parallel do not wait for each other.
+		MethodFacts methodFacts = new MethodFacts(ir);
+		synchronized (methodFactsCache) {
+			MethodFacts existingMethodFacts = methodFactsCache.get(method);
+			if (existingMethodFacts == null) {
+				methodFactsCache.put(method, methodFacts);
+				return methodFacts;
+			}
+			if (existingMethodFacts.isEquivalent(ir)) {
+				return existingMethodFacts;
+			}
+			existingMethodFacts = irFactsCache.get(ir);
+			if (existingMethodFacts != null) {
+				return existingMethodFacts;
+			}
+			irFactsCache.put(ir, methodFacts);
+			return methodFacts;
+		}
+	}
+
+	private MethodFacts(IR ir) {
+		instructions = ir.getInstructions();
+		monitorRegions = new MonitorRegions(ir);
+		boolean foundMonitorInstruction = false;
+		MutableSparseIntSet fieldAccesses = MutableSparseIntSet.makeEmpty();
+		MutableSparseIntSet puts = MutableSparseIntSet.makeEmpty();
+		MutableSparseIntSet invokes = MutableSparseIntSet.makeEmpty();
+		for (int instructionIndex = 0; instructionIndex < instructions.length; instructionIndex++) {
+			SSAInstruction instruction = instructions[instructionIndex];
+			if (instruction instanceof SSAMonitorInstruction) {
+				foundMonitorInstruction = true;
+			} else if (instruction instanceof SSAPutInstruction) {
+				fieldAccesses.add(instructionIndex);
+				puts.add(instructionIndex);
+			} else if (instruction instanceof SSAGetInstruction) {
+				fieldAccesses.add(instructionIndex);
+			} else if (instruction instanceof SSAAbstractInvokeInstruction) {
+				invokes.add(instructionIndex);
+			}
+		}
+		hasMonitorInstructions = foundMonitorInstruction;
+		fieldAccessIndexes = fieldAccesses.toIntArray();
+		putIndexes = puts.toIntArray();
+		invokeIndexes = invokes.toIntArray();
+		IntIterator monitorEnterIndexesIterator = monitorRegions.getMonitorEnterIndexes().intIterator();
+		while (monitorEnterIndexesIterator.hasNext()) {
+			synchronizedInstructions.or(monitorRegions.getRegion(monitorEnterIndexesIterator.next()));
+		}
+	}
+
+	/**
+	 * Two IRs are equivalent if they have the same kinds of instructions at
+	 * the same indexes and their monitor instructions acquire or release the
+	 * same values. This check is much cheaper than computing the facts again.
+	 */
+	private boolean isEquivalent(IR ir) {
+		SSAInstruction[] otherInstructions = ir.getInstructions();
+		if (otherInstructions == instructions) {
+			return true;
+		}
+		if (otherInstructions.length != instructions.length) {
+			return false;
+		}
+		for (int instructionIndex = 0; instructionIndex < instructions.length; instructionIndex++) {
+			SSAInstruction instruction = instructions[instructionIndex];
+			SSAInstruction otherInstruction = otherInstructions[instructionIndex];
+			if (instruction == null || otherInstruction == null) {
+				if (instruction != otherInstruction) {
+					return false;
+				}
+			} else if (instruction.getClass() != otherInstruction.getClass()) {
+				return false;
+			} else if (instruction instanceof SSAMonitorInstruction && !isSameMonitor((SSAMonitorInstruction) instruction, (SSAMonitorInstruction) otherInstruction)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isSameMonitor(SSAMonitorInstruction monitorInstruction, SSAMonitorInstruction otherMonitorInstruction) {
+		return monitorInstruction.isMonitorEnter() == otherMonitorInstruction.isMonitorEnter() && monitorInstruction.getRef() == otherMonitorInstruction.getRef();
+	}
+
+	public MonitorRegions getMonitorRegions() {
+		return monitorRegions;
+	}
+
+	/**
+	 * @return true if the method has any monitor enter or monitor exit
+	 *         instructions.
+	 */
+	public boolean hasMonitorInstructions() {
+		return hasMonitorInstructions;
+	}
+
+	/**
+	 * @return true if the instruction at the given index is inside any
+	 *         synchronized block of the method.
+	 */
+	public boolean isInsideAnySynchronizedBlock(int instructionIndex) {
+		return instructionIndex >= 0 && synchronizedInstructions.get(instructionIndex);
+	}
+
+	/**
+	 * @return the indexes of the get and put instructions in increasing order.
+	 *         The returned array must not be modified.
+	 */
+	public int[] getFieldAccessIndexes() {
+		return fieldAccessIndexes;
+	}
+
+	/**
+	 * @return the indexes of the put instructions in increasing order. The
+	 *         returned array must not be modified.
+	 */
+	public int[] getPutIndexes() {
+		return putIndexes;
+	}
+
+	/**
+	 * @return the indexes of the invoke instructions in increasing order. The
+	 *         returned array must not be modified.
+	 */
+	public int[] getInvokeIndexes() {
+		return invokeIndexes;
+	}
+
+}
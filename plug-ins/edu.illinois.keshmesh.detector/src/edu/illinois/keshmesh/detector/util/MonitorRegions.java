@@ -0,0 +1,180 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import java.util.Collection;
+import java.util.LinkedList;
+
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSACFG;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAMonitorInstruction;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * 
+ * Maps every monitor enter instruction of an IR to its region, i.e. the
+ * indexes of the instructions inside the synchronized block that the monitor
+ * enter starts. The regions of a method get computed once, when the method is
+ * queried for the first time. After that, checking whether an instruction is inside a
+ * synchronized block is a single bit test.
+ * 
+ * The monitor exits that end the synchronized block of a monitor enter are the
+ * ones that release the same lock value at the same nesting level. The
+ * compiler emits one such monitor exit on the normal path and one in the
+ * exception handler that covers the synchronized block. The nesting level
+ * distinguishes the monitor exits of nested synchronized blocks on the same
+ * lock value, and the control flow distinguishes the monitor exits of
+ * consecutive synchronized blocks on the same lock value.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class MonitorRegions {
+
+	private final SSAInstruction[] instructions;
+
+	// Indexed by the instruction indexes of the monitor enters. The entries of other instructions are null.
+	private final BitVector[] regions;
+
+	private final MutableSparseIntSet monitorEnterIndexes = MutableSparseIntSet.makeEmpty();
+
+	/**
+	 * @return the regions of the given IR, which are shared by the equivalent
+	 *         IRs of the other CGNodes of its method (see {@link MethodFacts}).
+	 */
+	public static MonitorRegions of(IR ir) {
+		return MethodFacts.of(ir).getMonitorRegions();
+	}
+
+	MonitorRegions(IR ir) {
+		instructions = ir.getInstructions();
+		regions = new BitVector[instructions.length];
+		for (int instructionIndex = 0; instructionIndex < instructions.length; instructionIndex++) {
+			if (AnalysisUtils.isMonitorEnter(instructions[instructionIndex])) {
+				monitorEnterIndexes.add(instructionIndex);
+			}
+		}
+		SSACFG controlFlowGraph = ir.getControlFlowGraph();
+		for (int monitorEnterIndex : monitorEnterIndexes.toIntArray()) {
+			computeRegion(controlFlowGraph, monitorEnterIndex);
+		}
+	}
+
+	public IntSet getMonitorEnterIndexes() {
+		return monitorEnterIndexes;
+	}
+
+	public boolean isInside(int instructionIndex, int monitorEnterIndex) {
+		BitVector region = getRegion(monitorEnterIndex);
+		return instructionIndex >= 0 && region.get(instructionIndex);
+	}
+
+	public BitVector getRegion(int monitorEnterIndex) {
+		checkMonitorEnter(monitorEnterIndex);
+		return regions[monitorEnterIndex];
+	}
+
+	private void checkMonitorEnter(int monitorEnterIndex) {
+		if (monitorEnterIndex < 0 || monitorEnterIndex >= regions.length || regions[monitorEnterIndex] == null) {
+			throw new RuntimeException("Expected the index of a monitor enter instruction but got " + monitorEnterIndex);
+		}
+	}
+
+	/**
+	 * Walks the control flow graph from the given monitor enter and tracks the
+	 * nesting level of the synchronized blocks on the same lock value. The
+	 * walk stops at the monitor exits that release the lock at nesting level
+	 * zero.
+	 */
+	private void computeRegion(SSACFG controlFlowGraph, int monitorEnterIndex) {
+		int lockValueNumber = ((SSAMonitorInstruction) instructions[monitorEnterIndex]).getRef();
+		int maxDepth = getNumberOfMonitorEnters(lockValueNumber);
+		BitVector region = new BitVector();
+		BitVector visitedStates = new BitVector();
+		LinkedList<int[]> workList = new LinkedList<int[]>();
+		ISSABasicBlock monitorEnterBlock = controlFlowGraph.getBlockForInstruction(monitorEnterIndex);
+		int depth = visitInstructions(monitorEnterIndex + 1, monitorEnterBlock.getLastInstructionIndex(), lockValueNumber, 0, maxDepth, region);
+		if (depth >= 0) {
+			addSuccessors(controlFlowGraph, monitorEnterBlock, depth, depth, maxDepth, visitedStates, workList);
+		}
+		while (!workList.isEmpty()) {
+			int[] state = workList.poll();
+			ISSABasicBlock basicBlock = controlFlowGraph.getNode(state[0]);
+			int lastInstructionIndex = basicBlock.getLastInstructionIndex();
+			int depthBeforeLastInstruction = visitInstructions(basicBlock.getFirstInstructionIndex(), lastInstructionIndex - 1, lockValueNumber, state[1], maxDepth, region);
+			if (depthBeforeLastInstruction < 0) {
+				continue;
+			}
+			int depthAfterLastInstruction = visitInstructions(lastInstructionIndex, lastInstructionIndex, lockValueNumber, depthBeforeLastInstruction, maxDepth, region);
+			if (depthAfterLastInstruction < 0) {
+				continue;
+			}
+			addSuccessors(controlFlowGraph, basicBlock, depthBeforeLastInstruction, depthAfterLastInstruction, maxDepth, visitedStates, workList);
+		}
+		regions[monitorEnterIndex] = region;
+	}
+
+	/**
+	 * Adds the instructions in the given range to the region.
+	 * 
+	 * @return the nesting level after the given range of instructions, or -1
+	 *         if the range contains a monitor exit that ends the region.
+	 */
+	private int visitInstructions(int firstInstructionIndex, int lastInstructionIndex, int lockValueNumber, int depth, int maxDepth, BitVector region) {
+		for (int instructionIndex = firstInstructionIndex; instructionIndex <= lastInstructionIndex; instructionIndex++) {
+			SSAInstruction instruction = instructions[instructionIndex];
+			if (isMonitorOn(instruction, lockValueNumber)) {
+				if (((SSAMonitorInstruction) instruction).isMonitorEnter()) {
+					depth = Math.min(depth + 1, maxDepth);
+				} else if (depth == 0) {
+					return -1;
+				} else {
+					depth--;
+				}
+			}
+			region.set(instructionIndex);
+		}
+		return depth;
+	}
+
+	/*
+	 * If the last instruction of a basic block throws an exception, it has not
+	 * taken effect. So, the exceptional successors of a basic block start at
+	 * the nesting level before its last instruction.
+	 */
+	private void addSuccessors(SSACFG controlFlowGraph, ISSABasicBlock basicBlock, int exceptionalDepth, int normalDepth, int maxDepth, BitVector visitedStates, LinkedList<int[]> workList) {
+		addSuccessors(controlFlowGraph.getNormalSuccessors(basicBlock), normalDepth, maxDepth, visitedStates, workList);
+		addSuccessors(controlFlowGraph.getExceptionalSuccessors(basicBlock), exceptionalDepth, maxDepth, visitedStates, workList);
+	}
+
+	private void addSuccessors(Collection<ISSABasicBlock> successors, int depth, int maxDepth, BitVector visitedStates, LinkedList<int[]> workList) {
+		for (ISSABasicBlock successor : successors) {
+			int state = successor.getNumber() * (maxDepth + 1) + depth;
+			if (!visitedStates.get(state)) {
+				visitedStates.set(state);
+				workList.add(new int[] { successor.getNumber(), depth });
+			}
+		}
+	}
+
+	private int getNumberOfMonitorEnters(int lockValueNumber) {
+		int numberOfMonitorEnters = 0;
+		for (SSAInstruction instruction : instructions) {
+			if (isMonitorOn(instruction, lockValueNumber) && ((SSAMonitorInstruction) instruction).isMonitorEnter()) {
+				numberOfMonitorEnters++;
+			}
+		}
+		return numberOfMonitorEnters;
+	}
+
+	private static boolean isMonitorOn(SSAInstruction instruction, int lockValueNumber) {
+		return instruction instanceof SSAMonitorInstruction && ((SSAMonitorInstruction) instruction).getRef() == lockValueNumber;
+	}
+
+}
@@ -0,0 +1,303 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ibm.wala.dataflow.graph.AbstractMeetOperator;
+import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.fixpoint.BitVectorVariable;
+import com.ibm.wala.fixpoint.FixedPointConstants;
+import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * Solves a bit vector data flow problem over a numbered graph, such as the
+ * inverted call graph, by visiting the strongly connected components of the
+ * graph in topological order.
+ * 
+ * Unlike WALA's generic BitVectorSolver, which iterates a work list of
+ * equations over the whole graph, this solver materializes the predecessors
+ * and the edge transfer functions of every node once, indexed by the node
+ * numbers. Then, it solves each component after all components that flow
+ * into it. So, an acyclic part of the graph takes a single pass, and only
+ * the nodes of a cycle get visited more than once. Components that do not
+ * depend on each other may be solved concurrently.
+ * 
+ * The value of a node is the meet of its initial value and the values of its
+ * incoming edges. The value of an edge is the result of its edge transfer
+ * function on the out value of its source, or the out value itself if the
+ * problem has no edge transfer functions. The out value of a node is the
+ * result of its node transfer function on its in value, or the in value
+ * itself if the problem has no node transfer functions.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class SCCBitVectorSolver<T> {
+
+	private final NumberedGraph<T> graph;
+
+	private final ITransferFunctionProvider<T, BitVectorVariable> transferFunctions;
+
+	private final StronglyConnectedComponents<T> stronglyConnectedComponents;
+
+	private BitVectorVariable[] inVariables;
+
+	private BitVectorVariable[] outVariables;
+
+	// Indexed by the node numbers. Each node has the numbers of its predecessors and the transfer functions of the corresponding edges.
+	private int[][] predecessors;
+
+	private UnaryOperator<BitVectorVariable>[][] edgeTransferFunctions;
+
+	private UnaryOperator<BitVectorVariable>[] nodeTransferFunctions;
+
+	// Indexed by the component numbers.
+	private int[][] successorComponents;
+
+	private int[] numbersOfPredecessorComponents;
+
+	private boolean[] isCyclic;
+
+	public SCCBitVectorSolver(NumberedGraph<T> graph, ITransferFunctionProvider<T, BitVectorVariable> transferFunctions) {
+		this.graph = graph;
+		this.transferFunctions = transferFunctions;
+		this.stronglyConnectedComponents = new StronglyConnectedComponents<T>(graph);
+	}
+
+	/**
+	 * Creates the initial value of the in or out variable of the given node.
+	 * Subclasses may override this method to seed the nodes with their
+	 * initial values.
+	 */
+	protected BitVectorVariable makeNodeVariable(T node, boolean IN) {
+		return new BitVectorVariable();
+	}
+
+	public void solve() {
+		solve(1);
+	}
+
+	/**
+	 * Solves the data flow problem using up to the given number of threads.
+	 */
+	public void solve(int numberOfThreads) {
+		initialize();
+		int numberOfComponents = stronglyConnectedComponents.getNumberOfComponents();
+		if (numberOfThreads <= 1 || numberOfComponents <= 1) {
+			// The successors of a component have smaller numbers than the component. So, visiting the components in decreasing order is a topological order.
+			for (int component = numberOfComponents - 1; component >= 0; component--) {
+				solveComponent(component);
+			}
+		} else {
+			solveInParallel(numberOfThreads);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void initialize() {
+		int numberOfNodes = graph.getMaxNumber() + 1;
+		inVariables = new BitVectorVariable[numberOfNodes];
+		outVariables = new BitVectorVariable[numberOfNodes];
+		predecessors = new int[numberOfNodes][];
+		edgeTransferFunctions = new UnaryOperator[numberOfNodes][];
+		nodeTransferFunctions = new UnaryOperator[numberOfNodes];
+		int numberOfComponents = stronglyConnectedComponents.getNumberOfComponents();
+		BitVectorIntSet[] successorComponentSets = new BitVectorIntSet[numberOfComponents];
+		isCyclic = new boolean[numberOfComponents];
+		for (int component = 0; component < numberOfComponents; component++) {
+			successorComponentSets[component] = new BitVectorIntSet();
+			isCyclic[component] = stronglyConnectedComponents.getMemberNumbers(component).length > 1;
+		}
+		for (int nodeNumber = 0; nodeNumber < numberOfNodes; nodeNumber++) {
+			T node = graph.getNode(nodeNumber);
+			if (node == null) {
+				continue;
+			}
+			inVariables[nodeNumber] = makeNodeVariable(node, true);
+			outVariables[nodeNumber] = transferFunctions.hasNodeTransferFunctions() ? makeNodeVariable(node, false) : inVariables[nodeNumber];
+			if (transferFunctions.hasNodeTransferFunctions()) {
+				nodeTransferFunctions[nodeNumber] = transferFunctions.getNodeTransferFunction(node);
+			}
+			int component = stronglyConnectedComponents.getComponentOfNodeNumber(nodeNumber);
+			predecessors[nodeNumber] = toArray(graph.getPredNodeNumbers(node));
+			edgeTransferFunctions[nodeNumber] = new UnaryOperator[predecessors[nodeNumber].length];
+			for (int i = 0; i < predecessors[nodeNumber].length; i++) {
+				int predecessorNumber = predecessors[nodeNumber][i];
+				if (transferFunctions.hasEdgeTransferFunctions()) {
+					edgeTransferFunctions[nodeNumber][i] = transferFunctions.getEdgeTransferFunction(graph.getNode(predecessorNumber), node);
+				}
+				int predecessorComponent = stronglyConnectedComponents.getComponentOfNodeNumber(predecessorNumber);
+				if (predecessorComponent == component) {
+					isCyclic[component] = true;
+				} else {
+					successorComponentSets[predecessorComponent].add(component);
+				}
+			}
+		}
+		successorComponents = new int[numberOfComponents][];
+		numbersOfPredecessorComponents = new int[numberOfComponents];
+		for (int component = 0; component < numberOfComponents; component++) {
+			successorComponents[component] = toArray(successorComponentSets[component]);
+			for (int successorComponent : successorComponents[component]) {
+				++numbersOfPredecessorComponents[successorComponent];
+			}
+		}
+	}
+
+	/**
+	 * Solves the components on a pool of threads. A component gets scheduled
+	 * as soon as all components that flow into it are solved. A thread that
+	 * makes a single component ready solves it next instead of scheduling it,
+	 * so that chains of components do not go through the pool.
+	 */
+	private void solveInParallel(int numberOfThreads) {
+		final int numberOfComponents = stronglyConnectedComponents.getNumberOfComponents();
+		final AtomicInteger[] numbersOfUnsolvedPredecessorComponents = new AtomicInteger[numberOfComponents];
+		for (int component = 0; component < numberOfComponents; component++) {
+			numbersOfUnsolvedPredecessorComponents[component] = new AtomicInteger(numbersOfPredecessorComponents[component]);
+		}
+		final CountDownLatch unsolvedComponents = new CountDownLatch(numberOfComponents);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			class ComponentTask implements Runnable {
+
+				private final int firstComponent;
+
+				ComponentTask(int firstComponent) {
+					this.firstComponent = firstComponent;
+				}
+
+				@Override
+				public void run() {
+					int component = firstComponent;
+					// Once a task has failed, the waiting thread shuts down the pool. So, the other tasks neither solve nor schedule any more components.
+					while (component >= 0 && failure.get() == null) {
+						try {
+							solveComponent(component);
+						} catch (Throwable e) {
+							failure.compareAndSet(null, e);
+							// Release the waiting thread.
+							while (unsolvedComponents.getCount() > 0) {
+								unsolvedComponents.countDown();
+							}
+							return;
+						}
+						unsolvedComponents.countDown();
+						int nextComponent = -1;
+						for (int successorComponent : successorComponents[component]) {
+							if (numbersOfUnsolvedPredecessorComponents[successorComponent].decrementAndGet() == 0) {
+								if (nextComponent >= 0) {
+									if (failure.get() != null) {
+										return;
+									}
+									try {
+										executorService.execute(new ComponentTask(nextComponent));
+									} catch (RejectedExecutionException e) {
+										// The pool has been shut down after a failure in another task.
+										return;
+									}
+								}
+								nextComponent = successorComponent;
+							}
+						}
+						component = nextComponent;
+					}
+				}
+
+			}
+			for (int component = numberOfComponents - 1; component >= 0; component--) {
+				if (numbersOfPredecessorComponents[component] == 0) {
+					executorService.execute(new ComponentTask(component));
+				}
+			}
+			unsolvedComponents.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Bitvector solver was interrupted", e);
+		} finally {
+			executorService.shutdownNow();
+		}
+		Throwable throwable = failure.get();
+		if (throwable instanceof Error) {
+			throw (Error) throwable;
+		} else if (throwable instanceof RuntimeException) {
+			throw (RuntimeException) throwable;
+		}
+	}
+
+	private void solveComponent(int component) {
+		int[] members = stronglyConnectedComponents.getMemberNumbers(component);
+		boolean changed;
+		do {
+			changed = false;
+			for (int member : members) {
+				changed |= solveNode(member);
+			}
+		} while (changed && isCyclic[component]);
+	}
+
+	/**
+	 * @return true if the out value of the given node has changed.
+	 */
+	private boolean solveNode(int nodeNumber) {
+		int[] predecessorsOfNode = predecessors[nodeNumber];
+		BitVectorVariable inVariable = inVariables[nodeNumber];
+		boolean changed = false;
+		if (predecessorsOfNode.length > 0) {
+			BitVectorVariable[] edgeValues = new BitVectorVariable[predecessorsOfNode.length];
+			for (int i = 0; i < predecessorsOfNode.length; i++) {
+				BitVectorVariable predecessorOutVariable = outVariables[predecessorsOfNode[i]];
+				UnaryOperator<BitVectorVariable> edgeTransferFunction = edgeTransferFunctions[nodeNumber][i];
+				if (edgeTransferFunction == null) {
+					edgeValues[i] = predecessorOutVariable;
+				} else {
+					edgeValues[i] = new BitVectorVariable();
+					edgeTransferFunction.evaluate(edgeValues[i], predecessorOutVariable);
+				}
+			}
+			AbstractMeetOperator<BitVectorVariable> meetOperator = transferFunctions.getMeetOperator();
+			changed = isChanged(meetOperator.evaluate(inVariable, edgeValues));
+		}
+		UnaryOperator<BitVectorVariable> nodeTransferFunction = nodeTransferFunctions[nodeNumber];
+		if (nodeTransferFunction != null) {
+			changed = isChanged(nodeTransferFunction.evaluate(outVariables[nodeNumber], inVariable));
+		}
+		return changed;
+	}
+
+	private static int[] toArray(IntSet intSet) {
+		int[] array = new int[intSet.size()];
+		int i = 0;
+		IntIterator intIterator = intSet.intIterator();
+		while (intIterator.hasNext()) {
+			array[i++] = intIterator.next();
+		}
+		return array;
+	}
+
+	private static boolean isChanged(byte result) {
+		return (result & FixedPointConstants.CHANGED) != 0;
+	}
+
+	public BitVectorVariable getIn(T node) {
+		return inVariables[graph.getNumber(node)];
+	}
+
+	public BitVectorVariable getOut(T node) {
+		return outVariables[graph.getNumber(node)];
+	}
+
+}
@@ -0,0 +1,80 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Finds the source files of the classes under a list of source roots, e.g.
+ * "src/main/java". It assumes that each top level class lives in a file named
+ * after it in the directory of its package.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class SourceRootsCodePositionResolver extends CodePositionResolver {
+
+	private static final String JAVA_FILE_EXTENSION = ".java"; //$NON-NLS-1$
+
+	private final List<File> sourceRoots;
+
+	private final String encoding;
+
+	public SourceRootsCodePositionResolver(List<File> sourceRoots, String encoding) {
+		this.sourceRoots = sourceRoots;
+		this.encoding = encoding;
+	}
+
+	@Override
+	protected SourceFile findSourceFile(String enclosingClassName) {
+		String topLevelClassName = enclosingClassName;
+		int indexOfDollarSign = topLevelClassName.indexOf('$');
+		if (indexOfDollarSign != -1) {
+			topLevelClassName = topLevelClassName.substring(0, indexOfDollarSign);
+		}
+		String relativePath = topLevelClassName.replace('.', File.separatorChar) + JAVA_FILE_EXTENSION;
+		for (File sourceRoot : sourceRoots) {
+			final File file = new File(sourceRoot, relativePath);
+			if (file.isFile()) {
+				return new SourceFile(new Path(file.getAbsolutePath())) {
+
+					@Override
+					protected String getContents() {
+						try {
+							return read(file);
+						} catch (IOException e) {
+							return null;
+						}
+					}
+
+				};
+			}
+		}
+		return null;
+	}
+
+	private String read(File file) throws IOException {
+		Reader reader = new InputStreamReader(new FileInputStream(file), encoding);
+		try {
+			StringBuilder contents = new StringBuilder();
+			char[] buffer = new char[8192];
+			int length;
+			while ((length = reader.read(buffer)) != -1) {
+				contents.append(buffer, 0, length);
+			}
+			return contents.toString();
+		} finally {
+			reader.close();
+		}
+	}
+
+}
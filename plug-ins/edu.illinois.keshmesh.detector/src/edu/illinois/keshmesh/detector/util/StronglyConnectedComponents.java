@@ -0,0 +1,150 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.detector.util;
+
+import java.util.Arrays;
+
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.intset.IntIterator;
+
+/**
+ * Computes the strongly connected components of a numbered graph using an
+ * iterative version of Tarjan's algorithm. So, it does not overflow the stack
+ * on deep graphs such as heap graphs.
+ * 
+ * The components are numbered in reverse topological order. That is, if there
+ * is an edge from a node in component c1 to a node in component c2, then c2 <=
+ * c1. So, visiting the components in increasing order visits the successors
+ * of each component before the component itself.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class StronglyConnectedComponents<T> {
+
+	private static final int UNVISITED = -1;
+
+	private final NumberedGraph<T> graph;
+
+	// Maps the number of each node to the number of its component.
+	private final int[] components;
+
+	// The node numbers of the members of each component.
+	private final int[][] members;
+
+	public StronglyConnectedComponents(NumberedGraph<T> graph) {
+		this.graph = graph;
+		this.components = new int[graph.getMaxNumber() + 1];
+		Arrays.fill(components, UNVISITED);
+		int numberOfComponents = computeComponents();
+		this.members = computeMembers(numberOfComponents);
+	}
+
+	private int computeComponents() {
+		int numberOfNodes = components.length;
+		int[] indexes = new int[numberOfNodes];
+		Arrays.fill(indexes, UNVISITED);
+		int[] lowLinks = new int[numberOfNodes];
+		boolean[] isOnStack = new boolean[numberOfNodes];
+		int[] stack = new int[numberOfNodes];
+		int stackSize = 0;
+		int[] frameNodes = new int[numberOfNodes];
+		IntIterator[] frameSuccessors = new IntIterator[numberOfNodes];
+		int numberOfFrames = 0;
+		int nextIndex = 0;
+		int numberOfComponents = 0;
+
+		for (int root = 0; root < numberOfNodes; root++) {
+			if (indexes[root] != UNVISITED || graph.getNode(root) == null) {
+				continue;
+			}
+			indexes[root] = lowLinks[root] = nextIndex++;
+			stack[stackSize++] = root;
+			isOnStack[root] = true;
+			frameNodes[numberOfFrames] = root;
+			frameSuccessors[numberOfFrames++] = graph.getSuccNodeNumbers(graph.getNode(root)).intIterator();
+			while (numberOfFrames > 0) {
+				int node = frameNodes[numberOfFrames - 1];
+				IntIterator successors = frameSuccessors[numberOfFrames - 1];
+				if (successors.hasNext()) {
+					int successor = successors.next();
+					if (indexes[successor] == UNVISITED) {
+						indexes[successor] = lowLinks[successor] = nextIndex++;
+						stack[stackSize++] = successor;
+						isOnStack[successor] = true;
+						frameNodes[numberOfFrames] = successor;
+						frameSuccessors[numberOfFrames++] = graph.getSuccNodeNumbers(graph.getNode(successor)).intIterator();
+					} else if (isOnStack[successor]) {
+						lowLinks[node] = Math.min(lowLinks[node], indexes[successor]);
+					}
+				} else {
+					frameSuccessors[--numberOfFrames] = null;
+					if (lowLinks[node] == indexes[node]) {
+						int member;
+						do {
+							member = stack[--stackSize];
+							isOnStack[member] = false;
+							components[member] = numberOfComponents;
+						} while (member != node);
+						++numberOfComponents;
+					}
+					if (numberOfFrames > 0) {
+						int parent = frameNodes[numberOfFrames - 1];
+						lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+					}
+				}
+			}
+		}
+		return numberOfComponents;
+	}
+
+	private int[][] computeMembers(int numberOfComponents) {
+		int[] sizes = new int[numberOfComponents];
+		for (int component : components) {
+			if (component != UNVISITED) {
+				++sizes[component];
+			}
+		}
+		int[][] result = new int[numberOfComponents][];
+		for (int component = 0; component < numberOfComponents; component++) {
+			result[component] = new int[sizes[component]];
+		}
+		Arrays.fill(sizes, 0);
+		for (int node = 0; node < components.length; node++) {
+			int component = components[node];
+			if (component != UNVISITED) {
+				result[component][sizes[component]++] = node;
+			}
+		}
+		return result;
+	}
+
+	public NumberedGraph<T> getGraph() {
+		return graph;
+	}
+
+	public int getNumberOfComponents() {
+		return members.length;
+	}
+
+	/**
+	 * @return the number of the component of the given node.
+	 */
+	public int getComponent(T node) {
+		return components[graph.getNumber(node)];
+	}
+
+	public int getComponentOfNodeNumber(int nodeNumber) {
+		return components[nodeNumber];
+	}
+
+	/**
+	 * @return the numbers of the nodes of the given component.
+	 */
+	public int[] getMemberNumbers(int component) {
+		return members[component];
+	}
+
+}
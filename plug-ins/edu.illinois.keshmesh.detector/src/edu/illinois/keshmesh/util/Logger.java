@@ -3,7 +3,25 @@
  */
 package edu.illinois.keshmesh.util;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
+ * A leveled logger per category. The level of each category is computed once
+ * from the environment when the logger of the category is created. So,
+ * checking whether a level is enabled is a field comparison.
+ * 
+ * KESHMESH_LOG_LEVEL sets the level of all categories (one of OFF, ERROR,
+ * INFO, DEBUG and TRACE). If it is not set, the level is TRACE in debug mode
+ * and OFF otherwise. KESHMESH_LOG_CATEGORIES is a comma separated list of the
+ * categories to log. If it is not set, all categories get logged.
+ * 
+ * Call sites that build expensive messages should either check
+ * isDebugEnabled()/isTraceEnabled() first, or pass the arguments of a format
+ * string or a {@link Message} so that the message gets built only if the
+ * level is enabled.
  * 
  * @author Mohsen Vakilian
  * @author Stas Negara
@@ -11,10 +29,158 @@ package edu.illinois.keshmesh.util;
  */
 public class Logger {
 
+	public enum Level {
+		OFF, ERROR, INFO, DEBUG, TRACE
+	}
+
+	/**
+	 * A message that gets built only if it is going to be logged.
+	 */
+	public interface Message {
+
+		String get();
+
+	}
+
+	static final String KESHMESH_LOG_LEVEL = "KESHMESH_LOG_LEVEL"; //$NON-NLS-1$
+
+	static final String KESHMESH_LOG_CATEGORIES = "KESHMESH_LOG_CATEGORIES"; //$NON-NLS-1$
+
+	private static final String DEFAULT_CATEGORY = "Keshmesh"; //$NON-NLS-1$
+
+	private static final Level configuredLevel = getConfiguredLevel();
+
+	private static final Set<String> configuredCategories = getConfiguredCategories();
+
+	private static final Map<String, Logger> loggers = new HashMap<String, Logger>();
+
+	private static final Logger defaultLogger = getLogger(DEFAULT_CATEGORY);
+
+	private final String category;
+
+	private final Level level;
+
+	private Logger(String category, Level level) {
+		this.category = category;
+		this.level = level;
+	}
+
+	public static Logger getLogger(Class<?> klass) {
+		return getLogger(klass.getSimpleName());
+	}
+
+	public static synchronized Logger getLogger(String category) {
+		Logger logger = loggers.get(category);
+		if (logger == null) {
+			Level level = configuredCategories == null || configuredCategories.contains(category) ? configuredLevel : Level.OFF;
+			logger = new Logger(category, level);
+			loggers.put(category, logger);
+		}
+		return logger;
+	}
+
+	/**
+	 * Logs the given message at the DEBUG level of the default category.
+	 */
 	public static void log(String message) {
-		if (Modes.isInDebugMode()) {
+		defaultLogger.debug(message);
+	}
+
+	public String getCategory() {
+		return category;
+	}
+
+	public boolean isEnabled(Level level) {
+		return level != Level.OFF && this.level.compareTo(level) >= 0;
+	}
+
+	public boolean isInfoEnabled() {
+		return isEnabled(Level.INFO);
+	}
+
+	public boolean isDebugEnabled() {
+		return isEnabled(Level.DEBUG);
+	}
+
+	public boolean isTraceEnabled() {
+		return isEnabled(Level.TRACE);
+	}
+
+	public void info(String message) {
+		log(Level.INFO, message);
+	}
+
+	public void info(String format, Object... arguments) {
+		log(Level.INFO, format, arguments);
+	}
+
+	public void debug(String message) {
+		log(Level.DEBUG, message);
+	}
+
+	public void debug(String format, Object... arguments) {
+		log(Level.DEBUG, format, arguments);
+	}
+
+	public void debug(Message message) {
+		log(Level.DEBUG, message);
+	}
+
+	public void trace(String message) {
+		log(Level.TRACE, message);
+	}
+
+	public void trace(String format, Object... arguments) {
+		log(Level.TRACE, format, arguments);
+	}
+
+	public void trace(Message message) {
+		log(Level.TRACE, message);
+	}
+
+	public void log(Level level, String message) {
+		if (isEnabled(level)) {
 			System.out.println(message);
 		}
 	}
 
+	public void log(Level level, String format, Object... arguments) {
+		if (isEnabled(level)) {
+			System.out.println(String.format(format, arguments));
+		}
+	}
+
+	public void log(Level level, Message message) {
+		if (isEnabled(level)) {
+			System.out.println(message.get());
+		}
+	}
+
+	private static Level getConfiguredLevel() {
+		String levelName = System.getenv(KESHMESH_LOG_LEVEL);
+		if (levelName != null) {
+			try {
+				return Level.valueOf(levelName.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				System.err.println("Unknown log level " + levelName + " in " + KESHMESH_LOG_LEVEL + ".");
+			}
+		}
+		// Modes reports its invalid settings through a logger. So, reading the debug mode through Modes would make the initialization of the two classes depend on each other.
+		return System.getenv(Modes.KESHMESH_DEBUG_MODE) != null ? Level.TRACE : Level.OFF;
+	}
+
+	private static Set<String> getConfiguredCategories() {
+		String categoryNames = System.getenv(KESHMESH_LOG_CATEGORIES);
+		if (categoryNames == null) {
+			return null;
+		}
+		Set<String> categories = new HashSet<String>();
+		for (String categoryName : categoryNames.split(",")) {
+			if (categoryName.trim().length() > 0) {
+				categories.add(categoryName.trim());
+			}
+		}
+		return categories;
+	}
+
 }
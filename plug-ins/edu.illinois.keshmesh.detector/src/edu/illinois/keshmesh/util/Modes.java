@@ -3,6 +3,9 @@
  */
 package edu.illinois.keshmesh.util;
 
+import edu.illinois.keshmesh.walaconfig.AnalysisProfile;
+import edu.illinois.keshmesh.walaconfig.KObjectSensitiveContextSelector;
+
 /**
  * 
  * @author Mohsen Vakilian
@@ -13,10 +16,45 @@ public class Modes {
 
 	static final String KESHMESH_DEBUG_MODE = "KESHMESH_DEBUG_MODE"; //$NON-NLS-1$
 
+	static final String KESHMESH_PARALLEL_MODE = "KESHMESH_PARALLEL_MODE"; //$NON-NLS-1$
+
+	static final String KESHMESH_INCREMENTAL_MODE = "KESHMESH_INCREMENTAL_MODE"; //$NON-NLS-1$
+
+	static final String KESHMESH_FIELD_GRANULAR_MODE = "KESHMESH_FIELD_GRANULAR_MODE"; //$NON-NLS-1$
+
+	static final String KESHMESH_SUMMARY_MODE = "KESHMESH_SUMMARY_MODE"; //$NON-NLS-1$
+
+	static final String KESHMESH_ANALYSIS_PROFILE = "KESHMESH_ANALYSIS_PROFILE"; //$NON-NLS-1$
+
+	static final String KESHMESH_MAX_CONTEXTS_PER_METHOD = "KESHMESH_MAX_CONTEXTS_PER_METHOD"; //$NON-NLS-1$
+
+	private static final boolean inDebugMode = System.getenv(KESHMESH_DEBUG_MODE) != null;
+
+	// The logger has to get created before the modes that it reports problems about.
+	private static final Logger logger = Logger.getLogger(Modes.class);
+
 	static boolean inTestMode = false;
 
+	static boolean inParallelMode = System.getenv(KESHMESH_PARALLEL_MODE) != null;
+
+	static boolean inIncrementalMode = System.getenv(KESHMESH_INCREMENTAL_MODE) != null;
+
+	static boolean inFieldGranularMode = System.getenv(KESHMESH_FIELD_GRANULAR_MODE) != null;
+
+	static boolean inSummaryMode = System.getenv(KESHMESH_SUMMARY_MODE) != null;
+
+	static AnalysisProfile analysisProfileBudget = getConfiguredAnalysisProfileBudget();
+
+	static AnalysisProfile forcedAnalysisProfile = null;
+
+	static int maxContextsPerMethod = getConfiguredMaxContextsPerMethod();
+
+	/**
+	 * The environment does not change while Keshmesh runs. So, the debug mode
+	 * is read once.
+	 */
 	public static boolean isInDebugMode() {
-		return System.getenv(KESHMESH_DEBUG_MODE) != null;
+		return inDebugMode;
 	}
 
 	public static boolean isInTestMode() {
@@ -27,8 +65,145 @@ public class Modes {
 		Modes.inTestMode = inTestMode;
 	}
 
+	/**
+	 * In parallel mode, the enabled detectors run concurrently over the same
+	 * BasicAnalysisData.
+	 */
+	public static boolean isInParallelMode() {
+		return inParallelMode;
+	}
+
+	public static void setInParallelMode(boolean inParallelMode) {
+		Modes.inParallelMode = inParallelMode;
+	}
+
+	/**
+	 * In incremental mode, the detectors only reanalyze the classes that are
+	 * impacted by the changes since the last cached analysis of the project and
+	 * carry over the rest of the cached bug instances. The incremental mode
+	 * only takes effect if the cache of analysis results is enabled.
+	 */
+	public static boolean isInIncrementalMode() {
+		return inIncrementalMode;
+	}
+
+	public static void setInIncrementalMode(boolean inIncrementalMode) {
+		Modes.inIncrementalMode = inIncrementalMode;
+	}
+
+	/**
+	 * In field granular mode, VNA00J propagates the fields that methods may
+	 * access without protection through the call graph rather than the
+	 * instructions that access them. The instructions that get reported in a
+	 * method are recovered from the method itself. So, the bit vectors of the
+	 * data flow problem are as wide as the number of accessed fields instead
+	 * of the number of unprotected instructions of the whole program.
+	 */
+	public static boolean isInFieldGranularMode() {
+		return inFieldGranularMode;
+	}
+
+	public static void setInFieldGranularMode(boolean inFieldGranularMode) {
+		Modes.inFieldGranularMode = inFieldGranularMode;
+	}
+
+	/**
+	 * In summary mode, LCK06J summarizes every method by the static fields
+	 * that it may modify outside a safe lock, directly or through its callees.
+	 * The summaries get composed at the call sites bottom-up over the call
+	 * graph and the reports are built from the summaries of the callees
+	 * rather than from the individual instructions that modify static fields.
+	 */
+	public static boolean isInSummaryMode() {
+		return inSummaryMode;
+	}
+
+	public static void setInSummaryMode(boolean inSummaryMode) {
+		Modes.inSummaryMode = inSummaryMode;
+	}
+
+	/**
+	 * The analysis profile budget is the most expensive analysis profile that
+	 * the call graph may get built with (see {@link AnalysisProfile}). It is
+	 * read from the KESHMESH_ANALYSIS_PROFILE environment variable, e.g.
+	 * "fast", and defaults to the precise profile if the variable is not set
+	 * or names no profile. The call graph gets built with a cheaper profile if
+	 * the enabled bug patterns do not need the budget.
+	 */
+	public static AnalysisProfile getAnalysisProfileBudget() {
+		return analysisProfileBudget;
+	}
+
+	public static void setAnalysisProfileBudget(AnalysisProfile analysisProfileBudget) {
+		Modes.analysisProfileBudget = analysisProfileBudget;
+	}
+
+	/**
+	 * The forced analysis profile, if any, is the profile that the call graph
+	 * gets built with regardless of the enabled bug patterns and the budget.
+	 * The tests use it to check the detectors against the profile that their
+	 * expected results were written for.
+	 * 
+	 * @return the forced analysis profile, or null if the profile gets
+	 *         selected from the enabled bug patterns.
+	 */
+	public static AnalysisProfile getForcedAnalysisProfile() {
+		return forcedAnalysisProfile;
+	}
+
+	public static void setForcedAnalysisProfile(AnalysisProfile forcedAnalysisProfile) {
+		Modes.forcedAnalysisProfile = forcedAnalysisProfile;
+	}
+
+	/**
+	 * The maximum number of contexts that the object sensitive context
+	 * selector gives a method before it lowers the sensitivity of the method
+	 * (see {@link KObjectSensitiveContextSelector}). It is read from the
+	 * KESHMESH_MAX_CONTEXTS_PER_METHOD environment variable. If the variable
+	 * is not set or is not a positive integer, the number of contexts is
+	 * unlimited and the selector does not adapt the sensitivity of any method.
+	 * In particular, the calls on immutable value types only get type contexts
+	 * if the number of contexts is limited.
+	 */
+	public static int getMaxContextsPerMethod() {
+		return maxContextsPerMethod;
+	}
+
+	public static void setMaxContextsPerMethod(int maxContextsPerMethod) {
+		Modes.maxContextsPerMethod = maxContextsPerMethod;
+	}
+
 	public static boolean isInProductionMode() {
 		return !isInTestMode() && !isInDebugMode();
 	}
 
+	private static AnalysisProfile getConfiguredAnalysisProfileBudget() {
+		String profileName = System.getenv(KESHMESH_ANALYSIS_PROFILE);
+		if (profileName != null) {
+			try {
+				return AnalysisProfile.fromName(profileName.trim());
+			} catch (IllegalArgumentException e) {
+				logger.info("Unknown analysis profile %s in %s.", profileName, KESHMESH_ANALYSIS_PROFILE);
+			}
+		}
+		return AnalysisProfile.PRECISE;
+	}
+
+	private static int getConfiguredMaxContextsPerMethod() {
+		String maxContextsValue = System.getenv(KESHMESH_MAX_CONTEXTS_PER_METHOD);
+		if (maxContextsValue != null) {
+			int maxContexts = 0;
+			try {
+				maxContexts = Integer.parseInt(maxContextsValue.trim());
+			} catch (NumberFormatException e) {
+				maxContexts = 0;
+			}
+			if (maxContexts >= 1) {
+				return maxContexts;
+			}
+			logger.info("Invalid number of contexts %s in %s. It should be a positive integer.", maxContextsValue, KESHMESH_MAX_CONTEXTS_PER_METHOD);
+		}
+		return KObjectSensitiveContextSelector.UNLIMITED_CONTEXTS;
+	}
+
 }
@@ -0,0 +1,153 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.walaconfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.client.AbstractAnalysisEngine;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.ClassTargetSelector;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.MethodTargetSelector;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.summaries.BypassClassTargetSelector;
+import com.ibm.wala.ipa.summaries.BypassMethodTargetSelector;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
+import com.ibm.wala.types.MemberReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.strings.Atom;
+
+import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+
+/**
+ * Configures the call graph builder and the entry points of Keshmesh.
+ * Subclasses decide where the analysis scope comes from.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public abstract class AbstractKeshmeshAnalysisEngine extends AbstractAnalysisEngine {
+
+	// The context selector of the call graph builder, or null if no call graph builder has been created.
+	private ContextSelector contextSelector = null;
+
+	/**
+	 * @return the analysis scope built by {@link #buildAnalysisScope()}.
+	 */
+	public AnalysisScope getAnalysisScope() {
+		return scope;
+	}
+
+	/**
+	 * @return a new stream over the exclusions of the analysis scope. The
+	 *         caller has to close the stream.
+	 */
+	public abstract InputStream openExclusions() throws IOException;
+
+	/**
+	 * @return a string that identifies the code under analysis regardless of
+	 *         its contents, e.g. the location of the project.
+	 */
+	public abstract String getApplicationDescription();
+
+	/**
+	 * @return the methods whose sensitivity got lowered while the call graph
+	 *         was built because they got too many contexts, mapped to their
+	 *         final K (see {@link KObjectSensitiveContextSelector}).
+	 */
+	public Map<IMethod, Integer> getDemotedMethods() {
+		if (contextSelector instanceof KObjectSensitiveContextSelector) {
+			return ((KObjectSensitiveContextSelector) contextSelector).getDemotedMethods();
+		}
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * @return the methods that got the types of their receivers as their
+	 *         contexts while the call graph was built because their receivers
+	 *         are immutable value types (see
+	 *         {@link KObjectSensitiveContextSelector}).
+	 */
+	public Set<IMethod> getMethodsOfImmutableReceivers() {
+		if (contextSelector instanceof KObjectSensitiveContextSelector) {
+			return ((KObjectSensitiveContextSelector) contextSelector).getMethodsOfImmutableReceivers();
+		}
+		return Collections.emptySet();
+	}
+
+	/**
+	 * 
+	 * See com.ibm.wala.ipa.callgraph.impl.Util.addBypassLogic(AnalysisOptions,
+	 * AnalysisScope, ClassLoader, String, IClassHierarchy)
+	 * 
+	 * @param classHierarchy
+	 * @param analysisOptions
+	 * @throws IllegalArgumentException
+	 */
+	private void addCustomBypassLogic(IClassHierarchy classHierarchy, AnalysisOptions analysisOptions) throws IllegalArgumentException {
+		ClassLoader classLoader = Util.class.getClassLoader();
+		if (classLoader == null) {
+			throw new IllegalArgumentException("classLoader is null");
+		}
+
+		Util.addDefaultSelectors(analysisOptions, classHierarchy);
+
+		InputStream inputStream = classLoader.getResourceAsStream(Util.nativeSpec);
+		XMLMethodSummaryReader methodSummaryReader = new XMLMethodSummaryReader(inputStream, scope);
+
+		MethodTargetSelector customMethodTargetSelector = getCustomBypassMethodTargetSelector(classHierarchy, analysisOptions, methodSummaryReader);
+		analysisOptions.setSelector(customMethodTargetSelector);
+
+		ClassTargetSelector customClassTargetSelector = new BypassClassTargetSelector(analysisOptions.getClassTargetSelector(), methodSummaryReader.getAllocatableClasses(), classHierarchy,
+				classHierarchy.getLoader(scope.getLoader(Atom.findOrCreateUnicodeAtom("Synthetic"))));
+		analysisOptions.setSelector(customClassTargetSelector);
+	}
+
+	private BypassMethodTargetSelector getCustomBypassMethodTargetSelector(IClassHierarchy classHierarchy, AnalysisOptions analysisOptions, XMLMethodSummaryReader summary) {
+		return new KeshmeshBypassMethodTargetSelector(analysisOptions.getMethodTargetSelector(), summary.getSummaries(), summary.getIgnoredPackages(), classHierarchy);
+	}
+
+	@Override
+	protected CallGraphBuilder getCallGraphBuilder(IClassHierarchy classHierarchy, AnalysisOptions analysisOptions, AnalysisCache analysisCache) {
+		addCustomBypassLogic(classHierarchy, analysisOptions);
+		contextSelector = KeshmeshAnalysisEngine.getAnalysisProfile().createContextSelector();
+		return KeshmeshAnalysisEngine.getCallGraphBuilder(scope, classHierarchy, analysisOptions, analysisCache, contextSelector);
+	}
+
+	@Override
+	protected Iterable<Entrypoint> makeDefaultEntrypoints(AnalysisScope analysisScope, IClassHierarchy classHierarchy) {
+		return KeshmeshAnalysisEngine.makeDefaultEntrypoints(analysisScope.getApplicationLoader(), classHierarchy);
+	}
+
+}
+
+class KeshmeshBypassMethodTargetSelector extends BypassMethodTargetSelector {
+
+	public KeshmeshBypassMethodTargetSelector(MethodTargetSelector parent, Map<MethodReference, MethodSummary> methodSummaries, Set<Atom> ignoredPackages, IClassHierarchy cha) {
+		super(parent, methodSummaries, ignoredPackages, cha);
+	}
+
+	@Override
+	protected boolean canIgnore(MemberReference m) {
+		//FIXME: LCK01BugDetector depends on some JDK classes.
+		//		if (AnalysisUtils.isLibraryClass(m.getDeclaringClass()) || (AnalysisUtils.isJDKClass(m.getDeclaringClass()) && !AnalysisUtils.isObjectGetClass(m))) {
+		if (AnalysisUtils.isLibraryClass(m.getDeclaringClass())) {
+			return true;
+		} else {
+			return super.canIgnore(m);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.walaconfig;
+
+import java.util.Collection;
+
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXCFABuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
+
+import edu.illinois.keshmesh.detector.bugs.BugPattern;
+import edu.illinois.keshmesh.util.Modes;
+
+/**
+ * The configurations of the call graph builder that Keshmesh chooses from.
+ * The profiles are ordered from the cheapest to the most precise one.
+ * 
+ * Each bug pattern declares the cheapest profile that its detector is precise
+ * enough with (see {@link BugPattern#getRequiredAnalysisProfile()}). The
+ * analysis uses the most precise profile that the enabled bug patterns require,
+ * but never a profile more expensive than the budget that the user sets (see
+ * {@link #select(Collection, AnalysisProfile)}).
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public enum AnalysisProfile {
+
+	/**
+	 * Distinguishes the calls by the concrete type of the receiver. It is
+	 * enough for the detectors that only look at the types and the allocation
+	 * sites of the locks.
+	 */
+	FAST(0),
+
+	/**
+	 * Distinguishes the calls to the methods outside the JDK by the allocation
+	 * site of the receiver (1-object sensitivity).
+	 */
+	BALANCED(1),
+
+	/**
+	 * Distinguishes the calls to the methods outside the JDK by the allocation
+	 * sites of the receiver and the receiver of its caller (2-object
+	 * sensitivity). It is the configuration that Keshmesh
+	 * has always used.
+	 */
+	PRECISE(2);
+
+	/*
+	 * All profiles create an instance key per allocation site, because the
+	 * detectors of LCK01J and LCK02J tell the locks apart by their allocation
+	 * sites.
+	 */
+	private static final int INSTANCE_POLICY = ZeroXInstanceKeys.ALLOCATIONS | ZeroXInstanceKeys.SMUSH_MANY | ZeroXInstanceKeys.SMUSH_THROWABLES;
+
+	// The length of the receiver strings, or 0 for contexts of receiver types.
+	private final int objectSensitivity;
+
+	private AnalysisProfile(int objectSensitivity) {
+		this.objectSensitivity = objectSensitivity;
+	}
+
+	public ContextSelector createContextSelector() {
+		if (objectSensitivity == 0) {
+			return new CustomReceiverTypeContextSelector();
+		}
+		return new KObjectSensitiveContextSelector(objectSensitivity, Modes.getMaxContextsPerMethod());
+	}
+
+	public int getInstancePolicy() {
+		return INSTANCE_POLICY;
+	}
+
+	/**
+	 * @return a description of the call graph builder, its instance policy and
+	 *         its context selector. Cached analysis results are only valid for
+	 *         the same configuration.
+	 */
+	public String getConfiguration() {
+		String contextSelectorConfiguration;
+		if (objectSensitivity == 0) {
+			contextSelectorConfiguration = CustomReceiverTypeContextSelector.getConfiguration();
+		} else {
+			contextSelectorConfiguration = KObjectSensitiveContextSelector.getConfiguration(objectSensitivity, Modes.getMaxContextsPerMethod());
+		}
+		return name() + ": " + ZeroXCFABuilder.class.getName() + "(instancePolicy=" + getInstancePolicy() + "), " + contextSelectorConfiguration; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	/**
+	 * @return the cheapest profile that is precise enough for all of the given
+	 *         bug patterns, or the given budget if the bug patterns require a
+	 *         more expensive profile.
+	 */
+	public static AnalysisProfile select(Collection<BugPattern> bugPatterns, AnalysisProfile budget) {
+		AnalysisProfile requiredProfile = FAST;
+		for (BugPattern bugPattern : bugPatterns) {
+			if (bugPattern.getRequiredAnalysisProfile().compareTo(requiredProfile) > 0) {
+				requiredProfile = bugPattern.getRequiredAnalysisProfile();
+			}
+		}
+		return requiredProfile.compareTo(budget) > 0 ? budget : requiredProfile;
+	}
+
+	/**
+	 * @return the profile with the given case insensitive name, e.g. "fast".
+	 */
+	public static AnalysisProfile fromName(String name) {
+		for (AnalysisProfile analysisProfile : values()) {
+			if (analysisProfile.name().equalsIgnoreCase(name)) {
+				return analysisProfile;
+			}
+		}
+		throw new IllegalArgumentException("Unknown analysis profile: " + name);
+	}
+
+	@Override
+	public String toString() {
+		return name().toLowerCase();
+	}
+
+}
@@ -0,0 +1,99 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.walaconfig;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.config.FileOfClasses;
+
+/**
+ * Builds the analysis scope from plain jars and class directories, so that
+ * Keshmesh can run without an Eclipse workspace.
+ * 
+ * Like {@link EclipseProjectAnalysisEngine}, it loads the JDK in the
+ * primordial loader, the libraries in the extension loader, and the classes
+ * under analysis in the application loader.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class ClasspathAnalysisEngine extends AbstractKeshmeshAnalysisEngine {
+
+	private final List<File> jdkEntries;
+
+	private final List<File> libraryEntries;
+
+	private final List<File> applicationEntries;
+
+	private final File exclusionsFile;
+
+	/**
+	 * @param exclusionsFile
+	 *            the exclusions file, or null to use the default exclusions of
+	 *            Keshmesh.
+	 */
+	public ClasspathAnalysisEngine(List<File> jdkEntries, List<File> libraryEntries, List<File> applicationEntries, File exclusionsFile) {
+		this.jdkEntries = jdkEntries;
+		this.libraryEntries = libraryEntries;
+		this.applicationEntries = applicationEntries;
+		this.exclusionsFile = exclusionsFile;
+	}
+
+	@Override
+	public void buildAnalysisScope() throws IOException {
+		scope = AnalysisScope.createJavaAnalysisScope();
+		InputStream exclusionsStream = openExclusions();
+		try {
+			scope.setExclusions(new FileOfClasses(exclusionsStream));
+		} finally {
+			exclusionsStream.close();
+		}
+		addToScope(ClassLoaderReference.Primordial, jdkEntries);
+		addToScope(ClassLoaderReference.Extension, libraryEntries);
+		addToScope(ClassLoaderReference.Application, applicationEntries);
+	}
+
+	@Override
+	public InputStream openExclusions() throws IOException {
+		if (exclusionsFile != null) {
+			return new FileInputStream(exclusionsFile);
+		}
+		InputStream exclusionsStream = ClasspathAnalysisEngine.class.getClassLoader().getResourceAsStream(KeshmeshAnalysisEngine.DEFAULT_EXCLUSIONS_FILE_NAME);
+		if (exclusionsStream == null) {
+			throw new IOException("Could not find " + KeshmeshAnalysisEngine.DEFAULT_EXCLUSIONS_FILE_NAME + " on the class path.");
+		}
+		return exclusionsStream;
+	}
+
+	@Override
+	public String getApplicationDescription() {
+		StringBuilder description = new StringBuilder();
+		for (File entry : applicationEntries) {
+			description.append(entry.getAbsolutePath()).append(File.pathSeparatorChar);
+		}
+		return description.toString();
+	}
+
+	private void addToScope(ClassLoaderReference classLoaderReference, List<File> entries) throws IOException {
+		for (File entry : entries) {
+			if (entry.isDirectory()) {
+				scope.addToScope(classLoaderReference, new BinaryDirectoryTreeModule(entry));
+			} else if (entry.isFile()) {
+				scope.addToScope(classLoaderReference, new JarFile(entry));
+			} else {
+				throw new IOException("Could not find the class path entry " + entry + ".");
+			}
+		}
+	}
+
+}
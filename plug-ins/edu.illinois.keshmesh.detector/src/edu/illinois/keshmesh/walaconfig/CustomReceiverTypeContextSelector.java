@@ -25,6 +25,14 @@ import com.ibm.wala.util.intset.IntSetUtil;
  */
 public class CustomReceiverTypeContextSelector implements ContextSelector {
 
+	/**
+	 * @return a description of this context selector. It changes whenever the
+	 *         contexts that this selector creates change.
+	 */
+	public static String getConfiguration() {
+		return CustomReceiverTypeContextSelector.class.getName();
+	}
+
 	@Override
 	public Context getCalleeTarget(CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
 		if (actualParameters == null || actualParameters.length == 0 || actualParameters[0] == null) {
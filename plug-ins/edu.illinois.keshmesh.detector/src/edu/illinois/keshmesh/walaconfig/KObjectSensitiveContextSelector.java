@@ -3,22 +3,58 @@
  */
 package edu.illinois.keshmesh.walaconfig;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import com.ibm.wala.analysis.reflection.JavaTypeContext;
 import com.ibm.wala.analysis.typeInference.PointType;
 import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.intset.EmptyIntSet;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 
 import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+import edu.illinois.keshmesh.detector.util.KnownTypes;
+import edu.illinois.keshmesh.util.Logger;
 
 /**
+ * 
+ * If the number of contexts per method is limited, the selector adapts the
+ * sensitivity of every method while the call graph gets built, so that a few
+ * heavily shared methods do not blow up into a large number of nodes:
+ * 
+ * (1) When a method gets more contexts than the limit, its K gets lowered by
+ * one and its new contexts use the shorter receiver strings. A method whose K
+ * reaches 0 gets the type of the receiver as its context. The contexts that a
+ * method has gotten before it was demoted remain in the call graph.
+ * 
+ * (2) A call whose receiver is an immutable value type (see
+ * {@link #isImmutableValueType(IClass)}) gets the type of the receiver as its
+ * context. Such a receiver has no state that the pointer analysis could tell
+ * apart.
+ * 
+ * Both fallbacks only apply if the number of contexts per method is limited.
+ * Without a limit, the selector builds the same call graph as before these
+ * fallbacks were added, which the expected results of the detector tests are
+ * written for.
+ * 
+ * The demoted methods get logged and can be queried through
+ * {@link #getDemotedMethods()} and {@link #getMethodsOfImmutableReceivers()}.
+ * The headless analyzer writes them to its output file (see
+ * {@link edu.illinois.keshmesh.detector.HeadlessMain}).
  * 
  * @author Mohsen Vakilian
  * @author Stas Negara
@@ -27,7 +63,36 @@ import edu.illinois.keshmesh.detector.util.AnalysisUtils;
  */
 public class KObjectSensitiveContextSelector implements ContextSelector {
 
-	private static final int K = 2;
+	private static final Logger logger = Logger.getLogger(KObjectSensitiveContextSelector.class);
+
+	private static final int DEFAULT_K = 2;
+
+	public static final int UNLIMITED_CONTEXTS = -1;
+
+	private static final TypeReference[] IMMUTABLE_FIELD_TYPES = new TypeReference[] { KnownTypes.JAVA_LANG_STRING, KnownTypes.JAVA_LANG_BOOLEAN, KnownTypes.JAVA_LANG_BYTE, KnownTypes.JAVA_LANG_SHORT,
+			KnownTypes.JAVA_LANG_INTEGER, KnownTypes.JAVA_LANG_LONG, KnownTypes.JAVA_LANG_FLOAT, KnownTypes.JAVA_LANG_DOUBLE };
+
+	private final int k;
+
+	private final int maxContextsPerMethod;
+
+	/*
+	 * The call graph builder calls the selector on a single thread. So, the
+	 * following maps are not synchronized.
+	 */
+
+	private final ReceiverStringContexts receiverStringContexts = new ReceiverStringContexts();
+
+	// The distinct contexts of every method at its current K.
+	private final Map<IMethod, Set<Context>> methodContexts = new HashMap<IMethod, Set<Context>>();
+
+	// The current K of every demoted method.
+	private final Map<IMethod, Integer> demotedMethods = new HashMap<IMethod, Integer>();
+
+	// The methods that have been called on immutable value types.
+	private final Set<IMethod> methodsOfImmutableReceivers = new HashSet<IMethod>();
+
+	private final Map<IClass, Boolean> immutableValueTypes = new HashMap<IClass, Boolean>();
 
 	public static final ContextKey RECEIVER_STRING = new ContextKey() {
 		@Override
@@ -36,6 +101,64 @@ public class KObjectSensitiveContextSelector implements ContextSelector {
 		}
 	};
 
+	public KObjectSensitiveContextSelector() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * @param k
+	 *            the maximum number of receivers in the receiver strings of
+	 *            the contexts.
+	 */
+	public KObjectSensitiveContextSelector(int k) {
+		this(k, UNLIMITED_CONTEXTS);
+	}
+
+	/**
+	 * @param k
+	 *            the maximum number of receivers in the receiver strings of
+	 *            the contexts.
+	 * @param maxContextsPerMethod
+	 *            the number of contexts that a method may get before it gets
+	 *            demoted to a lower K, or {@link #UNLIMITED_CONTEXTS} to
+	 *            never demote any method.
+	 */
+	public KObjectSensitiveContextSelector(int k, int maxContextsPerMethod) {
+		this.k = k;
+		this.maxContextsPerMethod = maxContextsPerMethod;
+	}
+
+	/**
+	 * @return a description of the parameters of the context selector with
+	 *         the given K and limit on the number of contexts per method. It
+	 *         changes whenever the contexts that the selector creates change.
+	 */
+	public static String getConfiguration(int k, int maxContextsPerMethod) {
+		return KObjectSensitiveContextSelector.class.getName() + "(K=" + k + ", maxContextsPerMethod=" + maxContextsPerMethod + ")";
+	}
+
+	private boolean isAdaptive() {
+		return maxContextsPerMethod != UNLIMITED_CONTEXTS;
+	}
+
+	/**
+	 * @return the methods that have been demoted so far because they got too
+	 *         many contexts, mapped to their current K. A K of 0 means that
+	 *         the method gets the type of its receiver as its context.
+	 */
+	public Map<IMethod, Integer> getDemotedMethods() {
+		return Collections.unmodifiableMap(demotedMethods);
+	}
+
+	/**
+	 * @return the methods that have been called on receivers of immutable
+	 *         value types and got the types of these receivers as their
+	 *         contexts.
+	 */
+	public Set<IMethod> getMethodsOfImmutableReceivers() {
+		return Collections.unmodifiableSet(methodsOfImmutableReceivers);
+	}
+
 	@Override
 	public Context getCalleeTarget(CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
 		if (actualParameters == null || actualParameters.length == 0 || actualParameters[0] == null) {
@@ -47,18 +170,91 @@ public class KObjectSensitiveContextSelector implements ContextSelector {
 
 		if (AnalysisUtils.isLibraryClass(callee.getDeclaringClass()) || (AnalysisUtils.isJDKClass(callee.getDeclaringClass()) && !AnalysisUtils.isObjectGetClass(callee))) {
 			//Note: new Random() and similar statements cause an infinite pointer analysis for contexts like CallerSiteContext(caller, site)
-			PointType pointType = new PointType(receiver.getConcreteType());
-			return new JavaTypeContext(pointType);
-		} else {
-			ReceiverString receiverString;
-			if (!(caller.getContext() instanceof ReceiverStringContext)) {
-				receiverString = new ReceiverString(receiver);
+			return makeTypeContext(receiver);
+		}
+		if (isAdaptive() && isImmutableValueType(receiver.getConcreteType())) {
+			if (methodsOfImmutableReceivers.add(callee)) {
+				logger.info("Using type contexts for %s because it is called on the immutable value type %s", callee.getSignature(), receiver.getConcreteType().getName());
+			}
+			return makeTypeContext(receiver);
+		}
+		int calleeK = getK(callee);
+		if (calleeK == 0) {
+			return makeTypeContext(receiver);
+		}
+		ReceiverStringContext callerContext = caller.getContext() instanceof ReceiverStringContext ? (ReceiverStringContext) caller.getContext() : null;
+		Context context = receiverStringContexts.get(receiver, callerContext, calleeK);
+		if (isAdaptive()) {
+			countContext(callee, calleeK, context);
+		}
+		return context;
+	}
+
+	private static Context makeTypeContext(InstanceKey receiver) {
+		PointType pointType = new PointType(receiver.getConcreteType());
+		return new JavaTypeContext(pointType);
+	}
+
+	private int getK(IMethod method) {
+		Integer demotedK = demotedMethods.get(method);
+		return demotedK == null ? k : demotedK;
+	}
+
+	private void countContext(IMethod method, int methodK, Context context) {
+		Set<Context> contexts = methodContexts.get(method);
+		if (contexts == null) {
+			contexts = new HashSet<Context>();
+			methodContexts.put(method, contexts);
+		}
+		contexts.add(context);
+		if (contexts.size() > maxContextsPerMethod) {
+			int demotedK = methodK - 1;
+			demotedMethods.put(method, demotedK);
+			if (demotedK == 0) {
+				methodContexts.remove(method);
 			} else {
-				ReceiverString callerReceiverString = (ReceiverString) ((ReceiverStringContext) caller.getContext()).get(RECEIVER_STRING);
-				receiverString = new ReceiverString(receiver, K, callerReceiverString);
+				methodContexts.put(method, new HashSet<Context>());
+			}
+			logger.info("Demoted %s to K=%d because it got more than %d contexts with K=%d", method.getSignature(), demotedK, maxContextsPerMethod, methodK);
+		}
+	}
+
+	/**
+	 * @return true if the instances of the given class only hold final fields
+	 *         of primitive types, strings or boxed values.
+	 */
+	private boolean isImmutableValueType(IClass klass) {
+		Boolean isImmutable = immutableValueTypes.get(klass);
+		if (isImmutable == null) {
+			isImmutable = computeIsImmutableValueType(klass);
+			immutableValueTypes.put(klass, isImmutable);
+		}
+		return isImmutable;
+	}
+
+	private static boolean computeIsImmutableValueType(IClass klass) {
+		if (klass == null || klass.isArrayClass() || klass.getAllInstanceFields().isEmpty()) {
+			return false;
+		}
+		for (IField field : klass.getAllInstanceFields()) {
+			if (!field.isFinal() || !isImmutableFieldType(field.getFieldTypeReference())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isImmutableFieldType(TypeReference fieldType) {
+		if (fieldType.isPrimitiveType()) {
+			return true;
+		}
+		TypeName fieldTypeName = fieldType.getName();
+		for (TypeReference immutableFieldType : IMMUTABLE_FIELD_TYPES) {
+			if (KnownTypes.is(fieldTypeName, immutableFieldType)) {
+				return true;
 			}
-			return new ReceiverStringContext(receiverString);
 		}
+		return false;
 	}
 
 	private static final IntSet receiver = IntSetUtil.make(new int[] { 0 });
@@ -20,7 +20,6 @@ import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
 import com.ibm.wala.ipa.callgraph.propagation.SSAContextInterpreter;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXCFABuilder;
-import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
@@ -32,7 +31,10 @@ import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.strings.Atom;
 
 import edu.illinois.keshmesh.annotations.EntryPoint;
+import edu.illinois.keshmesh.detector.bugs.BugPatterns;
 import edu.illinois.keshmesh.detector.util.AnalysisUtils;
+import edu.illinois.keshmesh.util.Logger;
+import edu.illinois.keshmesh.util.Modes;
 
 /**
  * 
@@ -42,6 +44,33 @@ import edu.illinois.keshmesh.detector.util.AnalysisUtils;
  */
 public class KeshmeshAnalysisEngine {
 
+	public static final String DEFAULT_EXCLUSIONS_FILE_NAME = "EclipseDefaultExclusions.txt"; //$NON-NLS-1$
+
+	private static final Logger logger = Logger.getLogger(KeshmeshAnalysisEngine.class);
+
+	/**
+	 * @return the analysis profile that the call graph gets built with for the
+	 *         enabled bug patterns (see
+	 *         {@link AnalysisProfile#select(java.util.Collection, AnalysisProfile)}),
+	 *         unless a profile is forced (see
+	 *         {@link Modes#getForcedAnalysisProfile()}).
+	 */
+	public static AnalysisProfile getAnalysisProfile() {
+		if (Modes.getForcedAnalysisProfile() != null) {
+			return Modes.getForcedAnalysisProfile();
+		}
+		return AnalysisProfile.select(BugPatterns.getEnabledBugPatterns(), Modes.getAnalysisProfileBudget());
+	}
+
+	/**
+	 * @return a description of the analysis profile, the call graph builder
+	 *         and its context selector. Cached analysis results are only valid
+	 *         for the same configuration.
+	 */
+	public static String getConfiguration() {
+		return getAnalysisProfile().getConfiguration();
+	}
+
 	public static Iterable<Entrypoint> makeDefaultEntrypoints(ClassLoaderReference classLoaderReference, IClassHierarchy classHierarchy) {
 		//Iterable<Entrypoint> mainEntrypoints = Util.makeMainEntrypoints(analysisScope.getApplicationLoader(), classHierarchy);
 		//		return new FilteredIterable(mainEntrypoints);
@@ -49,16 +78,23 @@ public class KeshmeshAnalysisEngine {
 		return makeAnnotatedEntryPoints(classHierarchy);
 	}
 
-	public static CallGraphBuilder getCallGraphBuilder(AnalysisScope analysisScope, IClassHierarchy classHierarchy, AnalysisOptions analysisOptions, AnalysisCache analysisCache) {
-		ContextSelector contextSelector = new KObjectSensitiveContextSelector();
+	/**
+	 * @param contextSelector
+	 *            a context selector created by the analysis profile of
+	 *            {@link #getAnalysisProfile()}.
+	 */
+	public static CallGraphBuilder getCallGraphBuilder(AnalysisScope analysisScope, IClassHierarchy classHierarchy, AnalysisOptions analysisOptions, AnalysisCache analysisCache,
+			ContextSelector contextSelector) {
+		AnalysisProfile analysisProfile = getAnalysisProfile();
+		logger.info("Building the call graph with the %s analysis profile: %s", analysisProfile, analysisProfile.getConfiguration());
 		//		Util.addDefaultSelectors(analysisOptions, classHierarchy);
 		//		Util.addDefaultBypassLogic(analysisOptions, analysisScope, Util.class.getClassLoader(), classHierarchy);
 		//		return new KeshmeshCFABuilder(classHierarchy, analysisOptions, analysisCache, contextSelector, null);
-		return makeZeroOneCFABuilder(analysisOptions, analysisCache, classHierarchy, analysisScope, contextSelector, null);
+		return makeZeroOneCFABuilder(analysisOptions, analysisCache, classHierarchy, analysisScope, contextSelector, null, analysisProfile.getInstancePolicy());
 	}
 
 	public static SSAPropagationCallGraphBuilder makeZeroOneCFABuilder(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha, AnalysisScope scope, ContextSelector customSelector,
-			SSAContextInterpreter customInterpreter) {
+			SSAContextInterpreter customInterpreter, int instancePolicy) {
 
 		if (options == null) {
 			throw new IllegalArgumentException("options is null");
@@ -66,7 +102,7 @@ public class KeshmeshAnalysisEngine {
 		//		Util.addDefaultSelectors(options, cha);
 		//		Util.addDefaultBypassLogic(options, scope, Util.class.getClassLoader(), cha);
 
-		return ZeroXCFABuilder.make(cha, options, cache, customSelector, customInterpreter, ZeroXInstanceKeys.ALLOCATIONS | ZeroXInstanceKeys.SMUSH_MANY | ZeroXInstanceKeys.SMUSH_THROWABLES);
+		return ZeroXCFABuilder.make(cha, options, cache, customSelector, customInterpreter, instancePolicy);
 	}
 
 	public static Iterable<Entrypoint> makeAnnotatedEntryPoints(IClassHierarchy classHierarchy) {
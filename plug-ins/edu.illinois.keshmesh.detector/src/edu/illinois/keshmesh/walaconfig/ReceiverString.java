@@ -7,6 +7,10 @@ import com.ibm.wala.ipa.callgraph.ContextItem;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 
 /**
+ * A sequence of receivers, the most recent one first. The receiver strings
+ * are hash-consed by {@link ReceiverStringContexts}, which creates one
+ * instance per distinct sequence. So, two receiver strings are equal if and
+ * only if they are the same object.
  * 
  * @author Mohsen Vakilian
  * @author Stas Negara
@@ -15,32 +19,63 @@ import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
  */
 public class ReceiverString implements ContextItem {
 
-	private final InstanceKey instances[];
+	private final InstanceKey receiver;
 
-	public ReceiverString(InstanceKey instanceKey) {
-		this.instances = new InstanceKey[] { instanceKey };
-	}
+	// The receivers that precede the most recent one, or null.
+	private final ReceiverString tail;
+
+	private final int length;
+
+	private final int hashCode;
 
-	ReceiverString(InstanceKey instanceKey, int max_length, ReceiverString base) {
-		int instancesLength = Math.min(max_length, base.getCurrentLength() + 1);
-		instances = new InstanceKey[instancesLength];
-		instances[0] = instanceKey;
-		System.arraycopy(base.instances, 0, instances, 1, Math.min(max_length - 1, base.getCurrentLength()));
+	private final ReceiverStringContext context;
+
+	ReceiverString(InstanceKey receiver, ReceiverString tail) {
+		this.receiver = receiver;
+		this.tail = tail;
+		this.length = tail == null ? 1 : tail.length + 1;
+		this.hashCode = mix(31 * receiver.hashCode() + (tail == null ? 0 : tail.hashCode));
+		this.context = new ReceiverStringContext(this);
 	}
 
-	private int getCurrentLength() {
-		return instances.length;
+	/**
+	 * The finalizer of MurmurHash3. It spreads every bit of the given hash
+	 * code over the whole result. So, receiver strings that only differ in
+	 * the low bits of the hash codes of their receivers do not collide.
+	 */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
 	}
 
 	public InstanceKey getReceiver() {
-		return instances[0];
+		return receiver;
+	}
+
+	ReceiverString getTail() {
+		return tail;
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the canonical context of this receiver string.
+	 */
+	ReceiverStringContext getContext() {
+		return context;
 	}
 
 	@Override
 	public String toString() {
 		StringBuffer str = new StringBuffer("[");
-		for (int i = 0; i < instances.length; i++) {
-			str.append(" ").append(instances[i].toString());
+		for (ReceiverString receiverString = this; receiverString != null; receiverString = receiverString.tail) {
+			str.append(" ").append(receiverString.receiver.toString());
 		}
 		str.append(" ]");
 		return str.toString();
@@ -48,27 +83,12 @@ public class ReceiverString implements ContextItem {
 
 	@Override
 	public int hashCode() {
-		int code = 11;
-		for (int i = 0; i < instances.length; i++) {
-			code *= instances[i].hashCode();
-		}
-		return code;
+		return hashCode;
 	}
 
 	@Override
 	public boolean equals(Object o) {
-		if (o instanceof ReceiverString) {
-			ReceiverString oc = (ReceiverString) o;
-			if (oc.instances.length == instances.length) {
-				for (int i = 0; i < instances.length; i++) {
-					if (!(instances[i].equals(oc.instances[i]))) {
-						return false;
-					}
-				}
-				return true;
-			}
-		}
-		return false;
+		return this == o;
 	}
 
 }
\ No newline at end of file
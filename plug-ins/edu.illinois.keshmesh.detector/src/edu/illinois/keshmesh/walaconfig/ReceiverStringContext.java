@@ -9,6 +9,9 @@ import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 
 /**
+ * 
+ * The contexts are canonical (see {@link ReceiverStringContexts}). So, two
+ * contexts are equal if and only if they are the same object.
  * 
  * @author Mohsen Vakilian
  * @author Stas Negara
@@ -18,7 +21,7 @@ import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 public class ReceiverStringContext implements Context {
 	private final ReceiverString receiverString;
 
-	public ReceiverStringContext(ReceiverString receiverString) {
+	ReceiverStringContext(ReceiverString receiverString) {
 		if (receiverString == null) {
 			throw new IllegalArgumentException("null receiverString");
 		}
@@ -29,9 +32,13 @@ public class ReceiverStringContext implements Context {
 		return receiverString.getReceiver();
 	}
 
+	ReceiverString getReceiverString() {
+		return receiverString;
+	}
+
 	@Override
 	public boolean equals(Object o) {
-		return (o instanceof ReceiverStringContext) && ((ReceiverStringContext) o).receiverString.equals(receiverString);
+		return this == o;
 	}
 
 	@Override
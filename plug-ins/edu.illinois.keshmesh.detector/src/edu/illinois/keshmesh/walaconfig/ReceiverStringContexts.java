@@ -0,0 +1,72 @@
+/**
+ * This file is licensed under the University of Illinois/NCSA Open Source License. See LICENSE.TXT for details.
+ */
+package edu.illinois.keshmesh.walaconfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+
+/**
+ * The interning table of the receiver strings and their contexts. It holds
+ * one canonical {@link ReceiverString} per distinct sequence of receivers, and
+ * every receiver string holds its canonical {@link ReceiverStringContext}. So,
+ * looking up the context of a call that has been seen before does not
+ * allocate anything, and the call graph builder compares the contexts by
+ * reference.
+ * 
+ * A receiver string is looked up by its most recent receiver and its tail.
+ * Since the tails are canonical too, they are compared by reference.
+ * 
+ * The call graph builder calls its context selector on a single thread. So,
+ * this table is not synchronized.
+ * 
+ * @author Mohsen Vakilian
+ * @author Stas Negara
+ * 
+ */
+public class ReceiverStringContexts {
+
+	// Maps the tail of every receiver string, or null for the receiver strings of length one, to the receiver strings with that tail.
+	private final Map<ReceiverString, Map<InstanceKey, ReceiverString>> receiverStrings = new HashMap<ReceiverString, Map<InstanceKey, ReceiverString>>();
+
+	/**
+	 * @return the canonical context of the given receiver followed by the
+	 *         receivers of the given context of the caller, truncated to at
+	 *         most k receivers.
+	 * 
+	 * @param callerContext
+	 *            the context of the caller, or null if the context of the
+	 *            caller is not a receiver string.
+	 */
+	public ReceiverStringContext get(InstanceKey receiver, ReceiverStringContext callerContext, int k) {
+		ReceiverString tail = callerContext == null ? null : truncate(callerContext.getReceiverString(), k - 1);
+		return intern(receiver, tail).getContext();
+	}
+
+	private ReceiverString truncate(ReceiverString receiverString, int maxLength) {
+		if (receiverString == null || receiverString.getLength() <= maxLength) {
+			return receiverString;
+		}
+		if (maxLength == 0) {
+			return null;
+		}
+		return intern(receiverString.getReceiver(), truncate(receiverString.getTail(), maxLength - 1));
+	}
+
+	private ReceiverString intern(InstanceKey receiver, ReceiverString tail) {
+		Map<InstanceKey, ReceiverString> receiverStringsWithTail = receiverStrings.get(tail);
+		if (receiverStringsWithTail == null) {
+			receiverStringsWithTail = new HashMap<InstanceKey, ReceiverString>();
+			receiverStrings.put(tail, receiverStringsWithTail);
+		}
+		ReceiverString receiverString = receiverStringsWithTail.get(receiver);
+		if (receiverString == null) {
+			receiverString = new ReceiverString(receiver, tail);
+			receiverStringsWithTail.put(receiver, receiverString);
+		}
+		return receiverString;
+	}
+
+}
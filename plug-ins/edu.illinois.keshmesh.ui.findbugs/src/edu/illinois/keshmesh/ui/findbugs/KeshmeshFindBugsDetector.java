@@ -84,8 +84,8 @@ public class KeshmeshFindBugsDetector implements Detector {
 				BugInstances bugInstances = Main.initAndPerformAnalysis(javaProject);
 				for (edu.illinois.keshmesh.detector.bugs.BugInstance bugInstance : bugInstances) {
 					Logger.log(bugInstance.getBugPosition().getFullyQualifiedClassName());
-					SourceLineAnnotation sourceLineAnnotation = new SourceLineAnnotation(bugInstance.getBugPosition().getFullyQualifiedClassName(), bugInstance.getBugPosition().getSourcePath()
-							.toString(), bugInstance.getBugPosition().getFirstLine(), bugInstance.getBugPosition().getLastLine(), bugInstance.getBugPosition().getFirstOffset(), bugInstance
+					String sourceFile = bugInstance.getBugPosition().getSourcePath() == null ? SourceLineAnnotation.UNKNOWN_SOURCE_FILE : bugInstance.getBugPosition().getSourcePath().toString();
+					SourceLineAnnotation sourceLineAnnotation = new SourceLineAnnotation(bugInstance.getBugPosition().getFullyQualifiedClassName(), sourceFile, bugInstance.getBugPosition().getFirstLine(), bugInstance.getBugPosition().getLastLine(), bugInstance.getBugPosition().getFirstOffset(), bugInstance
 							.getBugPosition().getLastOffset());
 					String fixInfo = getFixInformation(bugInstance);
 					sourceLineAnnotation.setDescription(fixInfo);